@@ -0,0 +1,157 @@
+// GistHotPaths.java
+import benchmarks.HotPaths;
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Default-package side of the benchmarks (see benchmarks.HotPaths for why it is split).
+ * Each method performs exactly one unit of the work being measured on state prepared in setUp.
+ */
+public class GistHotPaths implements HotPaths {
+
+    private static final Type GIST_LIST_TYPE = new TypeToken<List<Gist>>(){}.getType();
+    private static final Type REFLECTIVE_LIST_TYPE = new TypeToken<List<ReflectiveGist>>(){}.getType();
+    private static final String USERNAME = "octocat";
+
+    private final Gson gson = new Gson();
+    private String payload;
+    private List<Gist> gists;
+    private List<ReflectiveGist> reflectiveGists;
+    private String responseJson;
+
+    private int gistCount;
+    private GitHubStub stub;
+    private GistServer server;
+    private HttpClient client;
+    private HttpRequest plainRequest;
+    private HttpRequest gzipRequest;
+
+    @Override
+    public void setUp(int gistCount) {
+        this.gistCount = gistCount;
+        payload = GistPayloads.userGists(USERNAME, gistCount);
+        gists = gson.fromJson(payload, GIST_LIST_TYPE);
+        reflectiveGists = gson.fromJson(payload, REFLECTIVE_LIST_TYPE);
+        responseJson = gson.toJson(gists);
+    }
+
+    @Override
+    public Object parseGists() {
+        return gson.fromJson(payload, GIST_LIST_TYPE);
+    }
+
+    @Override
+    public String serializeGists() {
+        return gson.toJson(gists);
+    }
+
+    @Override
+    public Object parseGistsReflective() {
+        return gson.fromJson(payload, REFLECTIVE_LIST_TYPE);
+    }
+
+    @Override
+    public String serializeGistsReflective() {
+        return gson.toJson(reflectiveGists, REFLECTIVE_LIST_TYPE);
+    }
+
+    @Override
+    public byte[] encodeResponse() {
+        return responseJson.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int streamCopy() throws Exception {
+        StringWriter out = new StringWriter(responseJson.length());
+        return GistJson.copyGists(gson, new JsonReader(new StringReader(payload)), new JsonWriter(out));
+    }
+
+    @Override
+    public Object buildBody() {
+        return GistBody.of(gists);
+    }
+
+    @Override
+    public void startServer(boolean cached) throws Exception {
+        // A local GitHub: every uncached call is paged HTTP plus parsing, as against api.github.com.
+        // ETags are off so each call transfers the full payload instead of being answered with 304.
+        stub = new GitHubStub(0);
+        stub.setGistCount(USERNAME, gistCount);
+        stub.setConditionalRequests(false);
+        stub.start();
+        GistSource upstream = new GitHubApiClient(HttpClient.newHttpClient(), gson, RateLimitScheduler.unlimited(),
+                Duration.ofSeconds(30), stub.baseUrl());
+        GistSource source = cached
+                ? new CachingGitHubApiClient(new CoalescingGistSource(upstream),
+                        Duration.ofHours(1), Duration.ofSeconds(30), 10_000, 64L * 1024 * 1024)
+                : upstream;
+        server = new GistServer(0, source, ExecutorMode.VIRTUAL.create(10));
+        server.start();
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI uri = URI.create("http://localhost:" + server.port() + "/" + USERNAME);
+        plainRequest = HttpRequest.newBuilder(uri).GET().build();
+        gzipRequest = HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").GET().build();
+    }
+
+    @Override
+    public int fetchOnce(boolean gzip) throws Exception {
+        HttpResponse<InputStream> response = client.send(gzip ? gzipRequest : plainRequest, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Unexpected status " + response.statusCode());
+            }
+            return body.readAllBytes().length;
+        }
+    }
+
+    @Override
+    public void stopServer() {
+        if (server != null) {
+            server.shutdown();
+            server = null;
+        }
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+        if (stub != null) {
+            stub.stop();
+            stub = null;
+        }
+    }
+
+    // Gist and GistFile as Gson binds them without their @JsonAdapter (which can't be switched off per Gson)
+    static class ReflectiveGist {
+        String id;
+        String description;
+        String url;
+        @SerializedName("created_at")
+        String createdAt;
+        Map<String, ReflectiveGistFile> files;
+    }
+
+    static class ReflectiveGistFile {
+        String filename;
+        String type;
+        String language;
+        @SerializedName("raw_url")
+        String rawUrl;
+        long size;
+    }
+}
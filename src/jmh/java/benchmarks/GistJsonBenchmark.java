@@ -0,0 +1,75 @@
+// GistJsonBenchmark.java
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization hot paths on GitHub-shaped payloads, from a single gist up to 1000.
+ * Run with -prof gc (the default jmh.args) to see allocation per operation next to throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GistJsonBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int gistCount;
+
+    private HotPaths hotPaths;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        hotPaths = HotPaths.load();
+        hotPaths.setUp(gistCount);
+    }
+
+    @Benchmark
+    public Object parseGists() {
+        return hotPaths.parseGists();
+    }
+
+    @Benchmark
+    public String serializeGists() {
+        return hotPaths.serializeGists();
+    }
+
+    @Benchmark
+    public Object parseGistsReflective() {
+        return hotPaths.parseGistsReflective();
+    }
+
+    @Benchmark
+    public String serializeGistsReflective() {
+        return hotPaths.serializeGistsReflective();
+    }
+
+    @Benchmark
+    public byte[] encodeResponse() {
+        return hotPaths.encodeResponse();
+    }
+
+    @Benchmark
+    public int streamCopy() throws Exception {
+        return hotPaths.streamCopy();
+    }
+
+    @Benchmark
+    public Object buildBody() {
+        return hotPaths.buildBody();
+    }
+}
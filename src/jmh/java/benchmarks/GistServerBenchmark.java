@@ -0,0 +1,60 @@
+// GistServerBenchmark.java
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end GET /{username} through a real GistServer over loopback HTTP.
+ * The upstream is GitHubApiClient talking to a local GitHubStub, so "cached=false" measures the full
+ * fetch (paged HTTP and parsing)-serialize-send path and "cached=true" the cache-hit path.
+ * Note that -prof gc counts allocations of the client and server together, as both run in the fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GistServerBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int gistCount;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private HotPaths hotPaths;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        hotPaths = HotPaths.load();
+        hotPaths.setUp(gistCount);
+        hotPaths.startServer(cached);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hotPaths.stopServer();
+    }
+
+    @Benchmark
+    public int handleGistsRequest() throws Exception {
+        return hotPaths.fetchOnce(gzip);
+    }
+}
@@ -0,0 +1,61 @@
+// HotPaths.java
+package benchmarks;
+
+/**
+ * The operations the JMH suites measure.
+ * JMH cannot generate code for benchmarks in the default package, while the application classes
+ * live there and cannot be imported from a named package. The benchmarks therefore call into
+ * the application through this interface, implemented by the default-package GistHotPaths.
+ */
+public interface HotPaths {
+
+    /**
+     * Prepares a realistic GitHub payload with the given number of gists.
+     */
+    void setUp(int gistCount) throws Exception;
+
+    /** Gson deserialization of the upstream payload into Gist/GistFile objects (GistTypeAdapter). */
+    Object parseGists();
+
+    /** gson.toJson of the parsed list, as the server did before bodies were pre-serialized. */
+    String serializeGists();
+
+    /** parseGists with Gson's reflective binding, the baseline GistTypeAdapter replaced. */
+    Object parseGistsReflective();
+
+    /** serializeGists with Gson's reflective binding, the baseline GistTypeAdapter replaced. */
+    String serializeGistsReflective();
+
+    /** The String to UTF-8 byte[] encoding sendResponse performs. */
+    byte[] encodeResponse();
+
+    /** Streaming projection of the upstream payload (GistJson.copyGists), as used in streaming mode. */
+    int streamCopy() throws Exception;
+
+    /** Serializing and gzip-compressing a response body (GistBody.of). */
+    Object buildBody();
+
+    /**
+     * Starts a GistServer on a free port whose upstream is a local GitHubStub serving gistCount gists.
+     *
+     * @param cached Whether the stub sits behind the response cache, as in production.
+     */
+    void startServer(boolean cached) throws Exception;
+
+    /**
+     * Sends one GET /{username} to the running server and reads the full response.
+     *
+     * @param gzip Whether to send Accept-Encoding: gzip.
+     * @return The number of response bytes received.
+     */
+    int fetchOnce(boolean gzip) throws Exception;
+
+    void stopServer();
+
+    /**
+     * Loads the default-package implementation.
+     */
+    static HotPaths load() throws ReflectiveOperationException {
+        return (HotPaths) Class.forName("GistHotPaths").getDeclaredConstructor().newInstance();
+    }
+}
@@ -0,0 +1,207 @@
+// AdmissionController.java
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for GistServer: bounds the requests being handled and the requests waiting for a
+ * handler thread, so that when GitHub slows down the excess is turned away in microseconds (503 with
+ * Retry-After, or a cached answer) instead of queueing until every request is slow.
+ *
+ * <ul>
+ *   <li><b>In flight</b>: {@link #tryAcquire()} admits a request while fewer than {@link #limit()} are being
+ *       handled. With adaptation on, the limit follows upstream latency: it is {@code maxInFlight} scaled by
+ *       baseline / recent GitHub latency (never below {@code minInFlight}), so when GitHub gets 4x slower
+ *       only a quarter as many requests are allowed to wait on it.</li>
+ *   <li><b>Queued</b>: {@link #guard} wraps the handler executor. Once {@code maxQueued} tasks are waiting,
+ *       further requests are not queued behind them; they run straight away on a separate virtual thread
+ *       with {@link #isShedding()} set, and handlers answer them without doing any work.</li>
+ * </ul>
+ * Latency is read from a LatencyHistogram (normally Metrics.UPSTREAM_REQUEST) at most once per second,
+ * as the mean of the samples recorded since the previous reading.
+ */
+public final class AdmissionController {
+
+    private static final long UPDATE_INTERVAL_NANOS = 1_000_000_000L;
+    private static final double BASELINE_DECAY = 0.05; // How fast the baseline follows latency upwards
+    private static final ThreadLocal<Boolean> SHEDDING = ThreadLocal.withInitial(() -> false);
+
+    private final int maxInFlight;
+    private final int minInFlight;
+    private final int maxQueued;
+    private final LatencyHistogram upstreamLatency; // null disables adaptation
+    private final LongSupplier nanoTime;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile int limit;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueRejected = new LongAdder();
+    private final ExecutorService shedExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Adaptation state, guarded by 'this'
+    private volatile long lastUpdateNanos; // Also read without the lock as a fast path
+    private long lastCount;
+    private long lastSumNanos;
+    private double baselineNanos; // 0 until the first sample
+    private double recentNanos;
+
+    /**
+     * @param maxInFlight Most requests handled at once (the limit when upstream latency is normal).
+     * @param minInFlight Lowest the adaptive limit may go.
+     * @param maxQueued Most requests waiting for a handler thread before new ones are shed.
+     * @param upstreamLatency Histogram of upstream request latency to adapt to, or null for a fixed limit.
+     */
+    public AdmissionController(int maxInFlight, int minInFlight, int maxQueued, LatencyHistogram upstreamLatency) {
+        this(maxInFlight, minInFlight, maxQueued, upstreamLatency, System::nanoTime);
+    }
+
+    /**
+     * Same as the public constructor but with an explicit time source, so tests can move time forward.
+     */
+    AdmissionController(int maxInFlight, int minInFlight, int maxQueued, LatencyHistogram upstreamLatency, LongSupplier nanoTime) {
+        if (maxInFlight < 1 || minInFlight < 1 || minInFlight > maxInFlight || maxQueued < 1) {
+            throw new IllegalArgumentException("Need 1 <= minInFlight <= maxInFlight and maxQueued >= 1");
+        }
+        this.maxInFlight = maxInFlight;
+        this.minInFlight = minInFlight;
+        this.maxQueued = maxQueued;
+        this.upstreamLatency = upstreamLatency;
+        this.nanoTime = nanoTime;
+        this.limit = maxInFlight;
+        this.lastUpdateNanos = nanoTime.getAsLong();
+        if (upstreamLatency != null) {
+            lastCount = upstreamLatency.count();
+            lastSumNanos = upstreamLatency.sumNanos();
+        }
+    }
+
+    /**
+     * Admits a request if fewer than {@link #limit()} are in flight. Every successful call must be
+     * paired with {@link #release()} once the response has been written.
+     *
+     * @return False if the request should be shed.
+     */
+    public boolean tryAcquire() {
+        adapt();
+        int current = limit;
+        while (true) {
+            int active = inFlight.get();
+            if (active >= current) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(active, active + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Marks an admitted request as finished.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * @return The current in-flight limit.
+     */
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * @return True while running a request that was turned away by the queue limit: the handler should
+     *         answer it without doing any real work.
+     */
+    public static boolean isShedding() {
+        return SHEDDING.get();
+    }
+
+    /**
+     * Wraps the handler executor so that at most {@code maxQueued} requests wait for a thread (a request
+     * counts as waiting from submission until a thread starts it). Requests beyond that run immediately
+     * on a virtual thread with {@link #isShedding()} set.
+     */
+    public Executor guard(Executor handlers) {
+        return task -> {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                queueRejected.increment();
+                shedExecutor.execute(() -> {
+                    SHEDDING.set(true);
+                    try {
+                        task.run();
+                    } finally {
+                        SHEDDING.set(false);
+                    }
+                });
+                return;
+            }
+            try {
+                handlers.execute(() -> {
+                    queued.decrementAndGet();
+                    task.run();
+                });
+            } catch (RuntimeException e) {
+                queued.decrementAndGet();
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * @return A point-in-time snapshot of the admission counters.
+     */
+    public AdmissionStats stats() {
+        return new AdmissionStats(limit, inFlight.get(), queued.get(), admitted.sum(), rejected.sum(), queueRejected.sum());
+    }
+
+    /**
+     * Recomputes the limit from the upstream latency recorded since the last update (at most once a second).
+     */
+    private void adapt() {
+        if (upstreamLatency == null) {
+            return;
+        }
+        long now = nanoTime.getAsLong();
+        if (now - lastUpdateNanos < UPDATE_INTERVAL_NANOS) {
+            return;
+        }
+        synchronized (this) {
+            if (now - lastUpdateNanos < UPDATE_INTERVAL_NANOS) {
+                return; // Another thread just did it
+            }
+            lastUpdateNanos = now;
+            long count = upstreamLatency.count();
+            long sum = upstreamLatency.sumNanos();
+            long samples = count - lastCount;
+            double mean = samples > 0 ? (double) (sum - lastSumNanos) / samples : 0;
+            lastCount = count;
+            lastSumNanos = sum;
+            if (samples == 0) {
+                return; // No upstream calls (all cache hits): nothing to learn, keep the limit
+            }
+
+            recentNanos = recentNanos == 0 ? mean : 0.5 * recentNanos + 0.5 * mean;
+            // The baseline drops to a faster reading at once but rises only slowly, so a sustained
+            // slowdown is eventually treated as normal rather than throttled forever
+            baselineNanos = baselineNanos == 0 || mean < baselineNanos
+                    ? mean : (1 - BASELINE_DECAY) * baselineNanos + BASELINE_DECAY * mean;
+            double gradient = Math.min(1.0, baselineNanos / recentNanos);
+            limit = Math.max(minInFlight, (int) Math.round(maxInFlight * gradient));
+        }
+    }
+
+    /**
+     * Snapshot of the admission counters, reported on /metrics.
+     */
+    public record AdmissionStats(int limit, int inFlight, int queued, long admitted, long rejected, long queueRejected) {
+    }
+}
@@ -0,0 +1,465 @@
+// CachingGitHubApiClient.java
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process, size-bounded cache in front of another GistSource (normally GitHubApiClient).
+ *
+ * Successful lookups are kept for {@code ttl}; UserNotFoundException results are cached
+ * separately for {@code negativeTtl} so that repeated requests for unknown users don't hit GitHub.
+ * The cache is bounded both by entry count and by an estimate of retained heap bytes, evicting
+ * the least recently used entries first. Hit/miss/eviction counters are exposed through {@link #stats()}.
+ *
+ * Each entry also keeps the serialized response body (JSON plus gzip, see GistBody), so a hit
+ * served through {@link #getGistBodyAsync(String)} costs no serialization at all, and the list's
+ * GistStats aggregates, so {@link #getUserStatsAsync(String)} never walks the list.
+ * The gist list itself is held as CompactGists (flat arrays, interned types and languages) rather
+ * than as the parsed Gist objects; lists returned by the cache decode a Gist on each get(i).
+ *
+ * When the delegate is unavailable (rate limited, an open circuit, or an I/O error such as a timeout)
+ * and an expired entry for the user is still held, that stale entry is served instead of failing the request.
+ *
+ * Stale-while-revalidate: for {@code staleWhileRevalidate} after an entry expires it is still served
+ * immediately while a background refresh reloads it. Lookups are also counted in a FrequencySketch,
+ * and {@link #refreshHotEntries} reloads the most requested usernames before they expire, so popular
+ * users never see a cold miss. Background loads run with RateLimitScheduler.Priority.BACKGROUND.
+ */
+public class CachingGitHubApiClient implements GistSource {
+
+    // Rough fixed cost we charge for a negative entry (key + entry object + message).
+    private static final long NEGATIVE_ENTRY_BYTES = 256;
+
+    private final GistSource delegate;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final long staleWhileRevalidateMillis;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Clock clock;
+
+    // Access-ordered LinkedHashMap: iteration starts at the least recently used entry.
+    // All access to the map and currentBytes is guarded by 'this'.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+    private final FrequencySketch popularity; // Also guarded by 'this'
+
+    // Usernames with a background refresh in flight, so each is only refreshed once at a time
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    /**
+     * Constructs a cache in front of the given GistSource.
+     *
+     * @param delegate The GistSource to load from on a cache miss.
+     * @param ttl How long successful results are served from the cache.
+     * @param negativeTtl How long "user not found" results are served from the cache (zero disables negative caching).
+     * @param maxEntries Maximum number of cached usernames.
+     * @param maxBytes Maximum estimated heap bytes retained by cached entries.
+     */
+    public CachingGitHubApiClient(GistSource delegate, Duration ttl, Duration negativeTtl, int maxEntries, long maxBytes) {
+        this(delegate, ttl, negativeTtl, Duration.ZERO, maxEntries, maxBytes, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a cache that keeps serving expired entries for a while as they are refreshed in the background.
+     *
+     * @param delegate The GistSource to load from on a cache miss.
+     * @param ttl How long successful results are served from the cache.
+     * @param negativeTtl How long "user not found" results are served from the cache (zero disables negative caching).
+     * @param staleWhileRevalidate How long after expiry an entry is still served while it is being refreshed.
+     * @param maxEntries Maximum number of cached usernames.
+     * @param maxBytes Maximum estimated heap bytes retained by cached entries.
+     */
+    public CachingGitHubApiClient(GistSource delegate, Duration ttl, Duration negativeTtl, Duration staleWhileRevalidate,
+                                  int maxEntries, long maxBytes) {
+        this(delegate, ttl, negativeTtl, staleWhileRevalidate, maxEntries, maxBytes, Clock.systemUTC());
+    }
+
+    /**
+     * Same as the public constructor but with an explicit Clock, so tests can move time forward.
+     */
+    CachingGitHubApiClient(GistSource delegate, Duration ttl, Duration negativeTtl, int maxEntries, long maxBytes, Clock clock) {
+        this(delegate, ttl, negativeTtl, Duration.ZERO, maxEntries, maxBytes, clock);
+    }
+
+    CachingGitHubApiClient(GistSource delegate, Duration ttl, Duration negativeTtl, Duration staleWhileRevalidate,
+                           int maxEntries, long maxBytes, Clock clock) {
+        this.delegate = delegate;
+        this.ttlMillis = ttl.toMillis();
+        this.negativeTtlMillis = negativeTtl.toMillis();
+        this.staleWhileRevalidateMillis = staleWhileRevalidate.toMillis();
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+        this.popularity = new FrequencySketch(maxEntries);
+    }
+
+    @Override
+    public List<Gist> getUserGists(String username) throws Exception {
+        long now = clock.millis();
+        Entry cached = lookup(username, now);
+        if (cached != null) {
+            revalidateIfStale(username, cached, now);
+            return fromCache(cached);
+        }
+
+        misses.increment();
+        List<Gist> gists;
+        try {
+            gists = delegate.getUserGists(username);
+        } catch (GitHubApiClient.UserNotFoundException e) {
+            rememberNotFound(username, e);
+            throw e;
+        } catch (Exception e) {
+            Entry stale = upstreamUnavailable(e) ? staleEntry(username) : null;
+            if (stale == null) {
+                throw e;
+            }
+            return stale.gists;
+        }
+        return gists == null ? null : rememberGists(username, gists).gists;
+    }
+
+    @Override
+    public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+        return getEntryAsync(username).thenApply(entry -> entry == null ? null : entry.gists);
+    }
+
+    /**
+     * Serves the response body stored with the cache entry, so hits do no serialization work.
+     */
+    @Override
+    public CompletableFuture<GistBody> getGistBodyAsync(String username) {
+        return getEntryAsync(username).thenApply(entry -> entry == null ? GistBody.of(List.of()) : entry.body);
+    }
+
+    /**
+     * Serves the aggregates computed when the entry was stored.
+     */
+    @Override
+    public CompletableFuture<GistStats> getUserStatsAsync(String username) {
+        return getEntryAsync(username).thenApply(entry -> entry == null ? GistStats.of(List.of()) : entry.stats);
+    }
+
+    /**
+     * Looks up the positive entry for a username, loading it through the delegate on a miss.
+     * Completes with null if the delegate returned no list at all.
+     */
+    private CompletableFuture<Entry> getEntryAsync(String username) {
+        long now = clock.millis();
+        Entry cached = lookup(username, now);
+        if (cached != null) {
+            revalidateIfStale(username, cached, now);
+            try {
+                fromCache(cached);
+                return CompletableFuture.completedFuture(cached);
+            } catch (GitHubApiClient.UserNotFoundException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        misses.increment();
+        return delegate.getUserGistsAsync(username).handle((gists, error) -> {
+            if (error != null) {
+                Throwable cause = GistSource.unwrap(error);
+                if (cause instanceof GitHubApiClient.UserNotFoundException notFound) {
+                    rememberNotFound(username, notFound);
+                } else if (upstreamUnavailable(cause)) {
+                    Entry stale = staleEntry(username);
+                    if (stale != null) {
+                        return stale;
+                    }
+                }
+                throw new CompletionException(cause);
+            }
+            return gists == null ? null : rememberGists(username, gists);
+        });
+    }
+
+    /**
+     * @return True for failures that say nothing about the user, only that GitHub can't be reached right
+     *         now (CircuitBreakerGistSource.CircuitOpenException is an IOException too); stale data beats an error.
+     */
+    private static boolean upstreamUnavailable(Throwable error) {
+        return error instanceof GitHubApiClient.TooManyRequestsException || error instanceof IOException;
+    }
+
+    /**
+     * Starts a background refresh if {@code cached} has expired (it is then within the stale-while-revalidate window).
+     */
+    private void revalidateIfStale(String username, Entry cached, long now) {
+        if (cached.expiresAtMillis <= now) {
+            staleHits.increment();
+            refreshInBackground(username);
+        }
+    }
+
+    /**
+     * Reloads a username through the delegate without anyone waiting for the result.
+     * Failures keep the current entry, except "user not found", which replaces it.
+     */
+    private void refreshInBackground(String username) {
+        if (!refreshing.add(username)) {
+            return; // Already being refreshed
+        }
+        refreshes.increment();
+        CompletableFuture<List<Gist>> reload;
+        try {
+            reload = RateLimitScheduler.withPriority(RateLimitScheduler.Priority.BACKGROUND,
+                    () -> delegate.getUserGistsAsync(username));
+        } catch (RuntimeException e) {
+            reload = CompletableFuture.failedFuture(e);
+        }
+        reload.whenComplete((gists, error) -> {
+            try {
+                if (error == null && gists != null) {
+                    rememberGists(username, gists);
+                } else if (GistSource.unwrap(error) instanceof GitHubApiClient.UserNotFoundException notFound) {
+                    rememberNotFound(username, notFound);
+                }
+            } finally {
+                refreshing.remove(username);
+            }
+        });
+    }
+
+    /**
+     * Refreshes the {@code topN} most requested usernames (by recent frequency) whose entries expire
+     * within {@code ahead}. Meant to be called periodically, see {@link #refreshHotEntriesEvery}.
+     *
+     * @return The usernames a refresh was started for.
+     */
+    public List<String> refreshHotEntries(int topN, Duration ahead) {
+        long refreshBefore = clock.millis() + ahead.toMillis();
+        List<String> due = new ArrayList<>();
+        synchronized (this) {
+            // Min-heap on frequency holding the topN most requested cached usernames
+            PriorityQueue<Map.Entry<String, Integer>> hottest = new PriorityQueue<>(Map.Entry.comparingByValue());
+            for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+                if (cached.getValue().notFoundMessage != null) {
+                    continue;
+                }
+                int frequency = popularity.frequency(cached.getKey());
+                if (frequency > 0) {
+                    hottest.add(Map.entry(cached.getKey(), frequency));
+                    if (hottest.size() > topN) {
+                        hottest.poll();
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> hot : hottest) {
+                Entry entry = entries.get(hot.getKey()); // Counts as an access, keeping hot entries away from LRU eviction
+                if (entry.expiresAtMillis <= refreshBefore) {
+                    due.add(hot.getKey());
+                }
+            }
+        }
+        due.forEach(this::refreshInBackground);
+        return due;
+    }
+
+    /**
+     * Runs {@link #refreshHotEntries} every {@code period} on the given scheduler, refreshing entries
+     * that would expire before the run after next.
+     *
+     * @return The scheduled task, to cancel it.
+     */
+    public ScheduledFuture<?> refreshHotEntriesEvery(ScheduledExecutorService scheduler, Duration period, int topN) {
+        Duration ahead = period.multipliedBy(2);
+        return scheduler.scheduleAtFixedRate(() -> {
+            try {
+                refreshHotEntries(topN, ahead);
+            } catch (RuntimeException e) {
+                // Keep the schedule alive; the next run tries again
+                System.err.println("Hot entry refresh failed: " + e.getMessage());
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private List<Gist> fromCache(Entry cached) throws GitHubApiClient.UserNotFoundException {
+        if (cached.notFoundMessage != null) {
+            negativeHits.increment();
+            throw new GitHubApiClient.UserNotFoundException(cached.notFoundMessage);
+        }
+        hits.increment();
+        return cached.gists;
+    }
+
+    private void rememberNotFound(String username, GitHubApiClient.UserNotFoundException e) {
+        if (negativeTtlMillis > 0) {
+            store(username, new Entry(null, null, null, e.getMessage(), clock.millis() + negativeTtlMillis, NEGATIVE_ENTRY_BYTES));
+        }
+    }
+
+    /**
+     * Builds the entry for a freshly loaded list, serializing its response body and computing its
+     * aggregates once, and stores it.
+     */
+    private Entry rememberGists(String username, List<Gist> gists) {
+        GistBody body = GistBody.of(gists);
+        GistStats stats = GistStats.of(gists);
+        CompactGists compact = CompactGists.of(gists); // The parsed objects themselves aren't kept
+        Entry entry = new Entry(compact, body, stats, null, clock.millis() + ttlMillis,
+                entryBytes(username, compact) + body.retainedBytes() + stats.retainedBytes());
+        if (ttlMillis > 0) {
+            store(username, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Drops any cached result for the given username.
+     */
+    public synchronized void invalidate(String username) {
+        Entry removed = entries.remove(username);
+        if (removed != null) {
+            currentBytes -= removed.bytes;
+        }
+    }
+
+    /**
+     * @return A point-in-time snapshot of the cache counters.
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum(), staleHits.sum(),
+                refreshes.sum(), entries.size(), currentBytes);
+    }
+
+    /**
+     * @return The entry to serve: a fresh one, or a positive one within the stale-while-revalidate window.
+     */
+    private synchronized Entry lookup(String username, long now) {
+        popularity.increment(username);
+        Entry entry = entries.get(username);
+        if (entry == null || entry.expiresAtMillis > now) {
+            return entry;
+        }
+        boolean revalidating = entry.notFoundMessage == null && entry.expiresAtMillis + staleWhileRevalidateMillis > now;
+        return revalidating ? entry : null;
+    }
+
+    /**
+     * Returns what the cache holds for a username, even if it has expired, without loading, refreshing
+     * or counting anything. Used to answer requests that admission control turns away.
+     *
+     * @return The cached gists, or null if there is no positive entry.
+     */
+    public synchronized List<Gist> peek(String username) {
+        Entry entry = entries.get(username);
+        return entry == null ? null : entry.gists;
+    }
+
+    /**
+     * Like {@link #peek(String)}, but returns the cached response body.
+     */
+    public synchronized GistBody peekBody(String username) {
+        Entry entry = entries.get(username);
+        return entry == null ? null : entry.body;
+    }
+
+    /**
+     * Like {@link #peek(String)}, but returns the cached aggregates.
+     */
+    public synchronized GistStats peekStats(String username) {
+        Entry entry = entries.get(username);
+        return entry == null ? null : entry.stats;
+    }
+
+    /**
+     * @return The positive entry held for a username even if it has expired, or null.
+     *         Expired entries stay in the map until they are replaced or evicted.
+     */
+    private synchronized Entry staleEntry(String username) {
+        Entry entry = entries.get(username);
+        if (entry == null || entry.notFoundMessage != null) {
+            return null;
+        }
+        staleHits.increment();
+        return entry;
+    }
+
+    private synchronized void store(String username, Entry entry) {
+        if (entry.bytes > maxBytes) {
+            return; // A single entry larger than the whole budget would just evict everything else
+        }
+        Entry previous = entries.put(username, entry);
+        if (previous != null) {
+            currentBytes -= previous.bytes;
+        }
+        currentBytes += entry.bytes;
+
+        Iterator<Map.Entry<String, Entry>> lru = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || currentBytes > maxBytes) && lru.hasNext()) {
+            Entry evicted = lru.next().getValue();
+            lru.remove();
+            currentBytes -= evicted.bytes;
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Estimates the heap retained by a cached gist list (excluding its serialized body). This doesn't
+     * need to be exact, it only has to scale with the payload so that the byte budget means something.
+     */
+    static long estimateBytes(String username, List<Gist> gists) {
+        return entryBytes(username, CompactGists.of(gists));
+    }
+
+    private static long entryBytes(String username, CompactGists gists) {
+        return 64 + stringBytes(username) + gists.retainedBytes();
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+
+    private static final class Entry {
+        final List<Gist> gists;        // CompactGists; null for negative entries
+        final GistBody body;           // serialized gists; null for negative entries
+        final GistStats stats;         // aggregates over gists; null for negative entries
+        final String notFoundMessage;  // non-null for negative entries
+        final long expiresAtMillis;
+        final long bytes;
+
+        Entry(List<Gist> gists, GistBody body, GistStats stats, String notFoundMessage, long expiresAtMillis, long bytes) {
+            this.gists = gists;
+            this.body = body;
+            this.stats = stats;
+            this.notFoundMessage = notFoundMessage;
+            this.expiresAtMillis = expiresAtMillis;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Snapshot of the cache counters, serialized as-is by the /_cache endpoint.
+     */
+    public record CacheStats(long hits, long negativeHits, long misses, long evictions, long staleHits, long refreshes,
+                             int entries, long bytes) {
+        public double hitRate() {
+            long lookups = hits + negativeHits + misses;
+            return lookups == 0 ? 0.0 : (double) (hits + negativeHits) / lookups;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+// CircuitBreakerGistSource.java
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker in front of another GistSource (normally GitHubApiClient).
+ *
+ * While GitHub is healthy the circuit is CLOSED and every call goes through. The outcomes of the
+ * last {@code windowSize} calls are kept; once at least {@code minimumCalls} of them are known and the
+ * share of failures reaches {@code failureRateThreshold}, the circuit OPENS: calls fail at once with
+ * {@link CircuitOpenException} instead of tying up a thread until the socket times out, and the cache
+ * in front answers from stale entries where it has them. After {@code openDuration} the circuit is
+ * HALF_OPEN and lets {@code halfOpenProbes} calls through: if they all succeed it closes again, and if
+ * one fails it opens for another {@code openDuration}.
+ *
+ * Only transport errors, timeouts and 5xx answers count as failures. "User not found" and other 4xx
+ * answers are healthy answers from GitHub and count as successes. Rate limiting
+ * (TooManyRequestsException) is left to RateLimitScheduler, and anything else (a malformed username,
+ * a bug) says nothing about GitHub's health: those count as neither, so clients can't open the circuit.
+ */
+public class CircuitBreakerGistSource implements GistSource {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final GistSource delegate;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final LongSupplier nanoTime;
+
+    // Guarded by 'this'
+    private final boolean[] window; // true = failure, as a ring of the last windowSize outcomes
+    private int windowNext;
+    private int windowFilled;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int probesStarted;
+    private int probesSucceeded;
+    private long generation; // Bumped on every state change, so late outcomes of older calls are ignored
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    /**
+     * @param delegate The GistSource to protect.
+     * @param windowSize How many recent outcomes the failure rate is computed over.
+     * @param minimumCalls Outcomes needed in the window before the circuit may open.
+     * @param failureRateThreshold Share of failures (0 to 1) that opens the circuit.
+     * @param openDuration How long the circuit stays open before probing GitHub again.
+     * @param halfOpenProbes Calls let through while half-open; all must succeed to close the circuit.
+     */
+    public CircuitBreakerGistSource(GistSource delegate, int windowSize, int minimumCalls, double failureRateThreshold,
+                                    Duration openDuration, int halfOpenProbes) {
+        this(delegate, windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenProbes, System::nanoTime);
+    }
+
+    /**
+     * Same as the public constructor but with an explicit time source, so tests can move time forward.
+     */
+    CircuitBreakerGistSource(GistSource delegate, int windowSize, int minimumCalls, double failureRateThreshold,
+                             Duration openDuration, int halfOpenProbes, LongSupplier nanoTime) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || halfOpenProbes < 1
+                || failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("Need 1 <= minimumCalls <= windowSize, halfOpenProbes >= 1 and 0 < failureRateThreshold <= 1");
+        }
+        this.delegate = delegate;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public List<Gist> getUserGists(String username) throws Exception {
+        long permit = acquirePermission();
+        try {
+            List<Gist> gists = delegate.getUserGists(username);
+            record(permit, null);
+            return gists;
+        } catch (Throwable t) {
+            record(permit, t);
+            throw t;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+        long permit;
+        try {
+            permit = acquirePermission();
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<List<Gist>> call;
+        try {
+            call = delegate.getUserGistsAsync(username);
+        } catch (Throwable t) {
+            call = CompletableFuture.failedFuture(t);
+        }
+        return call.whenComplete((gists, error) -> record(permit, error == null ? null : GistSource.unwrap(error)));
+    }
+
+    /**
+     * @return The current state (an open circuit whose open period has passed still reads OPEN until the next call).
+     */
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return A point-in-time snapshot of the breaker's state and counters.
+     */
+    public synchronized CircuitStats stats() {
+        return new CircuitStats(state, windowFilled, windowFailures, rejected.sum(), opened.sum());
+    }
+
+    /**
+     * Decides whether a call may go upstream.
+     *
+     * @return The generation the call belongs to, to be passed back to {@link #record}.
+     * @throws CircuitOpenException If the circuit is open (or half-open with all probes taken).
+     */
+    private synchronized long acquirePermission() throws CircuitOpenException {
+        if (state == State.OPEN) {
+            long remaining = openedAtNanos + openNanos - nanoTime.getAsLong();
+            if (remaining > 0) {
+                rejected.increment();
+                throw new CircuitOpenException("GitHub API is unavailable, not calling it for a while.",
+                        Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + 999_999_999L)));
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= halfOpenProbes) {
+                rejected.increment();
+                throw new CircuitOpenException("GitHub API is being probed, not calling it until it has recovered.", 1);
+            }
+            probesStarted++;
+        }
+        return generation;
+    }
+
+    /**
+     * Records the outcome of a call started in {@code permit}'s generation.
+     *
+     * @param error The call's exception, or null on success.
+     */
+    private synchronized void record(long permit, Throwable error) {
+        if (permit != generation) {
+            return; // Started before the last state change; its outcome says nothing about the current state
+        }
+        if (error != null && !isUpstreamFailure(error) && !isUpstreamAnswer(error)) {
+            if (state == State.HALF_OPEN) {
+                probesStarted--; // Not an answer about GitHub's health; let another probe through
+            }
+            return;
+        }
+        boolean failure = error != null && isUpstreamFailure(error);
+        if (state == State.HALF_OPEN) {
+            if (failure) {
+                transition(State.OPEN);
+            } else if (++probesSucceeded >= halfOpenProbes) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+
+        if (windowFilled == window.length) {
+            windowFailures -= window[windowNext] ? 1 : 0; // Drop the oldest outcome
+        } else {
+            windowFilled++;
+        }
+        window[windowNext] = failure;
+        windowFailures += failure ? 1 : 0;
+        windowNext = (windowNext + 1) % window.length;
+        if (windowFilled >= minimumCalls && windowFailures >= failureRateThreshold * windowFilled) {
+            transition(State.OPEN);
+        }
+    }
+
+    /**
+     * @return Whether the error shows GitHub is unhealthy: a transport error, a timeout or a 5xx answer.
+     */
+    private static boolean isUpstreamFailure(Throwable error) {
+        if (error instanceof GitHubApiClient.UpstreamStatusException status) {
+            return status.statusCode() >= 500;
+        }
+        return error instanceof IOException;
+    }
+
+    /**
+     * @return Whether the error is GitHub answering normally, e.g. 404 for an unknown user.
+     */
+    private static boolean isUpstreamAnswer(Throwable error) {
+        return error instanceof GitHubApiClient.UserNotFoundException
+                || error instanceof GitHubApiClient.UpstreamStatusException;
+    }
+
+    private void transition(State next) {
+        state = next;
+        generation++;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAtNanos = nanoTime.getAsLong();
+            opened.increment();
+        } else if (next == State.CLOSED) {
+            windowNext = 0;
+            windowFilled = 0;
+            windowFailures = 0; // Start afresh rather than reopen on the failures that opened it
+        }
+    }
+
+    /**
+     * Thrown (or used to fail futures) instead of calling GitHub while the circuit is open.
+     * It is an IOException, as the call never reached GitHub, and carries a hint for Retry-After.
+     */
+    public static class CircuitOpenException extends IOException {
+        private final long retryAfterSeconds;
+
+        public CircuitOpenException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        /**
+         * @return Seconds until the circuit will next let a call through.
+         */
+        public long retryAfterSeconds() { return retryAfterSeconds; }
+    }
+
+    /**
+     * Snapshot of the breaker, reported on /metrics.
+     */
+    public record CircuitStats(State state, int windowCalls, int windowFailures, long rejected, long opened) {
+    }
+}
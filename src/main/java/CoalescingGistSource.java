@@ -0,0 +1,98 @@
+// CoalescingGistSource.java
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapses concurrent lookups of the same username into a single upstream call ("single-flight").
+ *
+ * The first caller for a username becomes the leader and calls the delegate; callers arriving
+ * while that call is in flight wait for the same result (or exception) instead of issuing their own.
+ * Sync and async callers share the same in-flight map, so either kind can join the other's call.
+ * Once the call finishes the key is released, so later lookups go upstream again (or, more usually,
+ * hit the cache sitting in front of this class).
+ */
+public class CoalescingGistSource implements GistSource {
+
+    private final GistSource delegate;
+    private final ConcurrentHashMap<String, CompletableFuture<List<Gist>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CoalescingGistSource(GistSource delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<Gist> getUserGists(String username) throws Exception {
+        CompletableFuture<List<Gist>> ours = new CompletableFuture<>();
+        CompletableFuture<List<Gist>> existing = inFlight.putIfAbsent(username, ours);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            List<Gist> gists = delegate.getUserGists(username);
+            ours.complete(gists);
+            return gists;
+        } catch (Throwable t) {
+            ours.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(username, ours);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+        CompletableFuture<List<Gist>> ours = new CompletableFuture<>();
+        CompletableFuture<List<Gist>> existing = inFlight.putIfAbsent(username, ours);
+        if (existing != null) {
+            coalesced.increment();
+            return existing; // Joining callers don't hold a thread while they wait
+        }
+
+        CompletableFuture<List<Gist>> call;
+        try {
+            call = delegate.getUserGistsAsync(username);
+        } catch (Throwable t) {
+            // A synchronous throw must still release the key, or later callers would join a future that never completes
+            inFlight.remove(username, ours);
+            ours.completeExceptionally(t);
+            return ours;
+        }
+        call.whenComplete((gists, error) -> {
+            inFlight.remove(username, ours);
+            if (error != null) {
+                ours.completeExceptionally(GistSource.unwrap(error));
+            } else {
+                ours.complete(gists);
+            }
+        });
+        return ours;
+    }
+
+    /**
+     * @return How many lookups were served by joining another caller's in-flight request.
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    private static List<Gist> await(CompletableFuture<List<Gist>> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause; // Re-throw the leader's exception so error mapping stays the same
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
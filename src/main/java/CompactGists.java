@@ -0,0 +1,422 @@
+// CompactGists.java
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A user's gist list packed into flat arrays, the form CachingGitHubApiClient keeps in memory.
+ *
+ * A parsed gist list is mostly small objects and repeated strings: a HashMap and GistFile per file,
+ * URLs that only differ by id, the same handful of types and languages, ISO timestamps. Here:
+ * <ul>
+ *   <li>ids (lowercase hex, as GitHub issues them) are packed 4 bits per character into two longs;</li>
+ *   <li>{@code url} is derived from the id and {@code created_at} is stored as epoch seconds;</li>
+ *   <li>file types and languages become int codes into a small per-list dictionary of interned strings;</li>
+ *   <li>{@code raw_url} of the usual form {@code <prefix>/<owner>/<id>/raw/<sha>/<file name>} becomes an
+ *       owner code plus the 40-digit revision sha packed into three longs; other shapes keep only the
+ *       part between the common prefix and the trailing file name.</li>
+ * </ul>
+ * Anything that doesn't fit those shapes is kept verbatim in an overflow array that is only allocated
+ * when needed, so every value round-trips exactly (only a null GistFile in a files map comes back as an
+ * empty GistFile).
+ *
+ * The list is read-only. {@link #get(int)} decodes a fresh Gist (with its GistFile map), so callers keep
+ * using the Gist/GistFile API, and changes they make to those copies never reach the cache. Hot paths
+ * that only need a few fields (stats, projections, search, contents) read them through the package-private
+ * column accessors instead, which don't allocate Gist or GistFile objects.
+ * Instances are immutable and safe to share between threads.
+ */
+final class CompactGists extends AbstractList<Gist> implements RandomAccess {
+
+    // Gist urls are always api.github.com ones when the list comes from GitHub itself. With another
+    // GIST_UPSTREAM_BASE_URL (GitHub Enterprise, a stub) they just don't match and go to otherUrls,
+    // which costs memory but never changes a value.
+    static final String GIST_URL_PREFIX = "https://api.github.com/gists/";
+    static final String RAW_URL_PREFIX = "https://gist.githubusercontent.com/";
+    private static final long NO_TIME = Long.MIN_VALUE;
+    // Overflow value meaning "this field was null"; compared by identity, so no real value can collide
+    @SuppressWarnings("StringOperationCanBeSimplified")
+    private static final String MISSING = new String("");
+
+    // How raw_url is rebuilt from rawUrlPaths
+    private static final byte RAW_NULL = 0;
+    private static final byte RAW_PREFIX_PATH_FILENAME = 1; // RAW_URL_PREFIX + path + "/" + key
+    private static final byte RAW_PREFIX_PATH = 2;          // RAW_URL_PREFIX + path
+    private static final byte RAW_VERBATIM = 3;             // path is the whole URL
+    private static final byte RAW_REVISION = 4;             // RAW_URL_PREFIX + owner + "/" + id + "/raw/" + sha + "/" + key
+    private static final int SHA_DIGITS = 40;
+
+    private final int size;
+
+    // Per gist
+    private final long[] idBits;           // two longs per gist holding up to 32 hex digits
+    private final byte[] idLength;         // hex digits in the id, or 0 if it's held in otherIds
+    private final String[] otherIds;       // ids that aren't lowercase hex; null if there are none
+    private final String[] descriptions;
+    private final String[] otherUrls;      // urls that aren't GIST_URL_PREFIX + id; null if there are none
+    private final long[] createdAtSeconds; // NO_TIME if null or held in otherCreatedAt
+    private final String[] otherCreatedAt; // timestamps that aren't canonical ISO instants; null if there are none
+    private final int[] fileStart;         // files of gist i are [fileStart[i], fileStart[i + 1]); -1 marks a null map
+
+    // Per file
+    private final String[] fileKeys;
+    private final String[] otherFilenames; // filename fields that differ from their key; null if there are none
+    private final int[] typeCodes;
+    private final int[] languageCodes;
+    private final long[] sizes;
+    private final byte[] rawUrlForms;
+    private final String[] rawUrlPaths;    // null for RAW_REVISION
+    private final int[] rawOwnerCodes;     // RAW_REVISION only
+    private final long[] rawShaBits;       // RAW_REVISION only: three longs per file
+
+    private final String[] dictionary;     // Types, languages and raw_url owners; code 0 is null
+
+    private CompactGists(List<Gist> gists) {
+        size = gists.size();
+        int files = 0;
+        for (Gist gist : gists) {
+            files += gist.getFiles() == null ? 0 : gist.getFiles().size();
+        }
+
+        idBits = new long[size * 2];
+        idLength = new byte[size];
+        descriptions = new String[size];
+        createdAtSeconds = new long[size];
+        fileStart = new int[size + 1];
+        fileKeys = new String[files];
+        typeCodes = new int[files];
+        languageCodes = new int[files];
+        sizes = new long[files];
+        rawUrlForms = new byte[files];
+        rawUrlPaths = new String[files];
+        rawOwnerCodes = new int[files];
+        rawShaBits = new long[files * 3];
+
+        String[] otherIds = null;
+        String[] otherUrls = null;
+        String[] otherCreatedAt = null;
+        String[] otherFilenames = null;
+        Map<String, Integer> codes = new HashMap<>();
+        codes.put(null, 0);
+
+        int file = 0;
+        for (int i = 0; i < size; i++) {
+            Gist gist = gists.get(i);
+            String id = gist.getId();
+            if (!packId(i, id)) {
+                otherIds = orNew(otherIds, size);
+                otherIds[i] = id;
+            }
+            descriptions[i] = gist.getDescription();
+            if (gist.getUrl() != null && !(id != null && gist.getUrl().equals(GIST_URL_PREFIX + id))) {
+                otherUrls = orNew(otherUrls, size);
+                otherUrls[i] = gist.getUrl();
+            } else if (gist.getUrl() == null && id != null) {
+                otherUrls = orNew(otherUrls, size); // A missing url must stay missing
+                otherUrls[i] = MISSING;
+            }
+            createdAtSeconds[i] = epochSeconds(gist.getCreatedAt());
+            if (createdAtSeconds[i] == NO_TIME && gist.getCreatedAt() != null) {
+                otherCreatedAt = orNew(otherCreatedAt, size);
+                otherCreatedAt[i] = gist.getCreatedAt();
+            }
+
+            fileStart[i] = gist.getFiles() == null ? -1 : file;
+            if (gist.getFiles() != null) {
+                for (Map.Entry<String, GistFile> entry : gist.getFiles().entrySet()) {
+                    String key = entry.getKey();
+                    GistFile f = entry.getValue() == null ? new GistFile() : entry.getValue();
+                    fileKeys[file] = key;
+                    if (f.getFilename() == null || !f.getFilename().equals(key)) {
+                        otherFilenames = orNew(otherFilenames, files);
+                        otherFilenames[file] = f.getFilename() == null ? MISSING : f.getFilename();
+                    }
+                    typeCodes[file] = codes.computeIfAbsent(f.getType(), value -> codes.size());
+                    languageCodes[file] = codes.computeIfAbsent(f.getLanguage(), value -> codes.size());
+                    sizes[file] = f.getSize();
+                    packRawUrl(file, key, f.getRawUrl(), id, codes);
+                    file++;
+                }
+            }
+        }
+        fileStart[size] = file;
+
+        this.otherIds = otherIds;
+        this.otherUrls = otherUrls;
+        this.otherCreatedAt = otherCreatedAt;
+        this.otherFilenames = otherFilenames;
+        dictionary = new String[codes.size()];
+        for (Map.Entry<String, Integer> code : codes.entrySet()) {
+            // Interned so every cached list shares one "text/plain", one "Java", ...
+            dictionary[code.getValue()] = code.getKey() == null ? null : code.getKey().intern();
+        }
+    }
+
+    /**
+     * Packs a gist list. The list and its Gist objects are not referenced afterwards.
+     */
+    static CompactGists of(List<Gist> gists) {
+        return gists instanceof CompactGists compact ? compact : new CompactGists(gists);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decodes the gist at the given index into a new Gist object.
+     */
+    @Override
+    public Gist get(int index) {
+        return get(index, true);
+    }
+
+    /**
+     * Decodes the gist at the given index, leaving out the files map (which is most of the work) unless asked for.
+     */
+    Gist get(int index, boolean withFiles) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        Gist gist = new Gist();
+        String id = id(index);
+        gist.setId(id);
+        gist.setDescription(descriptions[index]);
+        gist.setUrl(url(index, id));
+        gist.setCreatedAt(createdAt(index));
+
+        if (withFiles && hasFiles(index)) {
+            int end = filesEnd(index);
+            Map<String, GistFile> files = new LinkedHashMap<>();
+            for (int file = fileStart[index]; file < end; file++) {
+                files.put(fileKeys[file], file(file, id));
+            }
+            gist.setFiles(files);
+        }
+        return gist;
+    }
+
+    String id(int index) {
+        int length = idLength[index];
+        if (length == 0) {
+            return otherIds == null ? null : otherIds[index];
+        }
+        return unpackHex(idBits, index * 2, length);
+    }
+
+    String description(int index) {
+        return descriptions[index];
+    }
+
+    String createdAt(int index) {
+        if (createdAtSeconds[index] != NO_TIME) {
+            return Instant.ofEpochSecond(createdAtSeconds[index]).toString();
+        }
+        return otherCreatedAt == null ? null : otherCreatedAt[index];
+    }
+
+    /**
+     * @return The creation time, or null if it is missing or not a valid ISO instant.
+     */
+    Instant createdInstant(int index) {
+        if (createdAtSeconds[index] != NO_TIME) {
+            return Instant.ofEpochSecond(createdAtSeconds[index]);
+        }
+        String other = otherCreatedAt == null ? null : otherCreatedAt[index];
+        try {
+            return other == null ? null : Instant.parse(other);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return False if the gist's files map is null; its files are then the empty range.
+     */
+    boolean hasFiles(int index) {
+        return fileStart[index] >= 0;
+    }
+
+    /**
+     * @return The first file index of the gist (use with {@link #filesEnd}); only valid if {@link #hasFiles}.
+     */
+    int filesStart(int index) {
+        return fileStart[index];
+    }
+
+    /**
+     * @return One past the last file index of the gist.
+     */
+    int filesEnd(int index) {
+        for (int next = index + 1; next <= size; next++) {
+            if (fileStart[next] >= 0) {
+                return fileStart[next];
+            }
+        }
+        return fileStart[size];
+    }
+
+    String fileKey(int file) {
+        return fileKeys[file];
+    }
+
+    String fileLanguage(int file) {
+        return dictionary[languageCodes[file]];
+    }
+
+    long fileSize(int file) {
+        return sizes[file];
+    }
+
+    String fileRawUrl(int file, String gistId) {
+        String key = fileKeys[file];
+        return switch (rawUrlForms[file]) {
+            case RAW_PREFIX_PATH_FILENAME -> RAW_URL_PREFIX + rawUrlPaths[file] + "/" + key;
+            case RAW_PREFIX_PATH -> RAW_URL_PREFIX + rawUrlPaths[file];
+            case RAW_VERBATIM -> rawUrlPaths[file];
+            case RAW_REVISION -> RAW_URL_PREFIX + dictionary[rawOwnerCodes[file]] + "/" + gistId + "/raw/"
+                    + unpackHex(rawShaBits, file * 3, SHA_DIGITS) + "/" + key;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return Approximate heap retained by this list, used for cache size accounting.
+     */
+    long retainedBytes() {
+        int files = fileKeys.length;
+        long bytes = 96 // This object and its fields
+                + arrayBytes(size * 2, 8) + arrayBytes(size, 1) + arrayBytes(size, 8) + arrayBytes(size + 1, 4)
+                + arrayBytes(files, 4) * 3 + arrayBytes(files, 8) + arrayBytes(files, 1) + arrayBytes(files * 3, 8)
+                + stringsBytes(otherIds) + stringsBytes(descriptions) + stringsBytes(otherUrls)
+                + stringsBytes(otherCreatedAt) + stringsBytes(fileKeys) + stringsBytes(otherFilenames)
+                + stringsBytes(rawUrlPaths);
+        return bytes + stringsBytes(dictionary);
+    }
+
+    private GistFile file(int file, String gistId) {
+        GistFile f = new GistFile();
+        String key = fileKeys[file];
+        String otherFilename = otherFilenames == null ? null : otherFilenames[file];
+        f.setFilename(otherFilename == null ? key : (otherFilename == MISSING ? null : otherFilename));
+        f.setType(dictionary[typeCodes[file]]);
+        f.setLanguage(fileLanguage(file));
+        f.setSize(sizes[file]);
+        f.setRawUrl(fileRawUrl(file, gistId));
+        return f;
+    }
+
+    private String url(int index, String id) {
+        String otherUrl = otherUrls == null ? null : otherUrls[index];
+        return otherUrl != null ? (otherUrl == MISSING ? null : otherUrl) : (id == null ? null : GIST_URL_PREFIX + id);
+    }
+
+    /**
+     * Stores a lowercase hex id of up to 32 digits in idBits.
+     *
+     * @return False if the id has another shape and must be stored as a String.
+     */
+    private boolean packId(int index, String id) {
+        if (id == null || id.isEmpty() || !packHex(id, idBits, index * 2, 2)) {
+            return false;
+        }
+        idLength[index] = (byte) id.length();
+        return true;
+    }
+
+    private void packRawUrl(int file, String key, String rawUrl, String gistId, Map<String, Integer> codes) {
+        if (rawUrl == null) {
+            rawUrlForms[file] = RAW_NULL;
+        } else if (!rawUrl.startsWith(RAW_URL_PREFIX)) {
+            rawUrlForms[file] = RAW_VERBATIM;
+            rawUrlPaths[file] = rawUrl;
+        } else if (key != null && rawUrl.endsWith("/" + key)) {
+            String path = rawUrl.substring(RAW_URL_PREFIX.length(), rawUrl.length() - key.length() - 1);
+            // The usual shape: <owner>/<gist id>/raw/<40 hex digit revision>
+            String revisionPath = gistId == null ? null : "/" + gistId + "/raw/";
+            int owner = revisionPath == null ? -1 : path.indexOf(revisionPath);
+            if (owner > 0 && path.indexOf('/') == owner && path.length() == owner + revisionPath.length() + SHA_DIGITS
+                    && packHex(path.substring(owner + revisionPath.length()), rawShaBits, file * 3, 3)) {
+                rawUrlForms[file] = RAW_REVISION;
+                rawOwnerCodes[file] = codes.computeIfAbsent(path.substring(0, owner), value -> codes.size());
+            } else {
+                rawUrlForms[file] = RAW_PREFIX_PATH_FILENAME;
+                rawUrlPaths[file] = path;
+            }
+        } else {
+            rawUrlForms[file] = RAW_PREFIX_PATH;
+            rawUrlPaths[file] = rawUrl.substring(RAW_URL_PREFIX.length());
+        }
+    }
+
+    /**
+     * Packs lowercase hex digits 4 bits each into {@code words} longs starting at {@code offset}.
+     *
+     * @return False (leaving the longs untouched) if the value isn't lowercase hex or doesn't fit.
+     */
+    private static boolean packHex(String hex, long[] into, int offset, int words) {
+        if (hex.length() > words * 16) {
+            return false;
+        }
+        long[] packed = new long[words];
+        for (int k = 0; k < hex.length(); k++) {
+            char c = hex.charAt(k);
+            int digit = c >= '0' && c <= '9' ? c - '0' : (c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1);
+            if (digit < 0) {
+                return false;
+            }
+            packed[k / 16] |= (long) digit << ((15 - k % 16) * 4);
+        }
+        System.arraycopy(packed, 0, into, offset, words);
+        return true;
+    }
+
+    private static String unpackHex(long[] from, int offset, int length) {
+        char[] digits = new char[length];
+        for (int k = 0; k < length; k++) {
+            digits[k] = Character.forDigit((int) (from[offset + k / 16] >>> ((15 - k % 16) * 4)) & 0xf, 16);
+        }
+        return new String(digits);
+    }
+
+    /**
+     * @return Epoch seconds for a canonical ISO instant such as 2010-04-14T02:15:15Z, or NO_TIME if
+     *         the value is missing or wouldn't print back identically.
+     */
+    private static long epochSeconds(String createdAt) {
+        if (createdAt == null) {
+            return NO_TIME;
+        }
+        try {
+            Instant instant = Instant.parse(createdAt);
+            return instant.getNano() == 0 && instant.toString().equals(createdAt) ? instant.getEpochSecond() : NO_TIME;
+        } catch (DateTimeParseException e) {
+            return NO_TIME;
+        }
+    }
+
+    private static String[] orNew(String[] array, int length) {
+        return array != null ? array : new String[length];
+    }
+
+    private static long arrayBytes(int length, int elementBytes) {
+        return 16 + (long) length * elementBytes;
+    }
+
+    private static long stringsBytes(String[] strings) {
+        if (strings == null) {
+            return 0;
+        }
+        long bytes = arrayBytes(strings.length, 4);
+        for (String s : strings) {
+            bytes += s == null ? 0 : 40 + s.length();
+        }
+        return bytes;
+    }
+}
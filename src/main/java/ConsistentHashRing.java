@@ -0,0 +1,88 @@
+// ConsistentHashRing.java
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Assigns keys (usernames) to nodes (replica base URLs) with consistent hashing.
+ *
+ * Every node is placed on a 64-bit ring at {@code virtualNodes} pseudo-random points; a key belongs to
+ * the node owning the first point at or after the key's hash. Adding or removing a node only moves the
+ * keys between that node's points and their predecessors (about 1/n of them), and the virtual nodes
+ * even out the share each node gets. The hash is computed from the UTF-8 bytes, so every replica
+ * configured with the same node list agrees on the owners.
+ *
+ * The points are kept in two parallel sorted arrays, so a lookup is one binary search. Instances are
+ * immutable and safe to share between threads.
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> nodes;
+    private final long[] points;   // sorted hashes of all virtual nodes
+    private final int[] pointNode; // index into nodes for each point
+
+    /**
+     * @param nodes The nodes on the ring; duplicates are ignored.
+     * @param virtualNodes Points per node; 100 or more keep the shares within a few percent.
+     */
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        this.nodes = List.copyOf(new LinkedHashSet<>(nodes));
+        int count = this.nodes.size() * virtualNodes;
+        long[] unsorted = new long[count];
+        for (int node = 0; node < this.nodes.size(); node++) {
+            for (int replica = 0; replica < virtualNodes; replica++) {
+                unsorted[node * virtualNodes + replica] = hash(this.nodes.get(node) + "#" + replica);
+            }
+        }
+        // Sort the points and carry their node along (by sorting indices on the hash)
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(unsorted[a], unsorted[b]));
+        points = new long[count];
+        pointNode = new int[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = unsorted[order[i]];
+            pointNode[i] = order[i] / virtualNodes;
+        }
+    }
+
+    /**
+     * @return The node responsible for {@code key}.
+     */
+    public String owner(String key) {
+        int found = Arrays.binarySearch(points, hash(key));
+        int point = found >= 0 ? found : -found - 1;
+        return nodes.get(pointNode[point == points.length ? 0 : point]); // Past the last point wraps to the first
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with MurmurHash3's fmix64 so that similar strings
+     * (user-1, user-2, node#1, node#2) land far apart on the ring.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,168 @@
+// DiskCachingGistSource.java
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A persistent cache tier that sits between the in-memory cache and GitHub.
+ *
+ * Every list loaded from the delegate is written through, as JSON, to a memory-mapped SegmentFile.
+ * Lookups for user requests are answered from the file while the record is younger than {@code ttl},
+ * so after a restart the in-memory cache is refilled from disk instead of from GitHub. Background
+ * refreshes (RateLimitScheduler.Priority.BACKGROUND) always go to the delegate, as their whole
+ * point is to fetch newer data. When the delegate is rate limited, an older record is served instead.
+ */
+public class DiskCachingGistSource implements GistSource, Closeable {
+
+    private static final Type GIST_LIST_TYPE = new TypeToken<List<Gist>>(){}.getType();
+    private static final Gson gson = new Gson();
+
+    private final GistSource delegate;
+    private final SegmentFile segment;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    /**
+     * Opens (or creates) the segment file at {@code path}; its index is rebuilt before this returns.
+     *
+     * @param delegate The GistSource to load from when the disk has no fresh record.
+     * @param path The segment file.
+     * @param maxBytes Maximum size of the segment file (capped at 2 GB).
+     * @param ttl How old a record may be to be served to user requests.
+     * @throws IOException If the file can't be opened.
+     */
+    public DiskCachingGistSource(GistSource delegate, Path path, long maxBytes, Duration ttl) throws IOException {
+        this(delegate, new SegmentFile(path, (int) Math.min(maxBytes, Integer.MAX_VALUE)), ttl, Clock.systemUTC());
+    }
+
+    /**
+     * Same as the public constructor but with an explicit segment and Clock, for tests.
+     */
+    DiskCachingGistSource(GistSource delegate, SegmentFile segment, Duration ttl, Clock clock) {
+        this.delegate = delegate;
+        this.segment = segment;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    @Override
+    public List<Gist> getUserGists(String username) throws Exception {
+        SegmentFile.Record stored = servable(username);
+        if (stored != null) {
+            return parse(stored);
+        }
+
+        misses.increment();
+        try {
+            return writeThrough(username, delegate.getUserGists(username));
+        } catch (GitHubApiClient.TooManyRequestsException e) {
+            List<Gist> fallback = fallback(username);
+            if (fallback == null) {
+                throw e;
+            }
+            return fallback;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+        SegmentFile.Record stored = servable(username);
+        if (stored != null) {
+            return CompletableFuture.completedFuture(parse(stored));
+        }
+
+        misses.increment();
+        return delegate.getUserGistsAsync(username).handle((gists, error) -> {
+            if (error == null) {
+                return writeThrough(username, gists);
+            }
+            Throwable cause = GistSource.unwrap(error);
+            List<Gist> fallback = cause instanceof GitHubApiClient.TooManyRequestsException ? fallback(username) : null;
+            if (fallback == null) {
+                throw new CompletionException(cause);
+            }
+            return fallback;
+        });
+    }
+
+    /**
+     * @return A point-in-time snapshot of the disk tier counters.
+     */
+    public DiskStats stats() {
+        return new DiskStats(hits.sum(), misses.sum(), writes.sum(), segment.size(), segment.usedBytes());
+    }
+
+    /**
+     * Flushes and closes the segment file.
+     */
+    @Override
+    public void close() throws IOException {
+        segment.close();
+    }
+
+    /**
+     * @return The stored record if it may answer this request, counted as a hit; otherwise null.
+     */
+    private SegmentFile.Record servable(String username) {
+        if (RateLimitScheduler.currentPriority() == RateLimitScheduler.Priority.BACKGROUND) {
+            return null;
+        }
+        SegmentFile.Record stored = segment.get(username);
+        if (stored == null || clock.millis() - stored.storedAtMillis() >= ttlMillis) {
+            return null;
+        }
+        hits.increment();
+        return stored;
+    }
+
+    /**
+     * @return Whatever is stored for the user regardless of age, or null.
+     */
+    private List<Gist> fallback(String username) {
+        SegmentFile.Record stored = segment.get(username);
+        if (stored == null) {
+            return null;
+        }
+        hits.increment();
+        return parse(stored);
+    }
+
+    private List<Gist> writeThrough(String username, List<Gist> gists) {
+        if (gists == null) {
+            return null;
+        }
+        try {
+            if (segment.put(username, clock.millis(), gson.toJson(gists, GIST_LIST_TYPE).getBytes(StandardCharsets.UTF_8))) {
+                writes.increment();
+            }
+        } catch (IOException e) {
+            // The disk tier is an optimisation; a failed write must not fail the request
+            System.err.println("Failed to write gists for " + username + " to disk cache: " + e.getMessage());
+        }
+        return gists;
+    }
+
+    private static List<Gist> parse(SegmentFile.Record stored) {
+        return gson.fromJson(new String(stored.value(), StandardCharsets.UTF_8), GIST_LIST_TYPE);
+    }
+
+    /**
+     * Snapshot of the disk tier counters.
+     */
+    public record DiskStats(long hits, long misses, long writes, int entries, long bytes) {
+    }
+}
@@ -0,0 +1,48 @@
+// ExecutorMode.java
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How GistServer runs its request handlers.
+ * Handlers block on the upstream GitHub call, so the mode decides how many requests can wait
+ * on GitHub at the same time.
+ */
+public enum ExecutorMode {
+
+    /** One virtual thread per request; blocked handlers don't hold on to a platform thread. */
+    VIRTUAL,
+
+    /** A fixed pool of platform threads; requests beyond the pool size wait in an unbounded queue. */
+    FIXED,
+
+    /** A ForkJoin work-stealing pool sized to the given parallelism. */
+    WORK_STEALING;
+
+    /**
+     * Creates the executor for this mode.
+     *
+     * @param threads Pool size for FIXED and parallelism for WORK_STEALING; ignored for VIRTUAL.
+     * @return A new ExecutorService.
+     */
+    public ExecutorService create(int threads) {
+        switch (this) {
+            case FIXED:
+                return Executors.newFixedThreadPool(threads);
+            case WORK_STEALING:
+                return Executors.newWorkStealingPool(threads);
+            case VIRTUAL:
+            default:
+                return Executors.newVirtualThreadPerTaskExecutor();
+        }
+    }
+
+    /**
+     * Parses a mode name such as "virtual", "fixed" or "work-stealing" (case-insensitive).
+     *
+     * @throws IllegalArgumentException If the name doesn't match any mode.
+     */
+    public static ExecutorMode parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
@@ -0,0 +1,97 @@
+// FrequencySketch.java
+
+/**
+ * Approximate popularity counter for cache keys (a count-min sketch with 4-bit counters, as used by
+ * TinyLFU). Each key is counted in four counters picked by different hashes and its frequency is the
+ * smallest of them, so hash collisions can only over-estimate. Sixteen counters are packed into each
+ * long, which keeps the sketch at about 2 bytes per tracked key.
+ *
+ * Counters saturate at 15 and are all halved every {@code 10 x capacity} increments, so the
+ * estimates follow recent popularity rather than all-time totals.
+ *
+ * Not thread-safe; CachingGitHubApiClient only uses it while holding its own lock.
+ */
+final class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L; // Clears each counter's top bit after a shift
+    private static final int[] SEEDS = {0x97cb3127, 0xb7e15162, 0x243f6a88, 0x85a308d3};
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedKeys Roughly how many distinct keys are worth telling apart (e.g. the cache size).
+     */
+    FrequencySketch(int expectedKeys) {
+        int size = Integer.highestOneBit(Math.max(16, Math.min(expectedKeys, 1 << 24)) - 1) << 1;
+        this.table = new long[size / 4]; // 4 counters per key, 16 counters per long
+        this.counterMask = size * 4 - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    /**
+     * Counts one more occurrence of the key.
+     */
+    void increment(String key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(indexOf(hash, i));
+        }
+        if (added && ++additions >= sampleSize) {
+            halve();
+        }
+    }
+
+    /**
+     * @return The estimated recent frequency of the key, between 0 and 15.
+     */
+    int frequency(String key) {
+        int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, counterAt(indexOf(hash, i)));
+        }
+        return frequency;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9E3779B9;
+        h ^= h >>> 16;
+        return h & counterMask;
+    }
+
+    private int counterAt(int counter) {
+        return (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 0xF);
+    }
+
+    private boolean incrementAt(int counter) {
+        int shift = (counter & 15) << 2;
+        long word = table[counter >>> 4];
+        if (((word >>> shift) & 0xF) == 0xF) {
+            return false; // Saturated
+        }
+        table[counter >>> 4] = word + (1L << shift);
+        return true;
+    }
+
+    /**
+     * Ages the sketch: every counter is halved, so old popularity fades out.
+     */
+    private void halve() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xed5ad4bb;
+        hash ^= hash >>> 11;
+        hash *= 0xac4c1b51;
+        return hash ^ (hash >>> 15);
+    }
+}
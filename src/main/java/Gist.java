@@ -1,12 +1,12 @@
 // Gist.java
-import com.google.gson.annotations.SerializedName;
+import com.google.gson.annotations.JsonAdapter;
 import java.util.Map;
 
+@JsonAdapter(GistTypeAdapter.class) // Bound without reflection; JSON names (e.g. created_at) live in the adapter
 public class Gist {
     private String id;
     private String description;
     private String url;
-    @SerializedName("created_at")
     private String createdAt;
     private Map<String, GistFile> files;
 
@@ -0,0 +1,91 @@
+// GistBatch.java
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans a batch of usernames out to a GistSource with bounded parallelism, for the batch endpoint.
+ *
+ * At most {@code parallelism} lookups are in flight at once: each finished lookup starts the next
+ * pending username, so a batch of 50 misses never turns into 50 simultaneous GitHub calls. Results are
+ * handed over through a queue in completion order, which lets the caller stream each user's entry as
+ * soon as it is ready. A failed lookup produces an error result for that user only.
+ */
+public final class GistBatch {
+
+    /**
+     * The outcome of one username: either a ready-to-send body or the (unwrapped) error.
+     */
+    public record Result(String username, GistBody body, Throwable error) {
+    }
+
+    private final GistSource source;
+    private final int parallelism;
+
+    /**
+     * @param source Where gists are fetched from (normally the cache, so repeated users are cheap).
+     * @param parallelism Maximum number of lookups in flight at once.
+     */
+    public GistBatch(GistSource source, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.source = source;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Cleans up requested usernames: trims them, drops blanks and removes repeats, keeping the
+     * order in which they were first requested.
+     */
+    public static List<String> usernames(Collection<String> requested) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String username : requested) {
+            if (username != null && !username.isBlank()) {
+                unique.add(username.trim());
+            }
+        }
+        return new ArrayList<>(unique);
+    }
+
+    /**
+     * Starts fetching the given usernames and returns immediately.
+     *
+     * @param usernames The usernames to fetch, already deduplicated.
+     * @param query Projection and filters applied to every user's gists.
+     * @return A queue that receives exactly one Result per username, in completion order.
+     */
+    public BlockingQueue<Result> fetch(List<String> usernames, GistQuery query) {
+        BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        AtomicInteger next = new AtomicInteger();
+        for (int lane = 0; lane < Math.min(parallelism, usernames.size()); lane++) {
+            startNext(usernames, query, next, results);
+        }
+        return results;
+    }
+
+    private void startNext(List<String> usernames, GistQuery query, AtomicInteger next, BlockingQueue<Result> results) {
+        int index = next.getAndIncrement();
+        if (index >= usernames.size()) {
+            return; // This lane is done
+        }
+        String username = usernames.get(index);
+        CompletableFuture<GistBody> body;
+        try {
+            body = query.bodyAsync(source, username, false); // Batch entries are written uncompressed
+        } catch (RuntimeException e) {
+            body = CompletableFuture.failedFuture(e);
+        }
+        // Cache hits complete immediately and run this inline; the depth is bounded by the batch size
+        body.whenComplete((result, error) -> {
+            results.add(new Result(username, result, error == null ? null : GistSource.unwrap(error)));
+            startNext(usernames, query, next, results);
+        });
+    }
+}
@@ -0,0 +1,99 @@
+// GistBody.java
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The final /{username} response body for a gist list, serialized once as UTF-8 JSON and,
+ * when it pays off, gzip-compressed as well. Instances are immutable, so a cached body can be
+ * written to any number of clients without further serialization work.
+ */
+public final class GistBody {
+
+    // Below this size gzip headers and CPU cost outweigh the savings
+    private static final int MIN_GZIP_BYTES = 256;
+    private static final Type GIST_LIST_TYPE = new TypeToken<List<Gist>>(){}.getType();
+    private static final Gson gson = new Gson();
+
+    private final byte[] json;
+    private final byte[] gzip; // null when compression isn't worth it
+
+    private GistBody(byte[] json, byte[] gzip) {
+        this.json = json;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Serializes a gist list into its response body.
+     *
+     * @param gists The gists to serialize.
+     * @return The serialized (and possibly compressed) body.
+     */
+    public static GistBody of(List<Gist> gists) {
+        long started = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            gson.toJson(gists, GIST_LIST_TYPE, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Can't happen when writing to memory
+        }
+        GistBody body = of(bytes.toByteArray());
+        Metrics.JSON_SERIALIZE.recordSince(started);
+        return body;
+    }
+
+    /**
+     * Wraps already-serialized JSON, compressing it if that makes it smaller.
+     */
+    static GistBody of(byte[] json) {
+        return of(json, true);
+    }
+
+    /**
+     * Wraps already-serialized JSON. One-off bodies that won't be cached skip compression
+     * when the client can't use it anyway.
+     */
+    static GistBody of(byte[] json, boolean compress) {
+        return new GistBody(json, compress && json.length >= MIN_GZIP_BYTES ? compress(json) : null);
+    }
+
+    /**
+     * @return The uncompressed UTF-8 JSON. Callers must not modify the array.
+     */
+    public byte[] json() {
+        return json;
+    }
+
+    /**
+     * @return The gzip-compressed JSON, or null if the body is served uncompressed.
+     *         Callers must not modify the array.
+     */
+    public byte[] gzip() {
+        return gzip;
+    }
+
+    /**
+     * @return Approximate heap retained by this body, used for cache size accounting.
+     */
+    public long retainedBytes() {
+        return 32 + json.length + (gzip == null ? 0 : gzip.length);
+    }
+
+    private static byte[] compress(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+            gzipStream.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Can't happen when writing to memory
+        }
+        return compressed.size() < json.length ? compressed.toByteArray() : null;
+    }
+}
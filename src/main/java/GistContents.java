@@ -0,0 +1,156 @@
+// GistContents.java
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the contents of a user's gist files with bounded parallelism, for /{username}/contents.
+ *
+ * Works like GistBatch: at most {@code parallelism} raw downloads run at once for one request, each
+ * finished download starts the next file, and results are handed over through a queue in completion
+ * order so the response can stream each file as soon as it is ready. A failed download produces an
+ * error result for that file only.
+ */
+public final class GistContents {
+
+    /**
+     * A file to fetch, as listed in a gist.
+     */
+    public record FileRef(String gistId, String filename, String language, String rawUrl) {
+    }
+
+    /**
+     * The outcome of one file: either its content or the (unwrapped) error.
+     */
+    public record Result(FileRef file, RawContentFetcher.Content content, Throwable error) {
+    }
+
+    private final RawContentFetcher fetcher;
+    private final int parallelism;
+
+    /**
+     * @param fetcher Downloads (and caches) raw contents.
+     * @param parallelism Maximum number of downloads in flight for one request.
+     */
+    public GistContents(RawContentFetcher fetcher, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.fetcher = fetcher;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Lists the files of the given gists that have a raw URL.
+     *
+     * @param gistId Only list the files of this gist, or null for all of them.
+     */
+    public static List<FileRef> files(List<Gist> gists, String gistId) {
+        List<FileRef> files = new ArrayList<>();
+        if (gists instanceof CompactGists compact) {
+            // Read from the columns rather than decoding a Gist and GistFile map per gist
+            for (int i = 0; i < compact.size(); i++) {
+                String id = compact.id(i);
+                if (!compact.hasFiles(i) || (gistId != null && !gistId.equals(id))) {
+                    continue;
+                }
+                for (int file = compact.filesStart(i), end = compact.filesEnd(i); file < end; file++) {
+                    String rawUrl = compact.fileRawUrl(file, id);
+                    if (rawUrl != null) {
+                        files.add(new FileRef(id, compact.fileKey(file), compact.fileLanguage(file), rawUrl));
+                    }
+                }
+            }
+            return files;
+        }
+        for (Gist gist : gists) {
+            if (gist.getFiles() == null || (gistId != null && !gistId.equals(gist.getId()))) {
+                continue;
+            }
+            for (Map.Entry<String, GistFile> file : gist.getFiles().entrySet()) {
+                String rawUrl = file.getValue().getRawUrl();
+                if (rawUrl != null) {
+                    files.add(new FileRef(gist.getId(), file.getKey(), file.getValue().getLanguage(), rawUrl));
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Starts fetching the given files and returns immediately.
+     *
+     * @return A queue that receives exactly one Result per file, in completion order.
+     */
+    public BlockingQueue<Result> fetch(List<FileRef> files) {
+        BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        AtomicInteger next = new AtomicInteger();
+        for (int lane = 0; lane < Math.min(parallelism, files.size()); lane++) {
+            startNext(files, next, results);
+        }
+        return results;
+    }
+
+    /**
+     * Decodes content as UTF-8 text, ignoring a multi-byte character cut in half by truncation.
+     *
+     * @return The text, or null if the bytes aren't valid UTF-8 (binary files).
+     */
+    public static String text(RawContentFetcher.Content content) {
+        byte[] bytes = content.bytes();
+        int length = content.truncated() ? utf8Boundary(bytes) : bytes.length;
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes, 0, length))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The length of {@code bytes} without a trailing, incomplete UTF-8 sequence.
+     */
+    static int utf8Boundary(byte[] bytes) {
+        int start = bytes.length;
+        // Walk back over at most 3 continuation bytes (10xxxxxx) to the lead byte of the last character
+        while (start > 0 && bytes.length - start < 3 && (bytes[start - 1] & 0xC0) == 0x80) {
+            start--;
+        }
+        if (start == 0) {
+            return bytes.length;
+        }
+        int lead = bytes[start - 1] & 0xFF;
+        int needed = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return bytes.length - (start - 1) < needed ? start - 1 : bytes.length;
+    }
+
+    private void startNext(List<FileRef> files, AtomicInteger next, BlockingQueue<Result> results) {
+        int index = next.getAndIncrement();
+        if (index >= files.size()) {
+            return; // This lane is done
+        }
+        FileRef file = files.get(index);
+        CompletableFuture<RawContentFetcher.Content> content;
+        try {
+            content = fetcher.fetch(file.rawUrl());
+        } catch (RuntimeException e) {
+            content = CompletableFuture.failedFuture(e);
+        }
+        // Cache hits complete immediately and run this inline; the depth is bounded by the file count
+        content.whenComplete((result, error) -> {
+            results.add(new Result(file, result, error == null ? null : GistSource.unwrap(error)));
+            startNext(files, next, results);
+        });
+    }
+}
@@ -1,11 +1,11 @@
 // GistFile.java
-import com.google.gson.annotations.SerializedName;
+import com.google.gson.annotations.JsonAdapter;
 
+@JsonAdapter(GistFileTypeAdapter.class) // Bound without reflection; JSON names (e.g. raw_url) live in the adapter
 public class GistFile {
     private String filename;
     private String type;
     private String language;
-    @SerializedName("raw_url")
     private String rawUrl;
     private long size;
 
@@ -0,0 +1,86 @@
+// GistFileTypeAdapter.java
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Hand-written Gson binding for GistFile, registered with {@code @JsonAdapter} so every Gson instance uses it.
+ *
+ * It reads and writes the same JSON as Gson's reflective binding (field names, order, null handling and
+ * lenient scalar conversions), but matches field names with a switch and calls the setters directly
+ * instead of going through reflection, and skips the fields GitHub sends that GistFile doesn't keep
+ * ({@code truncated}, {@code encoding}, ...) with {@link JsonReader#skipValue()}, which never builds them.
+ * Stateless, so one instance is shared.
+ */
+public final class GistFileTypeAdapter extends TypeAdapter<GistFile> {
+
+    static final GistFileTypeAdapter INSTANCE = new GistFileTypeAdapter();
+
+    @Override
+    public void write(JsonWriter out, GistFile file) throws IOException {
+        if (file == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        // Null values are dropped by the writer unless it serializes nulls, exactly as with reflection
+        out.name("filename").value(file.getFilename());
+        out.name("type").value(file.getType());
+        out.name("language").value(file.getLanguage());
+        out.name("raw_url").value(file.getRawUrl());
+        out.name("size").value(file.getSize());
+        out.endObject();
+    }
+
+    @Override
+    public GistFile read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        GistFile file = new GistFile();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "filename" -> file.setFilename(readString(in));
+                case "type" -> file.setType(readString(in));
+                case "language" -> file.setLanguage(readString(in));
+                case "raw_url" -> file.setRawUrl(readString(in));
+                case "size" -> file.setSize(readLong(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return file;
+    }
+
+    /**
+     * Reads a string like Gson's built-in adapter: null stays null, numbers and booleans become their text.
+     */
+    static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString(); // Also accepts numbers; objects and arrays fail as they would with reflection
+    }
+
+    private static long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0; // Reflection leaves a primitive field untouched for null
+        }
+        try {
+            return in.nextLong();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+// GistJson.java
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Streaming JSON helpers for Gist lists.
+ * These work one gist at a time on Gson's JsonReader/JsonWriter, so memory use depends on the
+ * size of a single gist rather than on the size of the whole list.
+ */
+public final class GistJson {
+
+    private GistJson() {
+    }
+
+    /**
+     * Copies a JSON array of gists (as returned by GitHub) from {@code in} to {@code out},
+     * keeping only the fields of Gist/GistFile. Every other upstream field is skipped while reading.
+     * The output is the same JSON that {@code gson.toJson(List<Gist>)} would produce.
+     *
+     * @param gson The Gson instance used to bind and write individual gists.
+     * @param in Reader positioned at the start of the upstream array.
+     * @param out Writer the projected array is written to; flushed but not closed.
+     * @return The number of gists copied.
+     * @throws IOException If reading or writing fails, or the input is not a JSON array.
+     */
+    public static int copyGists(Gson gson, JsonReader in, JsonWriter out) throws IOException {
+        out.beginArray();
+        int count = copyGistElements(gson, in, out);
+        out.endArray();
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Like {@link #copyGists} but appends the gists to an array the caller has already opened on
+     * {@code out}. Used to concatenate several upstream pages into one response array.
+     *
+     * @return The number of gists copied.
+     */
+    public static int copyGistElements(Gson gson, JsonReader in, JsonWriter out) throws IOException {
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            Gist gist = gson.fromJson(in, Gist.class);
+            gson.toJson(gist, Gist.class, out);
+            count++;
+        }
+        in.endArray();
+        return count;
+    }
+}
@@ -0,0 +1,280 @@
+// GistQuery.java
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Field projection and filtering requested through query parameters, e.g.
+ * {@code /octocat?fields=id,description&language=Java&since=2024-01-01}.
+ *
+ * The projection is applied while writing JSON: only the selected fields are written, field by field,
+ * straight from the Gist objects. When reading an upstream page in streaming mode the unselected fields
+ * are skipped by the JsonReader, so they are never even allocated as Strings.
+ * Output for the full projection is the same JSON {@code gson.toJson(List<Gist>)} produces.
+ */
+public final class GistQuery {
+
+    /** No projection and no filters: the plain cached response. */
+    public static final GistQuery ALL = new GistQuery(null, null, null);
+
+    // Top-level Gist fields, in the order Gson writes them
+    private static final List<String> FIELDS = List.of("id", "description", "url", "created_at", "files");
+
+    private final Set<String> fields; // null = every field
+    private final String language; // null = any language
+    private final Instant since; // null = any creation time
+
+    private GistQuery(Set<String> fields, String language, Instant since) {
+        this.fields = fields;
+        this.language = language;
+        this.since = since;
+    }
+
+    /**
+     * Reads {@code fields}, {@code language} and {@code since} from a request URI.
+     *
+     * @throws IllegalArgumentException If a parameter is malformed, e.g. an unknown field name.
+     */
+    public static GistQuery parse(URI uri) {
+        String fieldsParameter = GistServer.queryParameter(uri, "fields");
+        String languageParameter = GistServer.queryParameter(uri, "language");
+        String sinceParameter = GistServer.queryParameter(uri, "since");
+        if (fieldsParameter == null && languageParameter == null && sinceParameter == null) {
+            return ALL;
+        }
+
+        Set<String> fields = null;
+        if (fieldsParameter != null) {
+            fields = new LinkedHashSet<>();
+            for (String field : fieldsParameter.split(",")) {
+                String name = field.trim().equals("createdAt") ? "created_at" : field.trim();
+                if (!FIELDS.contains(name)) {
+                    throw new IllegalArgumentException("Unknown field '" + field.trim() + "', expected some of " + String.join(",", FIELDS));
+                }
+                fields.add(name);
+            }
+        }
+        String language = languageParameter == null || languageParameter.isBlank() ? null : languageParameter.trim();
+        return new GistQuery(fields, language, sinceParameter == null ? null : parseInstant(sinceParameter.trim()));
+    }
+
+    /**
+     * @return True if this query changes nothing, so the cached body can be served as is.
+     */
+    public boolean isAll() {
+        return fields == null && language == null && since == null;
+    }
+
+    /**
+     * @return True if the gist passes the language and since filters.
+     */
+    public boolean matches(Gist gist) {
+        if (since != null) {
+            Instant created = createdAt(gist);
+            if (created == null || created.isBefore(since)) {
+                return false;
+            }
+        }
+        if (language != null) {
+            if (gist.getFiles() == null) {
+                return false;
+            }
+            for (GistFile file : gist.getFiles().values()) {
+                if (file != null && language.equalsIgnoreCase(file.getLanguage())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #matches(Gist)} for the gist at {@code index} of a packed list.
+     */
+    boolean matches(CompactGists gists, int index) {
+        if (since != null) {
+            Instant created = gists.createdInstant(index);
+            if (created == null || created.isBefore(since)) {
+                return false;
+            }
+        }
+        if (language != null) {
+            if (!gists.hasFiles(index)) {
+                return false;
+            }
+            for (int file = gists.filesStart(index), end = gists.filesEnd(index); file < end; file++) {
+                if (language.equalsIgnoreCase(gists.fileLanguage(file))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fetches a user's gists from the source as a response body for this query. The plain query is
+     * answered with the body cached for the user; any other query projects the cached gist list.
+     *
+     * @param compress Whether to gzip a projected body (the client accepts it).
+     */
+    public CompletableFuture<GistBody> bodyAsync(GistSource source, String username, boolean compress) {
+        if (isAll()) {
+            return source.getGistBodyAsync(username);
+        }
+        return source.getUserGistsAsync(username).thenApply(gists -> body(gists == null ? List.of() : gists, compress));
+    }
+
+    /**
+     * Serializes the matching gists, projected, into a response body. A CompactGists list is filtered
+     * on its columns, and a gist's files are only decoded if they are written.
+     */
+    public GistBody body(List<Gist> gists, boolean compress) {
+        long started = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter out = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            out.setSerializeNulls(false); // Omit null fields, as Gson does
+            out.beginArray();
+            if (gists instanceof CompactGists compact) {
+                for (int i = 0; i < compact.size(); i++) {
+                    if (matches(compact, i)) {
+                        write(compact.get(i, wants("files")), out);
+                    }
+                }
+            } else {
+                for (Gist gist : gists) {
+                    if (matches(gist)) {
+                        write(gist, out);
+                    }
+                }
+            }
+            out.endArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Can't happen when writing to memory
+        }
+        GistBody body = GistBody.of(bytes.toByteArray(), compress);
+        Metrics.JSON_SERIALIZE.recordSince(started);
+        return body;
+    }
+
+    /**
+     * Streaming counterpart of {@link GistJson#copyGistElements}: reads a JSON array of upstream gists
+     * and appends the matching ones, projected, to an array the caller has opened on {@code out}.
+     * Fields that are neither selected nor needed by a filter are skipped without being read.
+     *
+     * @return The number of gists written.
+     */
+    public int copyGistElements(JsonReader in, JsonWriter out) throws IOException {
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            Gist gist = read(in);
+            if (matches(gist)) {
+                write(gist, out);
+                count++;
+            }
+        }
+        in.endArray();
+        return count;
+    }
+
+    /**
+     * Writes one gist with only the selected fields (null values are omitted, as Gson does).
+     */
+    void write(Gist gist, JsonWriter out) throws IOException {
+        out.beginObject();
+        writeString(out, "id", gist.getId());
+        writeString(out, "description", gist.getDescription());
+        writeString(out, "url", gist.getUrl());
+        writeString(out, "created_at", gist.getCreatedAt());
+        if (wants("files") && gist.getFiles() != null) {
+            out.name("files");
+            GistTypeAdapter.writeFiles(out, gist.getFiles());
+        }
+        out.endObject();
+    }
+
+    private void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null && wants(name)) {
+            out.name(name).value(value);
+        }
+    }
+
+    /**
+     * Binds one upstream gist, reading only what will be written or filtered on.
+     */
+    private Gist read(JsonReader in) throws IOException {
+        Gist gist = new Gist();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "id" -> gist.setId(wants(name) ? nextString(in) : skip(in));
+                case "description" -> gist.setDescription(wants(name) ? nextString(in) : skip(in));
+                case "url" -> gist.setUrl(wants(name) ? nextString(in) : skip(in));
+                case "created_at" -> gist.setCreatedAt(wants(name) || since != null ? nextString(in) : skip(in));
+                case "files" -> {
+                    if (wants(name) || language != null) {
+                        gist.setFiles(GistTypeAdapter.readFiles(in));
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                default -> in.skipValue(); // Upstream fields we never serve (owner, history, ...)
+            }
+        }
+        in.endObject();
+        return gist;
+    }
+
+    private boolean wants(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static String skip(JsonReader in) throws IOException {
+        in.skipValue();
+        return null;
+    }
+
+    private static Instant createdAt(Gist gist) {
+        try {
+            return gist.getCreatedAt() == null ? null : Instant.parse(gist.getCreatedAt());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Accepts a full timestamp (2024-01-31T12:00:00Z) or a date (2024-01-31, meaning midnight UTC).
+     */
+    private static Instant parseInstant(String value) {
+        try {
+            return value.contains("T") ? Instant.parse(value) : LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid since '" + value + "', expected e.g. 2024-01-31 or 2024-01-31T12:00:00Z");
+        }
+    }
+}
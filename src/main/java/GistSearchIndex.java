@@ -0,0 +1,396 @@
+// GistSearchIndex.java
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over every gist list the server has loaded, for GET /search.
+ *
+ * Each gist is a document. Its description and file names are split into lowercase terms (runs of
+ * letters and digits), and each file language is indexed as the term {@code "language:" + lowercase name};
+ * the tokenizer never produces a ':' so the two can't collide. Terms are interned to int ids, and each
+ * term's posting list is a sorted int[] of document ids, so a query is an intersection of a few int
+ * arrays, starting from the shortest one.
+ *
+ * The index is maintained incrementally: {@link #update(String, List)} replaces one user's documents
+ * (called by IndexingGistSource whenever a lookup lands) and {@link #remove(String)} drops them.
+ * Document slots and term ids freed by updates are reused. When more than {@code maxDocuments} gists
+ * are indexed, the users updated longest ago are dropped first.
+ *
+ * Queries take the read lock and updates the write lock, so queries run in parallel with each other.
+ */
+public final class GistSearchIndex {
+
+    static final String LANGUAGE_PREFIX = "language:";
+    private static final int[] NO_DOCUMENTS = new int[0];
+
+    private final int maxDocuments;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Everything below is guarded by 'lock'
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private String[] terms = new String[64];            // term id -> term, null for a free id
+    private int[][] postings = new int[64][];           // term id -> sorted document ids
+    private int[] postingSizes = new int[64];           // used length of each posting list
+    private final ArrayList<Integer> freeTermIds = new ArrayList<>();
+
+    private Document[] documents = new Document[64];    // document id -> document, null for a free slot
+    private int documentSlots;                          // slots in use or freed, i.e. the next new id
+    private final ArrayList<Integer> freeDocumentIds = new ArrayList<>();
+    private int documentCount;
+    private long postingCount;
+
+    // Insertion-ordered: iteration starts at the user updated longest ago
+    private final LinkedHashMap<String, int[]> userDocuments = new LinkedHashMap<>();
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+
+    /**
+     * @param maxDocuments Most gists held; the users updated longest ago are dropped beyond that.
+     */
+    public GistSearchIndex(int maxDocuments) {
+        if (maxDocuments < 1) {
+            throw new IllegalArgumentException("maxDocuments must be positive");
+        }
+        this.maxDocuments = maxDocuments;
+    }
+
+    /**
+     * Replaces everything indexed for a user with the given gists.
+     */
+    public void update(String username, List<Gist> gists) {
+        // Tokenize outside the lock; only the posting list changes need it
+        List<Document> added = new ArrayList<>(gists.size());
+        if (gists instanceof CompactGists compact) {
+            for (int i = 0; i < compact.size(); i++) {
+                added.add(Document.of(username, compact, i));
+            }
+        } else {
+            for (Gist gist : gists) {
+                if (gist != null) {
+                    added.add(Document.of(username, gist));
+                }
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(username);
+            int[] ids = new int[added.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = addLocked(added.get(i));
+            }
+            userDocuments.put(username, ids);
+            updates.increment();
+
+            Iterator<Map.Entry<String, int[]>> oldest = userDocuments.entrySet().iterator();
+            while (documentCount > maxDocuments && oldest.hasNext()) {
+                Map.Entry<String, int[]> user = oldest.next();
+                if (user.getKey().equals(username)) {
+                    break; // Never drop the list just added, even if it alone is over the limit
+                }
+                oldest.remove();
+                for (int id : user.getValue()) {
+                    removeDocumentLocked(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops everything indexed for a user (e.g. after GitHub said the user doesn't exist).
+     */
+    public void remove(String username) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(username);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the gists whose description or file names contain every term of {@code text}.
+     *
+     * @param text Free text; blank matches every gist (then {@code language} should be set).
+     * @param language Only gists with a file in this language (case-insensitive), or null for any.
+     * @param limit Most hits to return; {@link SearchResult#total()} still counts all matches.
+     * @return The matches in index order.
+     */
+    public SearchResult search(String text, String language, int limit) {
+        queries.increment();
+        List<String> wanted = new ArrayList<>(tokenize(text));
+        if (language != null && !language.isBlank()) {
+            wanted.add(LANGUAGE_PREFIX + language.trim().toLowerCase(Locale.ROOT));
+        }
+        lock.readLock().lock();
+        try {
+            if (wanted.isEmpty()) {
+                return new SearchResult(0, List.of());
+            }
+            // Look the terms up and sort their posting lists shortest first
+            int[] termList = new int[wanted.size()];
+            for (int i = 0; i < termList.length; i++) {
+                Integer id = termIds.get(wanted.get(i));
+                if (id == null) {
+                    return new SearchResult(0, List.of()); // A term nobody used: no document has them all
+                }
+                termList[i] = id;
+            }
+            Integer[] byLength = new Integer[termList.length];
+            for (int i = 0; i < termList.length; i++) {
+                byLength[i] = termList[i];
+            }
+            Arrays.sort(byLength, (a, b) -> Integer.compare(postingSizes[a], postingSizes[b]));
+
+            int[] shortest = postings[byLength[0]];
+            int shortestSize = postingSizes[byLength[0]];
+            int[] cursors = new int[byLength.length]; // Posting lists are sorted, so searches only move forward
+            int total = 0;
+            List<Hit> hits = new ArrayList<>(Math.min(Math.max(0, limit), shortestSize));
+            candidates:
+            for (int i = 0; i < shortestSize; i++) {
+                int document = shortest[i];
+                for (int t = 1; t < byLength.length; t++) {
+                    int term = byLength[t];
+                    int found = Arrays.binarySearch(postings[term], cursors[t], postingSizes[term], document);
+                    if (found < 0) {
+                        cursors[t] = -found - 1;
+                        if (cursors[t] >= postingSizes[term]) {
+                            break candidates; // This list has nothing beyond the current candidate
+                        }
+                        continue candidates;
+                    }
+                    cursors[t] = found + 1;
+                }
+                total++;
+                if (hits.size() < limit) {
+                    hits.add(documents[document].hit());
+                }
+            }
+            return new SearchResult(total, hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return A point-in-time snapshot of the index size and counters.
+     */
+    public SearchStats stats() {
+        lock.readLock().lock();
+        try {
+            return new SearchStats(documentCount, userDocuments.size(), termIds.size(), postingCount, queries.sum(), updates.sum());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lowercase runs of letters and digits, without duplicates, in order of appearance.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private void removeLocked(String username) {
+        int[] ids = userDocuments.remove(username);
+        if (ids != null) {
+            for (int id : ids) {
+                removeDocumentLocked(id);
+            }
+        }
+    }
+
+    private int addLocked(Document document) {
+        int id;
+        if (!freeDocumentIds.isEmpty()) {
+            id = freeDocumentIds.remove(freeDocumentIds.size() - 1);
+        } else {
+            id = documentSlots++;
+            if (id == documents.length) {
+                documents = Arrays.copyOf(documents, id * 2);
+            }
+        }
+        int[] termList = new int[document.terms.length];
+        for (int i = 0; i < termList.length; i++) {
+            termList[i] = internLocked(document.terms[i]);
+            insertPosting(termList[i], id);
+        }
+        document.termIds = termList;
+        document.terms = null; // The ids are enough from now on
+        documents[id] = document;
+        documentCount++;
+        return id;
+    }
+
+    private void removeDocumentLocked(int id) {
+        Document document = documents[id];
+        for (int term : document.termIds) {
+            int size = postingSizes[term];
+            int at = Arrays.binarySearch(postings[term], 0, size, id);
+            System.arraycopy(postings[term], at + 1, postings[term], at, size - at - 1);
+            postingSizes[term] = --size;
+            postingCount--;
+            if (size == 0) {
+                // Nothing uses the term any more: free its id so the vocabulary doesn't only grow
+                termIds.remove(terms[term]);
+                terms[term] = null;
+                postings[term] = NO_DOCUMENTS;
+                freeTermIds.add(term);
+            }
+        }
+        documents[id] = null;
+        freeDocumentIds.add(id);
+        documentCount--;
+    }
+
+    private int internLocked(String term) {
+        Integer existing = termIds.get(term);
+        if (existing != null) {
+            return existing;
+        }
+        int id;
+        if (!freeTermIds.isEmpty()) {
+            id = freeTermIds.remove(freeTermIds.size() - 1);
+        } else {
+            id = termIds.size();
+            if (id == terms.length) {
+                terms = Arrays.copyOf(terms, id * 2);
+                postings = Arrays.copyOf(postings, id * 2);
+                postingSizes = Arrays.copyOf(postingSizes, id * 2);
+            }
+        }
+        terms[id] = term;
+        postings[id] = new int[4];
+        postingSizes[id] = 0;
+        termIds.put(term, id);
+        return id;
+    }
+
+    /**
+     * Inserts a document id into a term's sorted posting list. New ids are usually the largest, so
+     * this is mostly an append; reused slots need a shift.
+     */
+    private void insertPosting(int term, int document) {
+        int[] list = postings[term];
+        int size = postingSizes[term];
+        if (size == list.length) {
+            list = Arrays.copyOf(list, size * 2);
+            postings[term] = list;
+        }
+        int at = size == 0 || list[size - 1] < document ? size : -Arrays.binarySearch(list, 0, size, document) - 1;
+        System.arraycopy(list, at, list, at + 1, size - at);
+        list[at] = document;
+        postingSizes[term] = size + 1;
+        postingCount++;
+    }
+
+    /**
+     * One indexed gist: what a hit shows, plus its terms (strings until interned, then ids).
+     */
+    private static final class Document {
+        final String username;
+        final String gistId;
+        final String description;
+        final String[] filenames;
+        final String[] languages;
+        String[] terms;
+        int[] termIds;
+
+        private Document(String username, String gistId, String description, String[] filenames, String[] languages, String[] terms) {
+            this.username = username;
+            this.gistId = gistId;
+            this.description = description;
+            this.filenames = filenames;
+            this.languages = languages;
+            this.terms = terms;
+        }
+
+        static Document of(String username, Gist gist) {
+            Set<String> terms = tokenize(gist.getDescription());
+            Map<String, GistFile> files = gist.getFiles() == null ? Map.of() : gist.getFiles();
+            Set<String> languages = new LinkedHashSet<>();
+            for (Map.Entry<String, GistFile> file : files.entrySet()) {
+                terms.addAll(tokenize(file.getKey()));
+                String language = file.getValue() == null ? null : file.getValue().getLanguage();
+                if (language != null) {
+                    languages.add(language.intern()); // Few distinct values across all users
+                    terms.add(LANGUAGE_PREFIX + language.toLowerCase(Locale.ROOT));
+                }
+            }
+            return new Document(username, gist.getId(), gist.getDescription(), files.keySet().toArray(new String[0]),
+                    languages.toArray(new String[0]), terms.toArray(new String[0]));
+        }
+
+        /**
+         * Same as {@link #of(String, Gist)}, read from the columns of a packed list.
+         */
+        static Document of(String username, CompactGists gists, int index) {
+            String description = gists.description(index);
+            Set<String> terms = tokenize(description);
+            Set<String> languages = new LinkedHashSet<>();
+            int start = gists.hasFiles(index) ? gists.filesStart(index) : 0;
+            int end = gists.hasFiles(index) ? gists.filesEnd(index) : 0;
+            String[] filenames = new String[end - start];
+            for (int file = start; file < end; file++) {
+                filenames[file - start] = gists.fileKey(file);
+                terms.addAll(tokenize(gists.fileKey(file)));
+                String language = gists.fileLanguage(file);
+                if (language != null) {
+                    languages.add(language); // Already interned by CompactGists
+                    terms.add(LANGUAGE_PREFIX + language.toLowerCase(Locale.ROOT));
+                }
+            }
+            return new Document(username, gists.id(index), description, filenames,
+                    languages.toArray(new String[0]), terms.toArray(new String[0]));
+        }
+
+        Hit hit() {
+            return new Hit(username, gistId, description, List.of(filenames), List.of(languages));
+        }
+    }
+
+    /**
+     * One matching gist, serialized as-is in /search responses.
+     */
+    public record Hit(String username, String id, String description, List<String> files, List<String> languages) {
+    }
+
+    /**
+     * @param total How many gists matched (may exceed the hits returned).
+     */
+    public record SearchResult(int total, List<Hit> hits) {
+    }
+
+    /**
+     * Snapshot of the index size and counters, reported on /metrics.
+     */
+    public record SearchStats(int documents, int users, int terms, long postings, long queries, long updates) {
+    }
+}
@@ -1,18 +1,64 @@
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpExchange;
 import com.google.gson.Gson; // Ensure Gson is imported
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
-import java.util.concurrent.Executors; // For fixed thread pool
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.zip.GZIPOutputStream;
 
 public class GistServer {
 
     private static int PORT = 8080; // Make it non-final so it can be set by args
-    private static HttpServer server; // Keep a reference to the server for potential stopping
-    private static final GitHubApiClient gitHubApiClient = new GitHubApiClient();
+    private static GistServer instance; // Keep a reference to the server started by main() for potential stopping
     private static final Gson gson = new Gson(); // Re-use Gson instance
+    static final int MAX_BATCH_USERS = 100; // Upper bound on usernames per batch request
+    static final int MAX_SEARCH_HITS = 100; // Upper bound on ?limit= for /search
+    private static final int DEFAULT_SEARCH_HITS = 20;
+    private static final long SEARCH_DOCUMENT_BYTES = 1024; // Rough heap per indexed gist, postings included
+    private static final String CONTENTS_SUFFIX = "/contents"; // GET /{username}/contents
+    private static final String STATS_SUFFIX = "/stats"; // GET /{username}/stats
+    private static final int PEER_VIRTUAL_NODES = 128; // Points per replica on the cluster hash ring
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final GistSource gistSource; // What handlers fetch Gists from
+    private GitHubApiClient streamingClient; // Set when responses are streamed straight from GitHub
+    private RateLimitScheduler rateLimiter; // Reported by /_ratelimit when set
+    private GistBatch batch; // Fans batch requests out to the gistSource
+    private GistContents contents; // Serves /{username}/contents when set
+    private RawContentCache contentCache; // Reported on /metrics when set
+    private int maxContentFiles;
+    private GistSearchIndex searchIndex; // Serves /search when set
+    private PeerGistSource peers; // Cluster mode: serves PeerGistSource.PEER_PATH when set
+    private AdmissionController admission; // Sheds load when set
+    private CircuitBreakerGistSource circuitBreaker; // Reported on /metrics when set
+    private HedgingGistSource hedging; // Reported on /metrics when set
 
     public static void main(String[] args) throws IOException {
         if (args.length > 0) {
@@ -23,69 +69,1052 @@ public class GistServer {
             }
         }
 
-        server = HttpServer.create(new InetSocketAddress(PORT), 0);
+        // Paces upstream calls locally and follows GitHub's rate limit headers
+        RateLimitScheduler rateLimiter = new RateLimitScheduler(
+                envLong("GIST_UPSTREAM_RATE", 10),
+                (int) envLong("GIST_UPSTREAM_BURST", 20),
+                Duration.ofMillis(envLong("GIST_UPSTREAM_MAX_WAIT_MS", 250)));
+        // HTTP/2 to GitHub so concurrent page fetches share one TLS connection
+        HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+        String versionSetting = System.getenv("GIST_UPSTREAM_HTTP_VERSION");
+        if (versionSetting != null && !versionSetting.isBlank()) {
+            try {
+                httpVersion = UpstreamTransport.parseVersion(versionSetting);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid GIST_UPSTREAM_HTTP_VERSION: " + versionSetting + ". Using " + httpVersion);
+            }
+        }
+        UpstreamTransport transport = new UpstreamTransport(httpVersion,
+                Duration.ofMillis(envLong("GIST_UPSTREAM_CONNECT_TIMEOUT_MS", 5000)),
+                Duration.ofMillis(envLong("GIST_UPSTREAM_REQUEST_TIMEOUT_MS", 10_000)),
+                (int) Math.max(1, envLong("GIST_UPSTREAM_THREADS", 4)));
+        // Another API root (GitHub Enterprise, or a local stub to load-test without spending quota)
+        String baseUrl = System.getenv("GIST_UPSTREAM_BASE_URL");
+        if (baseUrl == null || baseUrl.isBlank()) {
+            baseUrl = GitHubApiClient.DEFAULT_BASE_URL;
+        }
+        HttpClient httpClient = transport.newHttpClient();
+        GitHubApiClient gitHubApiClient = new GitHubApiClient(httpClient, new Gson(), rateLimiter,
+                transport.requestTimeout(), baseUrl.trim());
+        gitHubApiClient.limitValidatorBytes(envLong("GIST_UPSTREAM_VALIDATOR_MAX_BYTES", heapShare(0.05)));
+        if (envBoolean("GIST_UPSTREAM_WARMUP", true)) {
+            // Open the TLS connection now rather than on the first user request; failures only cost that saving
+            gitHubApiClient.warmUp().whenComplete((status, error) -> {
+                if (error != null) {
+                    System.err.println("Upstream warm-up failed: " + GistSource.unwrap(error).getMessage());
+                }
+            });
+        }
+        // Optionally hedge slow GitHub calls with a second attempt after the observed p95 latency
+        GistSource upstream = gitHubApiClient;
+        HedgingGistSource hedging = null;
+        if (envBoolean("GIST_HEDGE", false)) {
+            ScheduledExecutorService hedgeTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hedge-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            hedging = new HedgingGistSource(upstream, hedgeTimer,
+                    Math.min(100, Math.max(1, envLong("GIST_HEDGE_PERCENTILE", 95))),
+                    Duration.ofMillis(envLong("GIST_HEDGE_MIN_DELAY_MS", 50)),
+                    Math.min(100, Math.max(0, envLong("GIST_HEDGE_MAX_PERCENT", 10))) / 100.0);
+            upstream = hedging;
+        }
+        // Stop calling GitHub for a while when most recent calls fail; the cache answers with stale data meanwhile
+        CircuitBreakerGistSource circuitBreaker = null;
+        if (envBoolean("GIST_CIRCUIT_BREAKER", true)) {
+            int window = (int) Math.max(1, envLong("GIST_CIRCUIT_WINDOW", 20));
+            circuitBreaker = new CircuitBreakerGistSource(upstream, window,
+                    (int) Math.min(window, Math.max(1, envLong("GIST_CIRCUIT_MIN_CALLS", 10))),
+                    Math.min(100, Math.max(1, envLong("GIST_CIRCUIT_FAILURE_PERCENT", 50))) / 100.0,
+                    Duration.ofSeconds(Math.max(1, envLong("GIST_CIRCUIT_OPEN_SECONDS", 30))),
+                    (int) Math.max(1, envLong("GIST_CIRCUIT_HALF_OPEN_PROBES", 3)));
+            upstream = circuitBreaker;
+        }
+        // Optional disk tier so a restarted server refills its cache from disk rather than from GitHub
+        String diskCachePath = System.getenv("GIST_DISK_CACHE_PATH");
+        if (diskCachePath != null && !diskCachePath.isBlank()) {
+            DiskCachingGistSource diskCache = new DiskCachingGistSource(upstream, Path.of(diskCachePath.trim()),
+                    envLong("GIST_DISK_CACHE_MAX_BYTES", 256L * 1024 * 1024),
+                    Duration.ofSeconds(envLong("GIST_DISK_CACHE_TTL_SECONDS", 600)));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    diskCache.close(); // Flush the mapped file
+                } catch (IOException e) {
+                    System.err.println("Failed to close disk cache: " + e.getMessage());
+                }
+            }));
+            upstream = diskCache;
+            System.out.println("Disk cache at " + diskCachePath + " holds " + diskCache.stats().entries() + " users");
+        }
 
-        server.createContext("/health", GistServer::handleHealthCheck);
-        server.createContext("/", GistServer::handleGistsRequest); // Catches all paths starting with /
+        // Cluster mode: each username has an owner replica, which the others ask before going upstream
+        PeerGistSource peers = null;
+        String peerList = System.getenv("GIST_PEERS");
+        if (peerList != null && !peerList.isBlank()) {
+            List<String> peerUrls = new ArrayList<>();
+            for (String peer : peerList.split(",")) {
+                if (!peer.isBlank()) {
+                    peerUrls.add(stripTrailingSlash(peer.trim()));
+                }
+            }
+            String self = System.getenv("GIST_SELF_URL");
+            if (self == null || self.isBlank()) {
+                throw new IllegalStateException("GIST_PEERS is set, so GIST_SELF_URL must name this replica's entry in it");
+            }
+            peers = new PeerGistSource(upstream, new ConsistentHashRing(peerUrls, PEER_VIRTUAL_NODES), stripTrailingSlash(self.trim()),
+                    httpClient, Duration.ofMillis(envLong("GIST_PEER_TIMEOUT_MS", 5000)),
+                    Duration.ofSeconds(envLong("GIST_PEER_BACKOFF_SECONDS", 10)));
+            upstream = peers;
+            System.out.println("Cluster mode: " + peerUrls.size() + " replicas, this one is " + self.trim());
+        }
 
-        server.setExecutor(Executors.newFixedThreadPool(10)); // Use a thread pool for handling requests
-        server.start();
+        // Concurrent misses for the same username share one upstream call
+        GistSource loader = new CoalescingGistSource(upstream);
+        // Every list loaded below the cache is indexed for /search
+        GistSearchIndex searchIndex = null;
+        if (envBoolean("GIST_SEARCH", true)) {
+            searchIndex = new GistSearchIndex((int) Math.max(1, envLong("GIST_SEARCH_MAX_DOCUMENTS", heapShare(0.10) / SEARCH_DOCUMENT_BYTES)));
+            loader = new IndexingGistSource(loader, searchIndex);
+        }
 
-        System.out.println("Server started on port " + PORT);
+        CachingGitHubApiClient cache = new CachingGitHubApiClient(
+                loader,
+                Duration.ofSeconds(envLong("GIST_CACHE_TTL_SECONDS", 60)),
+                Duration.ofSeconds(envLong("GIST_CACHE_NEGATIVE_TTL_SECONDS", 30)),
+                Duration.ofSeconds(envLong("GIST_CACHE_STALE_SECONDS", 300)),
+                (int) envLong("GIST_CACHE_MAX_ENTRIES", 10_000),
+                envLong("GIST_CACHE_MAX_BYTES", heapShare(0.25)));
+        GistSource gistSource = cache;
+
+        // Keep the most requested usernames fresh so they never see a cold miss
+        int refreshTopN = (int) envLong("GIST_REFRESH_TOP_N", 100);
+        if (refreshTopN > 0) {
+            ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hot-entry-refresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            cache.refreshHotEntriesEvery(refresher, Duration.ofSeconds(Math.max(1, envLong("GIST_REFRESH_INTERVAL_SECONDS", 10))), refreshTopN);
+        }
+
+        ExecutorMode executorMode = ExecutorMode.VIRTUAL;
+        String modeSetting = System.getenv("GIST_EXECUTOR");
+        if (modeSetting != null && !modeSetting.isBlank()) {
+            try {
+                executorMode = ExecutorMode.parse(modeSetting);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid GIST_EXECUTOR: " + modeSetting + ". Using " + executorMode);
+            }
+        }
+        int threads = (int) envLong("GIST_THREADS", 10);
+
+        instance = new GistServer(PORT, gistSource, executorMode.create(threads), (int) envLong("GIST_HTTP_BACKLOG", 0));
+        if (envBoolean("GIST_STREAMING", false)) {
+            instance.enableStreaming(gitHubApiClient);
+        }
+        instance.reportRateLimits(rateLimiter);
+        instance.reportUpstreamResilience(circuitBreaker, hedging);
+        instance.limitBatchParallelism((int) envLong("GIST_BATCH_PARALLELISM", 8));
+        if (searchIndex != null) {
+            instance.enableSearch(searchIndex);
+        }
+        if (peers != null) {
+            instance.enablePeers(peers);
+        }
+        // Raw file contents share the GitHub HttpClient; they are immutable per revision, so cached without a TTL
+        RawContentCache contentCache = new RawContentCache(envLong("GIST_CONTENT_CACHE_MAX_BYTES", heapShare(0.10)));
+        instance.enableContents(new RawContentFetcher(httpClient, transport.requestTimeout(), contentCache,
+                        (int) Math.max(1, envLong("GIST_CONTENT_MAX_FILE_BYTES", 1024 * 1024))),
+                contentCache, (int) envLong("GIST_CONTENT_PARALLELISM", 4), (int) envLong("GIST_CONTENT_MAX_FILES", 100));
+        // Bound in-flight and queued requests; the in-flight limit shrinks when GitHub slows down
+        int maxInFlight = (int) Math.max(1, envLong("GIST_MAX_IN_FLIGHT", 256));
+        instance.limitAdmission(new AdmissionController(maxInFlight,
+                (int) Math.min(maxInFlight, Math.max(1, envLong("GIST_MIN_IN_FLIGHT", 16))),
+                (int) Math.max(1, envLong("GIST_MAX_QUEUED", 100)),
+                envBoolean("GIST_ADAPTIVE_LIMIT", true) ? Metrics.UPSTREAM_REQUEST : null));
+        instance.start();
+
+        System.out.println("Server started on port " + PORT + " (" + executorMode + " executor)");
         System.out.println("Access health check at http://localhost:" + PORT + "/health");
         System.out.println("Access Gists API at http://localhost:" + PORT + "/<username>");
     }
 
     // Optional: Add a stop method for graceful shutdown in tests/applications
     public static void stop() {
-        if (server != null) {
-            server.stop(0); // Stop immediately
+        if (instance != null) {
+            instance.shutdown();
             System.out.println("Server stopped.");
         }
     }
 
+    /**
+     * Creates a server bound to the given port. Handlers run on the given executor,
+     * which is shut down together with the server.
+     *
+     * @param port The port to listen on (0 picks a free port).
+     * @param gistSource Where gist lists are fetched from.
+     * @param executor The executor request handlers run on.
+     */
+    GistServer(int port, GistSource gistSource, ExecutorService executor) throws IOException {
+        this(port, gistSource, executor, 0);
+    }
+
+    /**
+     * Like {@link #GistServer(int, GistSource, ExecutorService)} with an explicit listen backlog.
+     *
+     * @param backlog Connections the OS may queue before accepting them (0 uses the system default).
+     */
+    GistServer(int port, GistSource gistSource, ExecutorService executor, int backlog) throws IOException {
+        this.gistSource = gistSource;
+        this.executor = executor;
+        this.batch = new GistBatch(gistSource, 8);
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+
+        server.createContext("/health", GistServer::handleHealthCheck);
+        server.createContext("/_cache", this::handleCacheStats);
+        server.createContext("/_ratelimit", this::handleRateLimitStats);
+        server.createContext("/metrics", this::handleMetrics);
+        server.createContext("/batch", this::handleBatchRequest);
+        server.createContext("/", this::handleGistsRequest); // Catches all paths starting with /
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Switches /{username} to streaming mode: responses are piped from GitHub through a JSON
+     * projection instead of going through the GistSource (and therefore bypass the cache).
+     * Must be called before {@link #start()}.
+     */
+    void enableStreaming(GitHubApiClient client) {
+        this.streamingClient = client;
+    }
+
+    /**
+     * Makes /_ratelimit report the given scheduler. Must be called before {@link #start()}.
+     */
+    void reportRateLimits(RateLimitScheduler rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Enables GET /{username}/contents. Must be called before {@link #start()}.
+     *
+     * @param fetcher Downloads raw file contents (through {@code cache}).
+     * @param cache The fetcher's cache, reported on /metrics.
+     * @param parallelism How many files of one request are downloaded at the same time.
+     * @param maxFiles Most files one request may ask for.
+     */
+    void enableContents(RawContentFetcher fetcher, RawContentCache cache, int parallelism, int maxFiles) {
+        this.contents = new GistContents(fetcher, Math.max(1, parallelism));
+        this.contentCache = cache;
+        this.maxContentFiles = Math.max(1, maxFiles);
+    }
+
+    /**
+     * Enables GET /search over the given index. Must be called before {@link #start()}.
+     */
+    void enableSearch(GistSearchIndex index) {
+        this.searchIndex = index;
+        server.createContext("/search", this::handleSearch);
+    }
+
+    /**
+     * Cluster mode: serves this replica's cached lists to its peers on {@link PeerGistSource#PEER_PATH}
+     * and reports the peer counters on /metrics. Must be called before {@link #start()}.
+     */
+    void enablePeers(PeerGistSource peers) {
+        this.peers = peers;
+        server.createContext(PeerGistSource.PEER_PATH, this::handlePeerRequest);
+    }
+
+    /**
+     * Makes /metrics report the circuit breaker and hedging decorators (either may be null).
+     * Must be called before {@link #start()}.
+     */
+    void reportUpstreamResilience(CircuitBreakerGistSource circuitBreaker, HedgingGistSource hedging) {
+        this.circuitBreaker = circuitBreaker;
+        this.hedging = hedging;
+    }
+
+    /**
+     * Sets how many users of one batch request are fetched at once. Must be called before {@link #start()}.
+     */
+    void limitBatchParallelism(int parallelism) {
+        this.batch = new GistBatch(gistSource, Math.max(1, parallelism));
+    }
+
+    /**
+     * Puts /{username} and batch requests under admission control, and bounds the executor's queue.
+     * Must be called before {@link #start()}.
+     */
+    void limitAdmission(AdmissionController admission) {
+        this.admission = admission;
+        server.setExecutor(admission.guard(executor));
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void shutdown() {
+        server.stop(0); // Stop immediately
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The port the server is bound to.
+     */
+    int port() {
+        return server.getAddress().getPort();
+    }
+
     private static void handleHealthCheck(HttpExchange exchange) throws IOException {
         String response = "OK";
         sendResponse(exchange, 200, response, "text/plain");
     }
 
-    private static void handleGistsRequest(HttpExchange exchange) throws IOException {
+    private void handleCacheStats(HttpExchange exchange) throws IOException {
+        String response = gistSource instanceof CachingGitHubApiClient cache ? gson.toJson(cache.stats()) : "{}";
+        sendResponse(exchange, 200, response, "application/json");
+    }
+
+    private void handleRateLimitStats(HttpExchange exchange) throws IOException {
+        String response = rateLimiter != null ? gson.toJson(rateLimiter.stats()) : "{}";
+        sendResponse(exchange, 200, response, "application/json");
+    }
+
+    /**
+     * GET /search?q=...&language=...&limit=...: gists of every user loaded so far whose description or
+     * file names contain all words of {@code q}, answered from the in-memory index without upstream calls.
+     * The context matches by prefix, so any other path (e.g. the user "searchcode") is a gists request.
+     */
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/search")) {
+            handleGistsRequest(exchange);
+            return;
+        }
+        long started = System.nanoTime();
+        Metrics.requestStarted();
+        try {
+            URI uri = exchange.getRequestURI();
+            String q = queryParameter(uri, "q");
+            String language = queryParameter(uri, "language");
+            if ((q == null || q.isBlank()) && (language == null || language.isBlank())) {
+                sendResponse(exchange, 400, "{\"error\": \"Please specify q and/or language, e.g. /search?q=quicksort&language=Java\"}",
+                        "application/json");
+                return;
+            }
+            int limit = DEFAULT_SEARCH_HITS;
+            String limitParameter = queryParameter(uri, "limit");
+            if (limitParameter != null) {
+                try {
+                    limit = Math.max(0, Math.min(MAX_SEARCH_HITS, Integer.parseInt(limitParameter.trim())));
+                } catch (NumberFormatException e) {
+                    sendResponse(exchange, 400, "{\"error\": \"limit must be a number\"}", "application/json");
+                    return;
+                }
+            }
+            sendResponse(exchange, 200, gson.toJson(searchIndex.search(q, language, limit)), "application/json");
+        } finally {
+            Metrics.requestFinished(started);
+        }
+    }
+
+    /**
+     * Prometheus text exposition of Metrics plus the executor, cache and rate limiter state.
+     * Any path other than exactly /metrics (e.g. the user "metricsfan") is a gists request.
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/metrics")) {
+            handleGistsRequest(exchange);
+            return;
+        }
+        StringBuilder out = new StringBuilder(8192);
+        Metrics.writePrometheus(out);
+        Metrics.gauge(out, "gist_executor_queue_depth", "Tasks waiting for a handler thread.", queueDepth(executor));
+        if (gistSource instanceof CachingGitHubApiClient cache) {
+            CachingGitHubApiClient.CacheStats stats = cache.stats();
+            Metrics.counter(out, "gist_cache_hits_total", "Lookups answered from the in-memory cache.", stats.hits());
+            Metrics.counter(out, "gist_cache_negative_hits_total", "Lookups answered from a cached user-not-found result.", stats.negativeHits());
+            Metrics.counter(out, "gist_cache_misses_total", "Lookups that went to the upstream.", stats.misses());
+            Metrics.counter(out, "gist_cache_evictions_total", "Entries evicted to stay within the cache bounds.", stats.evictions());
+            Metrics.counter(out, "gist_cache_stale_hits_total", "Lookups answered with an expired entry.", stats.staleHits());
+            Metrics.counter(out, "gist_cache_refreshes_total", "Background refreshes started.", stats.refreshes());
+            Metrics.gauge(out, "gist_cache_entries", "Usernames held in the cache.", stats.entries());
+            Metrics.gauge(out, "gist_cache_bytes", "Estimated heap retained by cached entries.", stats.bytes());
+        }
+        if (admission != null) {
+            AdmissionController.AdmissionStats stats = admission.stats();
+            Metrics.gauge(out, "gist_admission_limit", "Current in-flight request limit.", stats.limit());
+            Metrics.gauge(out, "gist_admission_in_flight", "Requests currently admitted.", stats.inFlight());
+            Metrics.gauge(out, "gist_admission_queued", "Requests waiting for a handler thread.", stats.queued());
+            Metrics.counter(out, "gist_admission_rejected_total", "Requests shed because the in-flight limit was reached.", stats.rejected());
+            Metrics.counter(out, "gist_admission_queue_rejected_total", "Requests shed because the handler queue was full.", stats.queueRejected());
+        }
+        if (rateLimiter != null) {
+            RateLimitScheduler.RateLimitStats stats = rateLimiter.stats();
+            Metrics.counter(out, "gist_upstream_delayed_total", "Upstream calls delayed by the rate limit scheduler.", stats.delayed());
+            Metrics.counter(out, "gist_upstream_rejected_total", "Upstream calls refused by the rate limit scheduler.", stats.rejected());
+            Metrics.gauge(out, "gist_upstream_quota_remaining", "GitHub's last reported remaining quota (-1 if unknown).", stats.upstreamRemaining());
+        }
+        if (peers != null) {
+            PeerGistSource.PeerStats stats = peers.stats();
+            Metrics.gauge(out, "gist_peer_replicas", "Replicas on the consistent-hash ring, including this one.", stats.peers());
+            Metrics.counter(out, "gist_peer_forwarded_total", "Lookups sent to the replica owning the username.", stats.forwarded());
+            Metrics.counter(out, "gist_peer_fallbacks_total", "Forwarded lookups served locally because the owner didn't answer.", stats.fallbacks());
+        }
+        if (searchIndex != null) {
+            GistSearchIndex.SearchStats stats = searchIndex.stats();
+            Metrics.gauge(out, "gist_search_documents", "Gists held in the search index.", stats.documents());
+            Metrics.gauge(out, "gist_search_terms", "Distinct terms in the search index.", stats.terms());
+            Metrics.counter(out, "gist_search_queries_total", "Search queries answered.", stats.queries());
+        }
+        if (contentCache != null) {
+            RawContentCache.RawCacheStats stats = contentCache.stats();
+            Metrics.counter(out, "gist_content_cache_hits_total", "Gist file contents served from the raw content cache.", stats.hits());
+            Metrics.counter(out, "gist_content_cache_misses_total", "Gist file contents not in the raw content cache.", stats.misses());
+            Metrics.gauge(out, "gist_content_cache_bytes", "Estimated heap retained by cached file contents.", stats.bytes());
+        }
+        if (circuitBreaker != null) {
+            CircuitBreakerGistSource.CircuitStats stats = circuitBreaker.stats();
+            Metrics.gauge(out, "gist_circuit_state", "Upstream circuit breaker state (0 closed, 1 open, 2 half-open).", stats.state().ordinal());
+            Metrics.counter(out, "gist_circuit_opened_total", "Times the upstream circuit breaker opened.", stats.opened());
+            Metrics.counter(out, "gist_circuit_rejected_total", "Upstream calls refused while the circuit was open.", stats.rejected());
+        }
+        if (hedging != null) {
+            HedgingGistSource.HedgeStats stats = hedging.stats();
+            Metrics.counter(out, "gist_upstream_hedged_total", "Upstream lookups that sent a second, hedged attempt.", stats.hedged());
+            Metrics.counter(out, "gist_upstream_hedge_wins_total", "Hedged attempts that answered before the original.", stats.hedgeWins());
+            Metrics.gauge(out, "gist_upstream_hedge_delay_seconds", "Latency after which a lookup is hedged (0 until known).", stats.delayNanos() / 1e9);
+        }
+        sendResponse(exchange, 200, out.toString(), "text/plain; version=0.0.4; charset=utf-8");
+    }
+
+    /**
+     * @return How many tasks wait for a thread; thread-per-task executors (virtual threads) never queue.
+     */
+    static long queueDepth(ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor pool) {
+            return pool.getQueue().size();
+        }
+        if (executor instanceof ForkJoinPool pool) {
+            return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+        }
+        return 0;
+    }
+
+    private void handleGistsRequest(HttpExchange exchange) throws IOException {
+        long started = System.nanoTime();
+        Metrics.requestStarted();
         String path = exchange.getRequestURI().getPath();
-        if (path.equals("/")) {
-            String response = "{\"message\": \"Please specify a GitHub username, e.g., /octocat\"}";
+        GistQuery query;
+        try {
+            query = GistQuery.parse(exchange.getRequestURI()); // ?fields=, ?language=, ?since=
+        } catch (IllegalArgumentException e) {
+            try {
+                sendResponse(exchange, 400, "{\"error\": " + gson.toJson(e.getMessage()) + "}", "application/json");
+            } finally {
+                Metrics.requestFinished(started);
+            }
+            return;
+        }
+        String username = path.equals("/") ? null : path.substring(1); // Remove leading slash
+        String users = username == null ? queryParameter(exchange.getRequestURI(), "users") : null;
+        if (username == null && users == null) {
+            try {
+                String response = "{\"message\": \"Please specify a GitHub username, e.g., /octocat\"}";
+                sendResponse(exchange, 400, response, "application/json");
+            } finally {
+                Metrics.requestFinished(started);
+            }
+            return;
+        }
+
+        boolean gzipAccepted = acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (!admit()) {
+            try {
+                shed(exchange, username, query, gzipAccepted);
+            } finally {
+                Metrics.requestFinished(started);
+            }
+            return;
+        }
+
+        if (username != null && username.endsWith(CONTENTS_SUFFIX)) {
+            sendContents(exchange, username.substring(0, username.length() - CONTENTS_SUFFIX.length()), started);
+            return;
+        }
+        if (username != null && username.endsWith(STATS_SUFFIX)) {
+            sendStats(exchange, username.substring(0, username.length() - STATS_SUFFIX.length()), started);
+            return;
+        }
+        if (users != null) {
+            try {
+                sendBatch(exchange, Arrays.asList(users.split(",")), query); // GET /?users=a,b,c
+            } finally {
+                finished(started);
+            }
+            return;
+        }
+        if (streamingClient != null) {
+            try {
+                streamGists(exchange, username, query);
+            } finally {
+                finished(started);
+            }
+            return;
+        }
+
+        // The handler returns as soon as the upstream call is started; the response is written
+        // from the future's callback, so no thread waits on GitHub while the request is in flight.
+        // A synchronous throw becomes a failed future so the callback still answers and releases the slot.
+        CompletableFuture<GistBody> pending;
+        try {
+            pending = query.bodyAsync(gistSource, username, gzipAccepted);
+        } catch (RuntimeException e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
+        pending.whenCompleteAsync((body, error) -> {
+            try {
+                if (error != null) {
+                    sendError(exchange, username, GistSource.unwrap(error));
+                    return;
+                }
+                sendBody(exchange, body, gzipAccepted);
+            } catch (IOException e) {
+                // The client went away before we could answer; nothing else to do
+                System.err.println("Failed to send response for " + username + ": " + e.getMessage());
+                exchange.close();
+            } catch (RuntimeException e) {
+                try {
+                    sendError(exchange, username, e);
+                } catch (IOException ignored) {
+                    exchange.close();
+                }
+            } finally {
+                finished(started);
+            }
+        }, executor);
+    }
+
+    /**
+     * GET /{username}/stats: the user's GistStats aggregates. A cache hit serves the aggregates stored
+     * with the entry, so this only writes a few hundred bytes of JSON whatever the size of the list.
+     * Like /{username}, the response is written from the future's callback.
+     */
+    private void sendStats(HttpExchange exchange, String username, long started) throws IOException {
+        if (username.isEmpty() || username.contains("/")) {
+            try {
+                sendResponse(exchange, 404, "{\"error\": \"Not found\"}", "application/json");
+            } finally {
+                finished(started);
+            }
+            return;
+        }
+        CompletableFuture<GistStats> pending;
+        try {
+            pending = gistSource.getUserStatsAsync(username);
+        } catch (RuntimeException e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
+        pending.whenCompleteAsync((stats, error) -> {
+            try {
+                if (error != null) {
+                    sendError(exchange, username, GistSource.unwrap(error));
+                    return;
+                }
+                sendResponse(exchange, 200, gson.toJson(stats), "application/json");
+            } catch (IOException e) {
+                System.err.println("Failed to send stats for " + username + ": " + e.getMessage());
+                exchange.close();
+            } catch (RuntimeException e) {
+                try {
+                    sendError(exchange, username, e);
+                } catch (IOException ignored) {
+                    exchange.close();
+                }
+            } finally {
+                finished(started);
+            }
+        }, executor);
+    }
+
+    /**
+     * GET /_peer/gists/{username} from another replica that considers this one the owner. Answered like
+     * /{username}, from the cache or by fetching locally, but never forwarded again and without admission
+     * control: the asking replica already admitted the request, and turning it away would only make it
+     * go to GitHub itself.
+     */
+    private void handlePeerRequest(HttpExchange exchange) throws IOException {
+        long started = System.nanoTime();
+        Metrics.requestStarted();
+        String username = exchange.getRequestURI().getPath().substring(PeerGistSource.PEER_PATH.length());
+        boolean gzipAccepted = acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        CompletableFuture<GistBody> body;
+        try {
+            body = PeerGistSource.servingPeer(() -> gistSource.getGistBodyAsync(username));
+        } catch (RuntimeException e) {
+            body = CompletableFuture.failedFuture(e);
+        }
+        body.whenCompleteAsync((result, error) -> {
+            try {
+                if (error != null) {
+                    sendError(exchange, username, GistSource.unwrap(error));
+                    return;
+                }
+                sendBody(exchange, result, gzipAccepted);
+            } catch (IOException e) {
+                System.err.println("Failed to answer peer for " + username + ": " + e.getMessage());
+                exchange.close();
+            } catch (RuntimeException e) {
+                try {
+                    sendError(exchange, username, e);
+                } catch (IOException ignored) {
+                    exchange.close();
+                }
+            } finally {
+                Metrics.requestFinished(started);
+            }
+        }, executor);
+    }
+
+    /**
+     * Sends an already serialized (and compressed if useful) body, picking the encoding the client accepts.
+     */
+    private static void sendBody(HttpExchange exchange, GistBody body, boolean gzipAccepted) throws IOException {
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (gzipAccepted && body.gzip() != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            sendResponse(exchange, 200, body.gzip(), "application/json");
+        } else {
+            sendResponse(exchange, 200, body.json(), "application/json");
+        }
+    }
+
+    /**
+     * @return True if the request may go ahead; every true result must be followed by {@link #finished}.
+     */
+    private boolean admit() {
+        return admission == null || (!AdmissionController.isShedding() && admission.tryAcquire());
+    }
+
+    /**
+     * Releases an admitted request's slot and records its handler time.
+     */
+    private void finished(long started) {
+        if (admission != null) {
+            admission.release();
+        }
+        Metrics.requestFinished(started);
+    }
+
+    /**
+     * Answers a request turned away by admission control without any upstream work: from the cache if
+     * it holds the user (even expired, marked with X-Load-Shed: cache), otherwise with a fast 503 and
+     * Retry-After so clients back off instead of piling up behind a slow GitHub.
+     *
+     * @param username The requested user, or null for batch requests (which are always answered with 503).
+     */
+    private void shed(HttpExchange exchange, String username, GistQuery query, boolean gzipAccepted) throws IOException {
+        if (username != null && username.endsWith(STATS_SUFFIX) && gistSource instanceof CachingGitHubApiClient cache) {
+            GistStats stats = cache.peekStats(username.substring(0, username.length() - STATS_SUFFIX.length()));
+            if (stats != null) {
+                exchange.getResponseHeaders().set("X-Load-Shed", "cache");
+                sendResponse(exchange, 200, gson.toJson(stats), "application/json");
+                return;
+            }
+        } else if (username != null && gistSource instanceof CachingGitHubApiClient cache) {
+            GistBody body;
+            if (query.isAll()) {
+                body = cache.peekBody(username);
+            } else {
+                List<Gist> gists = cache.peek(username);
+                body = gists == null ? null : query.body(gists, gzipAccepted);
+            }
+            if (body != null) {
+                exchange.getResponseHeaders().set("X-Load-Shed", "cache");
+                sendBody(exchange, body, gzipAccepted);
+                return;
+            }
+        }
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendResponse(exchange, 503, "{\"error\": \"Server is overloaded, please retry shortly.\"}", "application/json");
+    }
+
+    /**
+     * POST /batch with a JSON array of usernames. Any other request to /batch is the gists of the
+     * GitHub user "batch", as before.
+     */
+    private void handleBatchRequest(HttpExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod()) || !exchange.getRequestURI().getPath().equals("/batch")) {
+            handleGistsRequest(exchange);
+            return;
+        }
+
+        long started = System.nanoTime();
+        Metrics.requestStarted();
+        GistQuery query;
+        try {
+            query = GistQuery.parse(exchange.getRequestURI()); // POST /batch?fields=id also projects
+        } catch (IllegalArgumentException e) {
+            try {
+                sendResponse(exchange, 400, "{\"error\": " + gson.toJson(e.getMessage()) + "}", "application/json");
+            } finally {
+                Metrics.requestFinished(started);
+            }
+            return;
+        }
+        if (!admit()) {
+            try {
+                shed(exchange, null, query, false);
+            } finally {
+                Metrics.requestFinished(started);
+            }
+            return;
+        }
+        try {
+            List<String> requested;
+            try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                String[] usernames = gson.fromJson(reader, String[].class);
+                requested = usernames == null ? List.of() : Arrays.asList(usernames);
+            } catch (JsonParseException e) {
+                sendResponse(exchange, 400, "{\"error\": \"Expected a JSON array of usernames, e.g. [\\\"octocat\\\"]\"}", "application/json");
+                return;
+            }
+            sendBatch(exchange, requested, query);
+        } finally {
+            finished(started);
+        }
+    }
+
+    /**
+     * Answers a batch with a JSON object keyed by username. Repeated names are fetched once and at most
+     * a few users are fetched at a time. Each user's entry is written as soon as it is ready (in
+     * completion order), and a user that fails gets an error entry instead of failing the whole batch.
+     * Runs on the handler thread, which blocks until every user is answered.
+     */
+    private void sendBatch(HttpExchange exchange, List<String> requested, GistQuery query) throws IOException {
+        List<String> usernames = GistBatch.usernames(requested);
+        if (usernames.isEmpty() || usernames.size() > MAX_BATCH_USERS) {
+            String response = "{\"error\": \"A batch needs between 1 and " + MAX_BATCH_USERS + " usernames\"}";
+            sendResponse(exchange, 400, response, "application/json");
+            return;
+        }
+
+        BlockingQueue<GistBatch.Result> results = batch.fetch(usernames, query);
+        boolean gzip = acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0); // Length unknown up front: use chunked encoding
+        Metrics.recordResponse(200);
+        // syncFlush so every flush below actually reaches the client when compressing
+        try (OutputStream out = gzip ? new GZIPOutputStream(exchange.getResponseBody(), true) : exchange.getResponseBody()) {
+            out.write('{');
+            for (int i = 0; i < usernames.size(); i++) {
+                GistBatch.Result result = results.take();
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(gson.toJson(result.username()).getBytes(StandardCharsets.UTF_8));
+                out.write(':');
+                out.write(result.error() == null ? result.body().json() : batchError(result.error()));
+                out.flush();
+            }
+            out.write('}');
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        } catch (IOException e) {
+            // Headers are already sent, so the best we can do is cut the response short
+            System.err.println("Error streaming batch of " + usernames.size() + " users: " + e.getMessage());
+            exchange.close();
+        }
+    }
+
+    /**
+     * GET /{username}/contents[?gist={id}]: the contents of the user's gist files (or of one gist) as a
+     * JSON array, so a client needs one round trip instead of one per file. Files are downloaded a few at
+     * a time and each entry is written as soon as its file is ready (in completion order):
+     * {"gistId", "filename", "language", "size", "truncated", "encoding": "utf-8" or "base64", "content"},
+     * or {"gistId", "filename", "status", "error"} for a file that couldn't be fetched.
+     * Like /{username}, the gist list is looked up asynchronously; the entries are then written from the
+     * future's callback, which waits for each download (every one is bounded by the request timeout).
+     */
+    private void sendContents(HttpExchange exchange, String username, long started) throws IOException {
+        if (contents == null || username.isEmpty() || username.contains("/")) {
+            try {
+                sendResponse(exchange, 404, "{\"error\": \"Not found\"}", "application/json");
+            } finally {
+                finished(started);
+            }
+            return;
+        }
+        CompletableFuture<List<Gist>> pending;
+        try {
+            pending = gistSource.getUserGistsAsync(username);
+        } catch (RuntimeException e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
+        pending.whenCompleteAsync((gists, error) -> {
+            try {
+                if (error != null) {
+                    sendError(exchange, username, GistSource.unwrap(error));
+                    return;
+                }
+                streamContents(exchange, username, gists == null ? List.of() : gists);
+            } catch (IOException e) {
+                System.err.println("Failed to send contents of " + username + ": " + e.getMessage());
+                exchange.close();
+            } catch (RuntimeException e) {
+                try {
+                    sendError(exchange, username, e);
+                } catch (IOException ignored) {
+                    exchange.close();
+                }
+            } finally {
+                finished(started);
+            }
+        }, executor);
+    }
+
+    private void streamContents(HttpExchange exchange, String username, List<Gist> gists) throws IOException {
+        List<GistContents.FileRef> files = GistContents.files(gists, queryParameter(exchange.getRequestURI(), "gist"));
+        if (files.size() > maxContentFiles) {
+            String response = "{\"error\": \"" + username + " has " + files.size() + " files; at most " + maxContentFiles
+                    + " can be fetched at once, pick one gist with ?gist={id}\"}";
             sendResponse(exchange, 400, response, "application/json");
             return;
         }
 
-        String username = path.substring(1); // Remove leading slash
-        String responseBody = "{}"; // Initialize with an empty JSON object as a safe default
-        int statusCode = 200;
-        String contentType = "application/json"; // Default for JSON responses
+        BlockingQueue<GistContents.Result> results = contents.fetch(files);
+        boolean gzip = acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0); // Length unknown up front: use chunked encoding
+        Metrics.recordResponse(200);
+        try (OutputStream out = gzip ? new GZIPOutputStream(exchange.getResponseBody(), true) : exchange.getResponseBody()) {
+            out.write('[');
+            for (int i = 0; i < files.size(); i++) {
+                GistContents.Result result = results.take();
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(gson.toJson(contentEntry(result)).getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            out.write(']');
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        } catch (IOException e) {
+            // Headers are already sent, so the best we can do is cut the response short
+            System.err.println("Error streaming contents of " + username + ": " + e.getMessage());
+            exchange.close();
+        }
+    }
+
+    private static JsonObject contentEntry(GistContents.Result result) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("gistId", result.file().gistId());
+        entry.addProperty("filename", result.file().filename());
+        if (result.error() != null) {
+            entry.addProperty("status", 502); // The raw download failed, not this request
+            entry.addProperty("error", String.valueOf(result.error().getMessage()));
+            return entry;
+        }
+        entry.addProperty("language", result.file().language());
+        entry.addProperty("size", result.content().bytes().length);
+        entry.addProperty("truncated", result.content().truncated());
+        String text = GistContents.text(result.content());
+        entry.addProperty("encoding", text != null ? "utf-8" : "base64");
+        entry.addProperty("content", text != null ? text : Base64.getEncoder().encodeToString(result.content().bytes()));
+        return entry;
+    }
+
+    /**
+     * The entry for a user whose lookup failed, e.g. {"status": 404, "error": "..."}, using the same
+     * status codes a /{username} request would get.
+     */
+    private static byte[] batchError(Throwable cause) {
+        JsonObject error = new JsonObject();
+        if (cause instanceof GitHubApiClient.UserNotFoundException) {
+            error.addProperty("status", 404);
+        } else if (cause instanceof GitHubApiClient.TooManyRequestsException tooMany) {
+            error.addProperty("status", 429);
+            if (tooMany.retryAfterSeconds() > 0) {
+                error.addProperty("retryAfterSeconds", tooMany.retryAfterSeconds());
+            }
+        } else if (cause instanceof CircuitBreakerGistSource.CircuitOpenException open) {
+            error.addProperty("status", 503);
+            error.addProperty("retryAfterSeconds", open.retryAfterSeconds());
+        } else {
+            System.err.println("Error fetching gists in batch: " + cause.getMessage());
+            error.addProperty("status", 500);
+        }
+        error.addProperty("error", String.valueOf(cause.getMessage()));
+        return gson.toJson(error).getBytes(StandardCharsets.UTF_8);
+    }
 
+    /**
+     * Streaming mode: pipes the upstream pages through a JsonReader/JsonWriter pair straight into
+     * the response, one gist at a time, so the payload is never held as a String or byte[].
+     * Each page is flushed to the client as soon as it has been copied, while later pages are
+     * still being fetched. Runs on the handler thread, which blocks while reading from GitHub.
+     * A projection or filter is applied while copying, so skipped fields are never materialized.
+     */
+    private void streamGists(HttpExchange exchange, String username, GistQuery query) throws IOException {
+        GitHubApiClient.PageStream pages;
         try {
-            List<Gist> gists = gitHubApiClient.getUserGists(username);
-            responseBody = gson.toJson(gists);
-        } catch (GitHubApiClient.UserNotFoundException e) {
-            statusCode = 404;
-            responseBody = "{\"error\": \"" + e.getMessage() + "\"}";
-        } catch (GitHubApiClient.TooManyRequestsException e) {
-            statusCode = 429;
-            responseBody = "{\"error\": \"" + e.getMessage() + "\"}";
+            pages = streamingClient.openUserGists(username);
         } catch (Exception e) {
-            statusCode = 500;
-            responseBody = "{\"error\": \"Internal Server Error: " + e.getMessage() + "\"}";
-            System.err.println("Error fetching gists for " + username + ": " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            sendResponse(exchange, statusCode, responseBody, contentType);
+            sendError(exchange, username, e);
+            return;
+        }
+
+        try (pages) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0); // Length unknown up front: use chunked encoding
+            Metrics.recordResponse(200);
+            JsonWriter out = new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+            out.setSerializeNulls(false); // Omit null fields, as Gson does
+            out.beginArray();
+            while (pages.hasNext()) {
+                try (InputStream page = pages.next()) {
+                    JsonReader in = new JsonReader(new InputStreamReader(page, StandardCharsets.UTF_8));
+                    if (query.isAll()) {
+                        GistJson.copyGistElements(gson, in, out);
+                    } else {
+                        query.copyGistElements(in, out);
+                    }
+                }
+                out.flush();
+            }
+            out.endArray();
+            out.close();
+        } catch (IOException | RuntimeException e) {
+            // Headers are already sent, so the best we can do is cut the response short
+            System.err.println("Error streaming gists for " + username + ": " + e.getMessage());
+            exchange.close();
+        }
+    }
+
+    /**
+     * Maps an upstream failure to the JSON error responses clients rely on (404/429/500).
+     */
+    private static void sendError(HttpExchange exchange, String username, Throwable cause) throws IOException {
+        if (cause instanceof GitHubApiClient.UserNotFoundException) {
+            sendResponse(exchange, 404, "{\"error\": \"" + cause.getMessage() + "\"}", "application/json");
+        } else if (cause instanceof GitHubApiClient.TooManyRequestsException tooMany) {
+            if (tooMany.retryAfterSeconds() > 0) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(tooMany.retryAfterSeconds()));
+            }
+            sendResponse(exchange, 429, "{\"error\": \"" + cause.getMessage() + "\"}", "application/json");
+        } else if (cause instanceof CircuitBreakerGistSource.CircuitOpenException open) {
+            // GitHub is known to be down and the cache had nothing for this user: fail fast, no stack trace
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(open.retryAfterSeconds()));
+            sendResponse(exchange, 503, "{\"error\": \"" + cause.getMessage() + "\"}", "application/json");
+        } else {
+            System.err.println("Error fetching gists for " + username + ": " + cause.getMessage());
+            cause.printStackTrace();
+            sendResponse(exchange, 500, "{\"error\": \"Internal Server Error: " + cause.getMessage() + "\"}", "application/json");
         }
     }
 
     private static void sendResponse(HttpExchange exchange, int statusCode, String responseBody, String contentType) throws IOException {
+        sendResponse(exchange, statusCode, responseBody.getBytes(StandardCharsets.UTF_8), contentType);
+    }
+
+    private static void sendResponse(HttpExchange exchange, int statusCode, byte[] responseBody, String contentType) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", contentType);
-        exchange.sendResponseHeaders(statusCode, responseBody.length());
+        // Content-Length is the byte count, which differs from the character count for non-ASCII text
+        exchange.sendResponseHeaders(statusCode, responseBody.length);
+        Metrics.recordResponse(statusCode);
         OutputStream os = exchange.getResponseBody();
-        os.write(responseBody.getBytes());
+        os.write(responseBody);
         os.close();
     }
+
+    /**
+     * @return The decoded value of a query parameter, or null if the URI doesn't have it.
+     */
+    static String queryParameter(URI uri, String name) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether an Accept-Encoding header allows gzip, e.g. "gzip, deflate, br" but not "gzip;q=0".
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.equals("q=0") || parameter.matches("q=0\\.0*")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Default heap budget for an in-memory store: a fraction of the JVM's maximum heap, so the
+     * defaults together stay within whatever -Xmx or container limit the server runs with.
+     */
+    private static long heapShare(double fraction) {
+        return (long) (Runtime.getRuntime().maxMemory() * fraction);
+    }
+
+    /**
+     * Reads a numeric setting from the environment, falling back to a default when unset or invalid.
+     */
+    private static long envLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + name + ": " + value + ". Using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Reads an on/off setting from the environment ("true" enables it).
+     */
+    private static boolean envBoolean(String name, boolean defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+// GistSource.java
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Anything that can produce the public Gists of a GitHub user.
+ * GitHubApiClient talks to the real GitHub API; decorators such as
+ * CachingGitHubApiClient wrap another GistSource and add behaviour on top.
+ */
+public interface GistSource {
+
+    /**
+     * Fetches a list of public Gists for a given GitHub username.
+     *
+     * @param username The GitHub username.
+     * @return A List of Gist objects.
+     * @throws GitHubApiClient.UserNotFoundException If the GitHub user is not found.
+     * @throws GitHubApiClient.TooManyRequestsException If the GitHub API rate limit is exceeded.
+     * @throws Exception For any other error while fetching the Gists.
+     */
+    List<Gist> getUserGists(String username) throws Exception;
+
+    /**
+     * Fetches a list of public Gists without blocking the calling thread.
+     * The default implementation simply runs {@link #getUserGists(String)} on the calling thread,
+     * which is fine for in-memory sources; sources that do I/O override it.
+     *
+     * @param username The GitHub username.
+     * @return A future completed with the Gists, or exceptionally with the exception getUserGists would throw.
+     */
+    default CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+        try {
+            return CompletableFuture.completedFuture(getUserGists(username));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Fetches the Gists of a user as a ready-to-send response body.
+     * The default implementation serializes the result of {@link #getUserGistsAsync(String)};
+     * caches override it to hand out a body that was serialized once when the entry was stored.
+     *
+     * @param username The GitHub username.
+     * @return A future completed with the serialized body, or exceptionally like getUserGistsAsync.
+     */
+    default CompletableFuture<GistBody> getGistBodyAsync(String username) {
+        return getUserGistsAsync(username).thenApply(GistBody::of);
+    }
+
+    /**
+     * Fetches the aggregate statistics of a user's Gists (GET /{username}/stats).
+     * The default implementation computes them from {@link #getUserGistsAsync(String)};
+     * caches override it to hand out the aggregates computed once when the entry was stored.
+     *
+     * @param username The GitHub username.
+     * @return A future completed with the statistics, or exceptionally like getUserGistsAsync.
+     */
+    default CompletableFuture<GistStats> getUserStatsAsync(String username) {
+        return getUserGistsAsync(username).thenApply(gists -> GistStats.of(gists == null ? List.of() : gists));
+    }
+
+    /**
+     * Strips the CompletionException/ExecutionException wrappers CompletableFuture adds,
+     * so callers can map the original exception (e.g. UserNotFoundException) as before.
+     */
+    static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,125 @@
+// GistStats.java
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates over one user's gist list, the body of GET /{username}/stats.
+ *
+ * Dashboards used to download whole gist lists only to compute these numbers. CachingGitHubApiClient
+ * computes them once when a list is loaded and keeps them with the cache entry, so repeated
+ * /stats requests only serialize this small record. Instances are immutable.
+ *
+ * @param gists Number of gists.
+ * @param files Number of files across all gists.
+ * @param totalBytes Sum of the file sizes GitHub reports.
+ * @param languages Files and bytes per language, largest first; files without a language count as "Other".
+ * @param gistsPerMonth Gists created per month ("2024-01"), oldest first; gists without a valid creation time are left out.
+ * @param firstCreatedAt Creation time of the oldest gist, or null.
+ * @param lastCreatedAt Creation time of the newest gist, or null.
+ */
+public record GistStats(int gists, int files, long totalBytes, Map<String, LanguageStats> languages,
+                        Map<String, Integer> gistsPerMonth, String firstCreatedAt, String lastCreatedAt) {
+
+    static final String OTHER_LANGUAGE = "Other";
+
+    /**
+     * Files and bytes of one language.
+     */
+    public record LanguageStats(int files, long bytes) {
+    }
+
+    /**
+     * Computes the aggregates of a gist list in a single pass. A CompactGists list is read column by
+     * column, without decoding Gist or GistFile objects.
+     */
+    public static GistStats of(List<Gist> gists) {
+        Accumulator stats = new Accumulator();
+        if (gists instanceof CompactGists compact) {
+            for (int i = 0; i < compact.size(); i++) {
+                if (compact.hasFiles(i)) {
+                    for (int file = compact.filesStart(i), end = compact.filesEnd(i); file < end; file++) {
+                        stats.file(compact.fileSize(file), compact.fileLanguage(file));
+                    }
+                }
+                stats.created(compact.createdInstant(i));
+            }
+        } else {
+            for (Gist gist : gists) {
+                if (gist.getFiles() != null) {
+                    for (GistFile file : gist.getFiles().values()) {
+                        stats.file(file == null ? 0 : file.getSize(), file == null ? null : file.getLanguage());
+                    }
+                }
+                stats.created(createdAt(gist));
+            }
+        }
+        return stats.finish(gists.size());
+    }
+
+    /**
+     * @return Approximate heap retained by these aggregates, used for cache size accounting.
+     */
+    public long retainedBytes() {
+        return 96 + 96L * languages.size() + 72L * gistsPerMonth.size() + (firstCreatedAt == null ? 0 : 2 * 60);
+    }
+
+    /**
+     * Running totals while a list is scanned.
+     */
+    private static final class Accumulator {
+        private int files;
+        private long totalBytes;
+        private final Map<String, long[]> languages = new HashMap<>(); // language -> {files, bytes}
+        private final Map<String, Integer> perMonth = new TreeMap<>(); // "yyyy-MM" sorts chronologically
+        private Instant first;
+        private Instant last;
+
+        void file(long size, String language) {
+            long[] counts = languages.computeIfAbsent(language == null ? OTHER_LANGUAGE : language, key -> new long[2]);
+            counts[0]++;
+            counts[1] += size;
+            files++;
+            totalBytes += size;
+        }
+
+        void created(Instant created) {
+            if (created != null) {
+                perMonth.merge(YearMonth.from(created.atOffset(ZoneOffset.UTC)).toString(), 1, Integer::sum);
+                first = first == null || created.isBefore(first) ? created : first;
+                last = last == null || created.isAfter(last) ? created : last;
+            }
+        }
+
+        GistStats finish(int gists) {
+            // Largest languages first, ties by name so the output is stable
+            List<Map.Entry<String, long[]>> byBytes = new ArrayList<>(languages.entrySet());
+            byBytes.sort((a, b) -> a.getValue()[1] != b.getValue()[1]
+                    ? Long.compare(b.getValue()[1], a.getValue()[1])
+                    : a.getKey().compareTo(b.getKey()));
+            Map<String, LanguageStats> languageStats = new LinkedHashMap<>();
+            for (Map.Entry<String, long[]> language : byBytes) {
+                languageStats.put(language.getKey(), new LanguageStats((int) language.getValue()[0], language.getValue()[1]));
+            }
+            return new GistStats(gists, files, totalBytes, Collections.unmodifiableMap(languageStats),
+                    Collections.unmodifiableMap(new LinkedHashMap<>(perMonth)),
+                    first == null ? null : first.toString(), last == null ? null : last.toString());
+        }
+    }
+
+    private static Instant createdAt(Gist gist) {
+        try {
+            return gist.getCreatedAt() == null ? null : Instant.parse(gist.getCreatedAt());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
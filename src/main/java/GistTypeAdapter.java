@@ -0,0 +1,97 @@
+// GistTypeAdapter.java
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hand-written Gson binding for Gist, registered with {@code @JsonAdapter} so every Gson instance
+ * (GitHubApiClient, GistBody, the disk cache, ...) uses it.
+ *
+ * Produces and accepts the same JSON as Gson's reflective binding, but a GitHub gist carries about twenty
+ * fields of which five are kept: the unused ones ({@code owner}, {@code forks_url}, {@code history},
+ * {@code comments}, ...) are skipped token by token without binding them, and the files map is read and
+ * written here with GistFileTypeAdapter directly rather than through Gson's map and reflective adapters.
+ * Stateless, so one instance is shared.
+ */
+public final class GistTypeAdapter extends TypeAdapter<Gist> {
+
+    @Override
+    public void write(JsonWriter out, Gist gist) throws IOException {
+        if (gist == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(gist.getId());
+        out.name("description").value(gist.getDescription());
+        out.name("url").value(gist.getUrl());
+        out.name("created_at").value(gist.getCreatedAt());
+        out.name("files");
+        writeFiles(out, gist.getFiles());
+        out.endObject();
+    }
+
+    @Override
+    public Gist read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Gist gist = new Gist();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id" -> gist.setId(GistFileTypeAdapter.readString(in));
+                case "description" -> gist.setDescription(GistFileTypeAdapter.readString(in));
+                case "url" -> gist.setUrl(GistFileTypeAdapter.readString(in));
+                case "created_at" -> gist.setCreatedAt(GistFileTypeAdapter.readString(in));
+                case "files" -> gist.setFiles(readFiles(in));
+                default -> in.skipValue(); // Upstream fields we never keep
+            }
+        }
+        in.endObject();
+        return gist;
+    }
+
+    /**
+     * Writes a files map the way Gson writes a {@code Map<String, GistFile>}.
+     */
+    static void writeFiles(JsonWriter out, Map<String, GistFile> files) throws IOException {
+        if (files == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        for (Map.Entry<String, GistFile> file : files.entrySet()) {
+            out.name(file.getKey());
+            GistFileTypeAdapter.INSTANCE.write(out, file.getValue());
+        }
+        out.endObject();
+    }
+
+    /**
+     * Reads a files object into an insertion-ordered map, the way Gson reads a {@code Map<String, GistFile>}.
+     */
+    static Map<String, GistFile> readFiles(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Map<String, GistFile> files = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            GistFile file = GistFileTypeAdapter.INSTANCE.read(in);
+            if (files.put(name, file) != null) {
+                throw new JsonSyntaxException("duplicate key: " + name);
+            }
+        }
+        in.endObject();
+        return files;
+    }
+}
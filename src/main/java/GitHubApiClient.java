@@ -1,19 +1,52 @@
 // GitHubApiClient.java
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Type;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-public class GitHubApiClient {
+public class GitHubApiClient implements GistSource {
 
-    private static final String GITHUB_API_BASE_URL = "https://api.github.com";
+    public static final String DEFAULT_BASE_URL = "https://api.github.com";
+    public static final long DEFAULT_MAX_VALIDATOR_BYTES = 16L * 1024 * 1024; // Bounds the per-URL ETag store below
+    private static final int PER_PAGE = 100; // GitHub's maximum page size
+    private static final int MAX_PAGES = 30; // GitHub only lists the first 3000 gists of a user
+    private static final int MAX_CONCURRENT_PAGES = 4; // Pages fetched in parallel after the first one
+    private static final Pattern PAGE_PARAMETER = Pattern.compile("[?&]page=(\\d+)");
     private final HttpClient httpClient;
     private final Gson gson;
+    private final RateLimitScheduler rateLimiter; // Paces every request sent to GitHub
+    private final Duration requestTimeout; // Per-request timeout, or null for none
+    private final String baseUrl; // GitHub API root, without a trailing slash
+
+    // Last successful response per request URL, used to send conditional requests.
+    // Access-ordered so the least recently used URLs are dropped once maxValidatorBytes is exceeded.
+    private final LinkedHashMap<String, Validated> validators = new LinkedHashMap<>(16, 0.75f, true);
+    private long validatorBytes; // Guarded by validators
+    private volatile long maxValidatorBytes = DEFAULT_MAX_VALIDATOR_BYTES;
+    private final LongAdder notModifiedResponses = new LongAdder();
 
     /**
      * Constructs a GitHubApiClient with specific HttpClient and Gson instances.
@@ -24,8 +57,46 @@ public class GitHubApiClient {
      * @param gson The Gson instance to use for JSON serialization/deserialization.
      */
     public GitHubApiClient(HttpClient httpClient, Gson gson) {
+        this(httpClient, gson, RateLimitScheduler.unlimited());
+    }
+
+    /**
+     * Constructs a GitHubApiClient whose upstream calls are paced by the given scheduler.
+     * The scheduler is also fed the rate limit headers of every response.
+     *
+     * @param httpClient The HttpClient instance to use for making HTTP requests.
+     * @param gson The Gson instance to use for JSON serialization/deserialization.
+     * @param rateLimiter The scheduler shared by all upstream calls.
+     */
+    public GitHubApiClient(HttpClient httpClient, Gson gson, RateLimitScheduler rateLimiter) {
+        this(httpClient, gson, rateLimiter, null);
+    }
+
+    /**
+     * Constructs a GitHubApiClient whose requests each fail with HttpTimeoutException if GitHub
+     * hasn't answered within {@code requestTimeout}.
+     *
+     * @param httpClient The HttpClient instance to use, e.g. from {@link UpstreamTransport#newHttpClient()}.
+     * @param gson The Gson instance to use for JSON serialization/deserialization.
+     * @param rateLimiter The scheduler shared by all upstream calls.
+     * @param requestTimeout Per-request timeout, or null to wait indefinitely.
+     */
+    public GitHubApiClient(HttpClient httpClient, Gson gson, RateLimitScheduler rateLimiter, Duration requestTimeout) {
+        this(httpClient, gson, rateLimiter, requestTimeout, DEFAULT_BASE_URL);
+    }
+
+    /**
+     * Like {@link #GitHubApiClient(HttpClient, Gson, RateLimitScheduler, Duration)}, but talks to {@code baseUrl}
+     * instead of api.github.com: a GitHub Enterprise server, a proxy, or a local stub for load tests.
+     *
+     * @param baseUrl API root such as {@value #DEFAULT_BASE_URL} (a trailing slash is ignored).
+     */
+    public GitHubApiClient(HttpClient httpClient, Gson gson, RateLimitScheduler rateLimiter, Duration requestTimeout, String baseUrl) {
         this.httpClient = httpClient;
         this.gson = gson;
+        this.rateLimiter = rateLimiter;
+        this.requestTimeout = requestTimeout;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
     }
 
     /**
@@ -34,43 +105,459 @@ public class GitHubApiClient {
      * where mocking is not required (e.g., in GistServer).
      */
     public GitHubApiClient() {
-        // Initialize with default HttpClient and Gson implementations
-        this(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), new Gson());
+        // Initialize with the default transport (HTTP/2, timeouts, dedicated executor) and Gson
+        this(UpstreamTransport.defaults().newHttpClient(), new Gson(), RateLimitScheduler.unlimited(),
+                UpstreamTransport.defaults().requestTimeout());
+    }
+
+    /**
+     * Bounds the estimated heap retained by the ETag store (validators plus the packed page they vouch for).
+     * Least recently used URLs are dropped first; their next request is simply sent unconditionally.
+     * A single-page list is stored as the same CompactGists instance the cache keeps, so for most users
+     * the store only adds the validators themselves.
+     *
+     * @param maxBytes Maximum estimated bytes; 0 disables conditional requests.
+     */
+    public void limitValidatorBytes(long maxBytes) {
+        maxValidatorBytes = maxBytes;
+        synchronized (validators) {
+            evictValidators();
+        }
+    }
+
+    /**
+     * Opens the connection to GitHub ahead of the first user request, so that request doesn't pay
+     * for DNS, TCP and the TLS handshake. Uses GET /rate_limit, which doesn't count against the
+     * rate limit, and feeds its headers to the scheduler so the remaining quota is known up front.
+     *
+     * @return A future completed with the HTTP status, or exceptionally if GitHub couldn't be reached.
+     */
+    public CompletableFuture<Integer> warmUp() {
+        return timedSendAsync(buildRequest(baseUrl + "/rate_limit", null), HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> {
+                    rateLimiter.observe(response.statusCode(), response.headers());
+                    return response.statusCode();
+                });
     }
 
     /**
      * Fetches a list of public Gists for a given GitHub username.
+     * All pages are fetched (100 gists per page); once the first page's Link header tells us the
+     * last page number, the remaining pages are requested concurrently with bounded parallelism.
+     * If an earlier response for the same URL carried an ETag or Last-Modified header, the request
+     * is sent as a conditional request and a 304 Not Modified reuses the previously parsed list.
+     * Every request first takes its turn from the RateLimitScheduler, which may delay it briefly.
      *
      * @param username The GitHub username.
      * @return A List of Gist objects.
      * @throws IOException If a network-related or I/O error occurs.
      * @throws InterruptedException If the operation is interrupted.
      * @throws UserNotFoundException If the GitHub user is not found (HTTP 404).
-     * @throws TooManyRequestsException If the GitHub API rate limit is exceeded (HTTP 429).
+     * @throws TooManyRequestsException If the GitHub API rate limit is exceeded (HTTP 429), or the
+     *         scheduler has no budget left for the request.
      * @throws Exception For any other unexpected HTTP API errors.
      */
+    @Override
     public List<Gist> getUserGists(String username) throws IOException, InterruptedException, UserNotFoundException, TooManyRequestsException, Exception {
-        String url = GITHUB_API_BASE_URL + "/users/" + username + "/gists";
+        RateLimitScheduler.Priority priority = RateLimitScheduler.currentPriority();
+        String url = pageUrl(username, 1);
+        Validated previous = previousResponse(url);
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Accept", "application/vnd.github+json")
-                .build();
+        awaitTurn(priority);
+        long started = System.nanoTime();
+        HttpResponse<String> response = httpClient.send(buildRequest(url, previous), HttpResponse.BodyHandlers.ofString());
+        Metrics.UPSTREAM_REQUEST.recordSince(started);
+        Page first = toPage(username, url, previous, response);
+        if (first.lastPage() <= 1) {
+            return first.gists();
+        }
+
+        // More pages: fetch them concurrently (bounded), but append them in page order
+        List<Gist> all = new ArrayList<>(first.gists());
+        PagePrefetcher<Page> remaining = remainingPages(username, first.lastPage(), priority);
+        while (remaining.hasNext()) {
+            try {
+                all.addAll(remaining.next().get().gists());
+            } catch (ExecutionException e) {
+                remaining.cancel(page -> { });
+                Throwable cause = GistSource.unwrap(e);
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Non-blocking variant of {@link #getUserGists(String)} built on HttpClient.sendAsync.
+     * No thread is held while the request is in flight; the returned future completes on one of
+     * the HttpClient's threads.
+     *
+     * @param username The GitHub username.
+     * @return A future completed with the Gists, or exceptionally with the same exceptions
+     *         getUserGists would throw (possibly wrapped in a CompletionException).
+     */
+    @Override
+    public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+        // Captured here: the later pages are started from HttpClient threads
+        RateLimitScheduler.Priority priority = RateLimitScheduler.currentPriority();
+        return fetchPageAsync(username, 1, priority).thenCompose(first -> {
+            if (first.lastPage() <= 1) {
+                return CompletableFuture.completedFuture(first.gists());
+            }
+            PagePrefetcher<Page> remaining = remainingPages(username, first.lastPage(), priority);
+            return collectPages(remaining, new ArrayList<>(first.gists()))
+                    .whenComplete((gists, error) -> {
+                        if (error != null) {
+                            remaining.cancel(page -> { });
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Opens the raw JSON bodies of a user's Gist list for streaming, without reading them into memory.
+     * The first page is requested straight away so error statuses are mapped to the same exceptions
+     * as {@link #getUserGists(String)}; further pages are prefetched concurrently (bounded) while
+     * the caller reads the previous ones. The caller must close the returned PageStream.
+     *
+     * @param username The GitHub username.
+     * @return The upstream pages, each a JSON array of gists.
+     * @throws UserNotFoundException If the GitHub user is not found (HTTP 404).
+     * @throws TooManyRequestsException If the GitHub API rate limit is exceeded (HTTP 429).
+     * @throws Exception For any other unexpected HTTP API errors.
+     */
+    public PageStream openUserGists(String username) throws Exception {
+        RateLimitScheduler.Priority priority = RateLimitScheduler.currentPriority();
+        awaitTurn(priority);
+        long started = System.nanoTime();
+        HttpResponse<InputStream> response = httpClient.send(buildRequest(pageUrl(username, 1), null), HttpResponse.BodyHandlers.ofInputStream());
+        Metrics.UPSTREAM_REQUEST.recordSince(started); // Time to the response headers; the body is streamed later
+        InputStream firstPage = checkedBody(username, response);
+        int lastPage = lastPageFromLink(headerValue(response, "Link"));
+
+        PagePrefetcher<InputStream> remaining = new PagePrefetcher<>(2, lastPage, MAX_CONCURRENT_PAGES, page ->
+                whenScheduled(priority, () -> timedSendAsync(buildRequest(pageUrl(username, page), null), HttpResponse.BodyHandlers.ofInputStream()))
+                        .thenApply(pageResponse -> {
+                            try {
+                                return checkedBody(username, pageResponse);
+                            } catch (Exception e) {
+                                throw new CompletionException(e);
+                            }
+                        }));
+        return new PageStream(firstPage, remaining);
+    }
+
+    private CompletableFuture<Page> fetchPageAsync(String username, int page, RateLimitScheduler.Priority priority) {
+        String url = pageUrl(username, page);
+        Validated previous = previousResponse(url);
+
+        return whenScheduled(priority, () -> timedSendAsync(buildRequest(url, previous), HttpResponse.BodyHandlers.ofString()))
+                .thenApply(response -> {
+                    try {
+                        return toPage(username, url, previous, response);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private PagePrefetcher<Page> remainingPages(String username, int lastPage, RateLimitScheduler.Priority priority) {
+        return new PagePrefetcher<>(2, lastPage, MAX_CONCURRENT_PAGES, page -> fetchPageAsync(username, page, priority));
+    }
+
+    /**
+     * httpClient.sendAsync that records the request latency in Metrics.UPSTREAM_REQUEST.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> timedSendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        long started = System.nanoTime();
+        return httpClient.sendAsync(request, bodyHandler).whenComplete((response, error) -> Metrics.UPSTREAM_REQUEST.recordSince(started));
+    }
+
+    /**
+     * Blocking form of {@link #whenScheduled}: sleeps until the scheduler lets the request go.
+     */
+    private void awaitTurn(RateLimitScheduler.Priority priority) throws TooManyRequestsException, InterruptedException {
+        long waitMillis = rateLimiter.reserve(priority);
+        if (waitMillis > 0) {
+            Thread.sleep(waitMillis);
+        }
+    }
+
+    /**
+     * Starts {@code send} once the scheduler lets the request go, without blocking the caller.
+     * Fails with TooManyRequestsException if the request can't be scheduled at all.
+     */
+    private <T> CompletableFuture<T> whenScheduled(RateLimitScheduler.Priority priority, Supplier<CompletableFuture<T>> send) {
+        long waitMillis;
+        try {
+            waitMillis = rateLimiter.reserve(priority);
+        } catch (TooManyRequestsException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (waitMillis == 0) {
+            return send.get();
+        }
+        Executor later = CompletableFuture.delayedExecutor(waitMillis, TimeUnit.MILLISECONDS);
+        return CompletableFuture.runAsync(() -> { }, later).thenCompose(ignored -> send.get());
+    }
+
+    private static CompletableFuture<List<Gist>> collectPages(PagePrefetcher<Page> pages, List<Gist> into) {
+        if (!pages.hasNext()) {
+            return CompletableFuture.completedFuture(into);
+        }
+        return pages.next().thenCompose(page -> {
+            into.addAll(page.gists());
+            return collectPages(pages, into);
+        });
+    }
+
+    private String pageUrl(String username, int page) {
+        // The username arrives already decoded from the request path, so it is re-encoded as a single path segment
+        String segment = URLEncoder.encode(username, StandardCharsets.UTF_8).replace("+", "%20");
+        String url = baseUrl + "/users/" + segment + "/gists?per_page=" + PER_PAGE;
+        return page == 1 ? url : url + "&page=" + page;
+    }
+
+    /**
+     * Reads the last page number from a GitHub Link header, e.g.
+     * {@code <https://api.github.com/user/1/gists?per_page=100&page=4>; rel="last"}.
+     *
+     * @return The last page number (capped at MAX_PAGES), or 1 if there is no "last" link.
+     */
+    static int lastPageFromLink(String linkHeader) {
+        if (linkHeader == null) {
+            return 1;
+        }
+        for (String link : linkHeader.split(",")) {
+            if (link.contains("rel=\"last\"")) {
+                Matcher matcher = PAGE_PARAMETER.matcher(link);
+                if (matcher.find()) {
+                    return Math.min(Integer.parseInt(matcher.group(1)), MAX_PAGES);
+                }
+            }
+        }
+        return 1;
+    }
+
+    private InputStream checkedBody(String username, HttpResponse<InputStream> response) throws Exception {
+        int statusCode = response.statusCode();
+        rateLimiter.observe(statusCode, response.headers());
+        if (statusCode == 200) {
+            return response.body();
+        }
+        try (InputStream errorBody = response.body()) {
+            String body = errorBody == null ? "" : new String(errorBody.readAllBytes(), StandardCharsets.UTF_8);
+            throw errorForStatus(username, response, body);
+        }
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    private HttpRequest buildRequest(String url, Validated previous) {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Accept", "application/vnd.github+json");
+        if (requestTimeout != null) {
+            requestBuilder.timeout(requestTimeout);
+        }
+        if (previous != null && previous.etag != null) {
+            requestBuilder.header("If-None-Match", previous.etag);
+        }
+        if (previous != null && previous.lastModified != null) {
+            requestBuilder.header("If-Modified-Since", previous.lastModified);
+        }
+        return requestBuilder.build();
+    }
 
-        if (response.statusCode() == 404) {
-            throw new UserNotFoundException("GitHub user not found: " + username);
-        } else if (response.statusCode() == 429) {
-            throw new TooManyRequestsException("GitHub API rate limit exceeded.");
-        } else if (response.statusCode() != 200) {
-            // Provide a more detailed error message including status and body
-            throw new Exception("GitHub API error: " + response.statusCode() + " - " + response.body());
+    /**
+     * Maps an upstream response to a page of Gists or the matching exception.
+     */
+    private Page toPage(String username, String url, Validated previous, HttpResponse<String> response) throws Exception {
+        int statusCode = response.statusCode();
+        rateLimiter.observe(statusCode, response.headers());
+        if (statusCode == 304 && previous != null) {
+            // Nothing changed upstream; 304s are also free with respect to the GitHub rate limit
+            notModifiedResponses.increment();
+            rateLimiter.refund();
+            return new Page(previous.gists, previous.lastPage);
+        } else if (statusCode != 200) {
+            throw errorForStatus(username, response, response.body());
         }
 
         // Use TypeToken to correctly deserialize a List of Gist objects from JSON
         Type gistListType = new TypeToken<List<Gist>>(){}.getType();
-        return gson.fromJson(response.body(), gistListType);
+        long parseStarted = System.nanoTime();
+        List<Gist> parsed = gson.fromJson(response.body(), gistListType);
+        Metrics.JSON_PARSE.recordSince(parseStarted);
+        // Packed once here, so the ETag store and (for single-page lists) the cache share one copy
+        CompactGists gists = parsed == null ? null : CompactGists.of(parsed);
+        int lastPage = lastPageFromLink(headerValue(response, "Link"));
+        rememberResponse(url, response, gists, lastPage);
+        return new Page(gists, lastPage);
+    }
+
+    /**
+     * Maps a non-200 upstream status to the exception callers expect.
+     * GitHub reports an exhausted primary rate limit as 403 with X-RateLimit-Remaining: 0, so that is
+     * treated like a 429.
+     */
+    private static Exception errorForStatus(String username, HttpResponse<?> response, String body) {
+        int statusCode = response.statusCode();
+        if (statusCode == 404) {
+            return new UserNotFoundException("GitHub user not found: " + username);
+        } else if (statusCode == 429 || (statusCode == 403 && "0".equals(headerValue(response, "X-RateLimit-Remaining")))) {
+            return new TooManyRequestsException("GitHub API rate limit exceeded.", retryAfterSeconds(response));
+        }
+        // Provide a more detailed error message including status and body
+        return new UpstreamStatusException("GitHub API error: " + statusCode + " - " + body, statusCode);
+    }
+
+    /**
+     * @return How many requests were answered with 304 Not Modified and served from the previous response.
+     */
+    public long notModifiedCount() {
+        return notModifiedResponses.sum();
+    }
+
+    private Validated previousResponse(String url) {
+        synchronized (validators) {
+            return validators.get(url);
+        }
+    }
+
+    private void rememberResponse(String url, HttpResponse<?> response, CompactGists gists, int lastPage) {
+        String etag = headerValue(response, "ETag");
+        String lastModified = headerValue(response, "Last-Modified");
+        if (gists == null || (etag == null && lastModified == null)) {
+            return;
+        }
+        Validated validated = new Validated(etag, lastModified, gists, lastPage,
+                128 + 2L * (url.length() + length(etag) + length(lastModified)) + gists.retainedBytes());
+        synchronized (validators) {
+            Validated replaced = validators.put(url, validated);
+            validatorBytes += validated.bytes - (replaced == null ? 0 : replaced.bytes);
+            evictValidators();
+        }
+    }
+
+    /**
+     * Drops least recently used validators until the store fits maxValidatorBytes. Caller holds validators.
+     */
+    private void evictValidators() {
+        Iterator<Validated> lru = validators.values().iterator();
+        while (validatorBytes > maxValidatorBytes && lru.hasNext()) {
+            validatorBytes -= lru.next().bytes;
+            lru.remove();
+        }
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    /**
+     * @return Seconds until GitHub accepts requests again (Retry-After, else X-RateLimit-Reset), or 0 if unknown.
+     */
+    private static long retryAfterSeconds(HttpResponse<?> response) {
+        try {
+            String retryAfter = headerValue(response, "Retry-After");
+            if (retryAfter != null) {
+                return Long.parseLong(retryAfter.trim());
+            }
+            String reset = headerValue(response, "X-RateLimit-Reset");
+            if (reset != null) {
+                return Math.max(0, Long.parseLong(reset.trim()) - System.currentTimeMillis() / 1000);
+            }
+        } catch (NumberFormatException ignored) {
+            // Fall through: no usable hint
+        }
+        return 0;
+    }
+
+    private static String headerValue(HttpResponse<?> response, String name) {
+        // headers() can be null for stubbed responses in tests
+        return response.headers() == null ? null : response.headers().firstValue(name).orElse(null);
+    }
+
+    /**
+     * Cache validators and packed body of the last 200 response for a URL.
+     */
+    private static final class Validated {
+        final String etag;
+        final String lastModified;
+        final CompactGists gists;
+        final int lastPage;
+        final long bytes; // Estimated heap retained, counted against maxValidatorBytes
+
+        Validated(String etag, String lastModified, CompactGists gists, int lastPage, long bytes) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.gists = gists;
+            this.lastPage = lastPage;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * One parsed page of a user's gists, plus the last page number from the Link header.
+     */
+    private record Page(List<Gist> gists, int lastPage) {
+    }
+
+    /**
+     * The pages of a user's gist list as raw JSON streams, in page order.
+     * The first page is already open; later pages are prefetched while earlier ones are read.
+     */
+    public static final class PageStream implements Closeable {
+        private InputStream firstPage;
+        private final PagePrefetcher<InputStream> remaining;
+
+        private PageStream(InputStream firstPage, PagePrefetcher<InputStream> remaining) {
+            this.firstPage = firstPage;
+            this.remaining = remaining;
+        }
+
+        public boolean hasNext() {
+            return firstPage != null || remaining.hasNext();
+        }
+
+        /**
+         * @return The next page body; the caller must close it.
+         * @throws IOException If the page could not be fetched (including error statuses from GitHub).
+         */
+        public InputStream next() throws IOException {
+            if (firstPage != null) {
+                InputStream page = firstPage;
+                firstPage = null;
+                return page;
+            }
+            try {
+                return remaining.next().get();
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to fetch page of gists: " + GistSource.unwrap(e).getMessage(), GistSource.unwrap(e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a page of gists");
+            }
+        }
+
+        /**
+         * Closes any page that was not handed out and cancels outstanding prefetches.
+         */
+        @Override
+        public void close() {
+            if (firstPage != null) {
+                closeQuietly(firstPage);
+                firstPage = null;
+            }
+            remaining.cancel(PageStream::closeQuietly);
+        }
+
+        private static void closeQuietly(InputStream stream) {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+                // Nothing useful to do when discarding an unread page
+            }
+        }
     }
 
     /**
@@ -80,10 +567,39 @@ public class GitHubApiClient {
         public UserNotFoundException(String message) { super(message); }
     }
 
+    /**
+     * Custom exception for any other non-200 answer from GitHub, carrying its HTTP status.
+     */
+    public static class UpstreamStatusException extends Exception {
+        private final int statusCode;
+
+        public UpstreamStatusException(String message, int statusCode) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+
+        /**
+         * @return The HTTP status GitHub answered with.
+         */
+        public int statusCode() { return statusCode; }
+    }
+
     /**
      * Custom exception for when the GitHub API rate limit is exceeded (HTTP 429).
      */
     public static class TooManyRequestsException extends Exception {
-        public TooManyRequestsException(String message) { super(message); }
+        private final long retryAfterSeconds;
+
+        public TooManyRequestsException(String message) { this(message, 0); }
+
+        public TooManyRequestsException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        /**
+         * @return Suggested seconds to wait before retrying, or 0 if unknown.
+         */
+        public long retryAfterSeconds() { return retryAfterSeconds; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+// HedgingGistSource.java
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hedged requests: if a lookup hasn't answered within the observed {@code percentile} latency of
+ * earlier lookups (p95 by default), a second, identical lookup is sent and whichever answers first wins.
+ * A few slow GitHub responses then cost one extra call each instead of a request stuck on a bad
+ * connection or a slow backend.
+ *
+ * Hedges are extra load on GitHub's quota, so they are capped at {@code maxHedgeRatio} of all lookups,
+ * run with RateLimitScheduler.Priority.BACKGROUND (they never take the quota reserved for users),
+ * and aren't sent at all until enough lookups have been timed to know the percentile.
+ * The losing call is not cancelled; its response is simply discarded.
+ */
+public class HedgingGistSource implements GistSource {
+
+    private static final int MIN_SAMPLES = 20; // Lookups to time before the percentile is trusted
+
+    private final GistSource delegate;
+    private final ScheduledExecutorService scheduler;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double maxHedgeRatio;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * @param delegate The GistSource to send (possibly duplicated) lookups to.
+     * @param scheduler Runs the timers that send hedges.
+     * @param percentile Latency percentile (0 to 100) after which a lookup is hedged.
+     * @param minDelay Lookups are never hedged sooner than this, however fast earlier ones were.
+     * @param maxHedgeRatio Most hedges as a share (0 to 1) of all lookups.
+     */
+    public HedgingGistSource(GistSource delegate, ScheduledExecutorService scheduler, double percentile,
+                             Duration minDelay, double maxHedgeRatio) {
+        if (percentile <= 0 || percentile > 100 || maxHedgeRatio < 0 || maxHedgeRatio > 1) {
+            throw new IllegalArgumentException("Need 0 < percentile <= 100 and 0 <= maxHedgeRatio <= 1");
+        }
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxHedgeRatio = maxHedgeRatio;
+    }
+
+    @Override
+    public List<Gist> getUserGists(String username) throws Exception {
+        try {
+            return getUserGistsAsync(username).get();
+        } catch (ExecutionException e) {
+            Throwable cause = GistSource.unwrap(e);
+            if (cause instanceof Exception) {
+                throw (Exception) cause; // Same exceptions as the delegate's getUserGists
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+        lookups.increment();
+        CompletableFuture<List<Gist>> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        attempt(username, result, outstanding, false);
+
+        long delay = hedgeDelayNanos();
+        if (delay > 0 && !result.isDone()) {
+            // The hedge is optional extra load, so it goes out as background work from a scheduler thread
+            ScheduledFuture<?> timer = scheduler.schedule(() -> {
+                if (result.isDone() || hedged.sum() >= maxHedgeRatio * lookups.sum()) {
+                    return;
+                }
+                hedged.increment();
+                outstanding.incrementAndGet();
+                RateLimitScheduler.withPriority(RateLimitScheduler.Priority.BACKGROUND, () -> {
+                    attempt(username, result, outstanding, true);
+                    return null;
+                });
+            }, delay, TimeUnit.NANOSECONDS);
+            result.whenComplete((gists, error) -> timer.cancel(false));
+        }
+        return result;
+    }
+
+    /**
+     * @return How long a lookup may take before it is hedged, or 0 if hedging isn't possible yet.
+     */
+    long hedgeDelayNanos() {
+        if (latency.count() < MIN_SAMPLES) {
+            return 0;
+        }
+        return Math.max(minDelayNanos, latency.percentileNanos(percentile));
+    }
+
+    /**
+     * @return A point-in-time snapshot of the hedging counters.
+     */
+    public HedgeStats stats() {
+        return new HedgeStats(lookups.sum(), hedged.sum(), hedgeWins.sum(), hedgeDelayNanos());
+    }
+
+    /**
+     * Sends one lookup and completes {@code result} with the first answer. A failure only fails the
+     * result once no other attempt is outstanding, except "user not found", which is an answer.
+     */
+    private void attempt(String username, CompletableFuture<List<Gist>> result, AtomicInteger outstanding, boolean hedge) {
+        long started = System.nanoTime();
+        CompletableFuture<List<Gist>> call;
+        try {
+            call = delegate.getUserGistsAsync(username);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((gists, error) -> {
+            if (error == null) {
+                latency.recordSince(started);
+                if (result.complete(gists) && hedge) {
+                    hedgeWins.increment();
+                }
+                return;
+            }
+            Throwable cause = GistSource.unwrap(error);
+            if (cause instanceof GitHubApiClient.UserNotFoundException || outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    /**
+     * Snapshot of the hedging counters, reported on /metrics.
+     *
+     * @param delayNanos The current hedge delay, or 0 while hedging is not yet possible.
+     */
+    public record HedgeStats(long lookups, long hedged, long hedgeWins, long delayNanos) {
+    }
+}
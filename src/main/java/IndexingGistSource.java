@@ -0,0 +1,48 @@
+// IndexingGistSource.java
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Feeds every gist list that comes back from the delegate into a GistSearchIndex, so /search covers
+ * all users the server has loaded without any extra upstream calls.
+ *
+ * It sits right under CachingGitHubApiClient, so it sees cache misses and background refreshes (every
+ * time a user's list actually changes hands) but not cache hits, which would only re-index the same
+ * list. A UserNotFoundException removes the user from the index.
+ */
+public class IndexingGistSource implements GistSource {
+
+    private final GistSource delegate;
+    private final GistSearchIndex index;
+
+    public IndexingGistSource(GistSource delegate, GistSearchIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @Override
+    public List<Gist> getUserGists(String username) throws Exception {
+        List<Gist> gists;
+        try {
+            gists = delegate.getUserGists(username);
+        } catch (GitHubApiClient.UserNotFoundException e) {
+            index.remove(username);
+            throw e;
+        }
+        if (gists != null) {
+            index.update(username, gists);
+        }
+        return gists;
+    }
+
+    @Override
+    public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+        return delegate.getUserGistsAsync(username).whenComplete((gists, error) -> {
+            if (error == null && gists != null) {
+                index.update(username, gists);
+            } else if (GistSource.unwrap(error) instanceof GitHubApiClient.UserNotFoundException) {
+                index.remove(username);
+            }
+        });
+    }
+}
@@ -0,0 +1,134 @@
+// LatencyHistogram.java
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with HDR-style log-linear buckets.
+ *
+ * Every power-of-two range of nanoseconds is split into 16 equal sub-buckets, so any recorded value
+ * is known to within about 6%, from 1 ns up to about 2 minutes (larger values land in the last bucket).
+ * Recording is a couple of shifts plus one atomic increment: no locks and no allocation, so it can
+ * sit on the request path. Reads (percentiles, Prometheus output) scan the 560 buckets.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 37; // 2^37 ns is about 137 seconds
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    // Bucket boundaries published to Prometheus, in seconds
+    private static final double[] PROMETHEUS_BOUNDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration in nanoseconds (negative values count as 0).
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        totalNanos.add(value);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a value previously read from System.nanoTime().
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return How many durations were recorded.
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return The sum of all recorded durations in nanoseconds.
+     */
+    public long sumNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @param percentile Between 0 and 100.
+     * @return An upper bound for the given percentile in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long percentileNanos(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBound(i) - 1;
+            }
+        }
+        return upperBound(BUCKETS - 1) - 1;
+    }
+
+    /**
+     * Appends the histogram in Prometheus text format. Each {@code le} bucket counts the values whose
+     * internal bucket lies entirely below it, so counts near a boundary may move up by one bucket.
+     */
+    public void writePrometheus(StringBuilder out, String name, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        long cumulative = 0;
+        int bucket = 0;
+        for (double bound : PROMETHEUS_BOUNDS) {
+            long boundNanos = (long) (bound * 1_000_000_000L);
+            while (bucket < BUCKETS && upperBound(bucket) - 1 <= boundNanos) {
+                cumulative += counts.get(bucket++);
+            }
+            out.append(name).append("_bucket{le=\"").append(bound).append("\"} ").append(cumulative).append('\n');
+        }
+        while (bucket < BUCKETS) {
+            cumulative += counts.get(bucket++);
+        }
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum ").append(totalNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count ").append(cumulative).append('\n');
+    }
+
+    /**
+     * Values below 32 get a bucket each; above that, the exponent picks a group of 16 sub-buckets
+     * and the next 4 bits below the leading one pick the sub-bucket.
+     */
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * @return The exclusive upper bound, in nanoseconds, of the values in a bucket.
+     */
+    static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index + 1;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return (subBucket + 1) << shift;
+    }
+}
@@ -0,0 +1,111 @@
+// Metrics.java
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide metrics for the hot path, exposed by GistServer at /metrics in Prometheus text format.
+ *
+ * Everything here is recorded without locks or allocation (atomic increments into preallocated
+ * arrays), so instrumentation doesn't add garbage to every request. Values that already live
+ * elsewhere (cache stats, executor queue) are read by GistServer when /metrics is scraped.
+ */
+public final class Metrics {
+
+    /** Latency of each HTTP request sent to the GitHub API (one per page). */
+    public static final LatencyHistogram UPSTREAM_REQUEST = new LatencyHistogram();
+    /** Time Gson takes to bind one upstream page to Gist objects. */
+    public static final LatencyHistogram JSON_PARSE = new LatencyHistogram();
+    /** Time to serialize (and compress) a response body. */
+    public static final LatencyHistogram JSON_SERIALIZE = new LatencyHistogram();
+    /** Time from a /{username} request arriving to its response being written. */
+    public static final LatencyHistogram HANDLER = new LatencyHistogram();
+
+    private static final AtomicLongArray responsesByStatus = new AtomicLongArray(600);
+    private static final AtomicLong inFlight = new AtomicLong();
+
+    private Metrics() {
+    }
+
+    /**
+     * Counts a response by its HTTP status code.
+     */
+    public static void recordResponse(int statusCode) {
+        if (statusCode >= 0 && statusCode < responsesByStatus.length()) {
+            responsesByStatus.incrementAndGet(statusCode);
+        }
+    }
+
+    /**
+     * @return How many responses were sent with the given status code.
+     */
+    public static long responses(int statusCode) {
+        return responsesByStatus.get(statusCode);
+    }
+
+    public static void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Marks a /{username} request as finished and records its total handler time.
+     *
+     * @param startNanos System.nanoTime() when the request arrived.
+     */
+    public static void requestFinished(long startNanos) {
+        inFlight.decrementAndGet();
+        HANDLER.recordSince(startNanos);
+    }
+
+    /**
+     * @return How many /{username} requests are being handled right now.
+     */
+    public static long inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Appends the histograms and counters kept here in Prometheus text format.
+     */
+    public static void writePrometheus(StringBuilder out) {
+        UPSTREAM_REQUEST.writePrometheus(out, "gist_upstream_request_seconds", "Latency of HTTP requests to the GitHub API.");
+        JSON_PARSE.writePrometheus(out, "gist_json_parse_seconds", "Time to parse one page of upstream JSON into gists.");
+        JSON_SERIALIZE.writePrometheus(out, "gist_json_serialize_seconds", "Time to serialize and compress a response body.");
+        HANDLER.writePrometheus(out, "gist_handler_seconds", "Total time to answer a /{username} request.");
+
+        out.append("# HELP gist_responses_total Responses sent, by HTTP status code.\n");
+        out.append("# TYPE gist_responses_total counter\n");
+        for (int status = 0; status < responsesByStatus.length(); status++) {
+            long count = responsesByStatus.get(status);
+            if (count > 0) {
+                out.append("gist_responses_total{code=\"").append(status).append("\"} ").append(count).append('\n');
+            }
+        }
+        gauge(out, "gist_requests_in_flight", "Requests for /{username} currently being handled.", inFlight.get());
+    }
+
+    /**
+     * Appends a single gauge in Prometheus text format.
+     */
+    public static void gauge(StringBuilder out, String name, String help, double value) {
+        sample(out, name, help, "gauge", value);
+    }
+
+    /**
+     * Appends a single counter in Prometheus text format.
+     */
+    public static void counter(StringBuilder out, String name, String help, double value) {
+        sample(out, name, help, "counter", value);
+    }
+
+    private static void sample(StringBuilder out, String name, String help, String type, double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append(name).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+}
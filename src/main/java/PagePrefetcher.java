@@ -0,0 +1,64 @@
+// PagePrefetcher.java
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Hands out a range of pages in order while keeping a bounded number of page requests in flight
+ * ahead of the consumer. Calling {@link #next()} returns the oldest outstanding page and starts
+ * the next one, so at most {@code window} pages are ever requested but not yet consumed.
+ *
+ * Not thread-safe: a single consumer is expected to call next() one page after another.
+ */
+final class PagePrefetcher<T> {
+
+    private final IntFunction<CompletableFuture<T>> fetchPage;
+    private final int lastPage;
+    private final ArrayDeque<CompletableFuture<T>> ahead = new ArrayDeque<>();
+    private int nextPageToStart;
+
+    /**
+     * @param firstPage First page to fetch (inclusive).
+     * @param lastPage Last page to fetch (inclusive); nothing is fetched if it is below firstPage.
+     * @param window Maximum number of pages requested ahead of the consumer.
+     * @param fetchPage Starts the request for a page number.
+     */
+    PagePrefetcher(int firstPage, int lastPage, int window, IntFunction<CompletableFuture<T>> fetchPage) {
+        this.fetchPage = fetchPage;
+        this.lastPage = lastPage;
+        this.nextPageToStart = firstPage;
+        while (ahead.size() < window && nextPageToStart <= lastPage) {
+            ahead.add(fetchPage.apply(nextPageToStart++));
+        }
+    }
+
+    boolean hasNext() {
+        return !ahead.isEmpty();
+    }
+
+    /**
+     * @return The next page in order. Also starts the request for the page after the current window.
+     */
+    CompletableFuture<T> next() {
+        CompletableFuture<T> page = ahead.poll();
+        if (nextPageToStart <= lastPage) {
+            ahead.add(fetchPage.apply(nextPageToStart++));
+        }
+        return page;
+    }
+
+    /**
+     * Abandons the remaining pages: pending requests are cancelled and pages that already
+     * arrived are passed to {@code discard} (e.g. to close a response stream).
+     */
+    void cancel(Consumer<? super T> discard) {
+        CompletableFuture<T> page;
+        while ((page = ahead.poll()) != null) {
+            if (!page.cancel(true)) {
+                page.thenAccept(discard);
+            }
+        }
+        nextPageToStart = lastPage + 1;
+    }
+}
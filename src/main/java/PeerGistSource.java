@@ -0,0 +1,236 @@
+// PeerGistSource.java
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Cluster mode: shares one upstream fetch per username across replicas.
+ *
+ * Every replica is configured with the same list of peer base URLs, and a ConsistentHashRing assigns
+ * each username to one owner. A lookup for a username owned by another replica is sent to that
+ * replica's internal endpoint ({@link #PEER_PATH}{username}), which answers from its own cache, going
+ * to GitHub only on a miss, with the gzip body it already keeps for the entry. So across the cluster each
+ * username is fetched from GitHub about once per TTL instead of once per replica. Lookups owned by
+ * this replica, and lookups made on behalf of a peer (see {@link #servingPeer}), go to the delegate.
+ *
+ * If the owner can't be reached, times out or answers with anything but 200 or 404, the lookup falls
+ * back to the delegate. An owner that failed to answer is skipped for {@code peerBackoff}, so a dead pod
+ * costs one timeout rather than one per request.
+ */
+public class PeerGistSource implements GistSource {
+
+    /**
+     * Internal endpoint a replica serves its cached lists on, followed by the URL-encoded username.
+     */
+    public static final String PEER_PATH = "/_peer/gists/";
+
+    private static final Type GIST_LIST_TYPE = new TypeToken<List<Gist>>(){}.getType();
+    // Set while a peer's request is being served, so its lookups are never forwarded again (even if the
+    // replicas briefly disagree on the peer list during a rollout)
+    private static final ThreadLocal<Boolean> servingPeer = ThreadLocal.withInitial(() -> false);
+
+    private final GistSource delegate;
+    private final ConsistentHashRing ring;
+    private final String self;
+    private final HttpClient httpClient;
+    private final Gson gson;
+    private final Duration timeout;
+    private final long peerBackoffNanos;
+    private final LongSupplier nanoTime;
+    private final ConcurrentHashMap<String, Long> skipUntil = new ConcurrentHashMap<>(); // peer -> nanoTime
+
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder local = new LongAdder();
+
+    /**
+     * @param delegate Where lookups owned by this replica go (normally the upstream chain).
+     * @param ring The ring over all replicas' base URLs, including {@code self}.
+     * @param self This replica's base URL, exactly as it appears in the ring.
+     * @param httpClient Client for peer requests.
+     * @param timeout How long to wait for a peer's answer (it may be fetching from GitHub itself).
+     * @param peerBackoff How long a peer that failed to answer is bypassed.
+     */
+    public PeerGistSource(GistSource delegate, ConsistentHashRing ring, String self, HttpClient httpClient,
+                          Duration timeout, Duration peerBackoff) {
+        this(delegate, ring, self, httpClient, timeout, peerBackoff, System::nanoTime);
+    }
+
+    PeerGistSource(GistSource delegate, ConsistentHashRing ring, String self, HttpClient httpClient,
+                   Duration timeout, Duration peerBackoff, LongSupplier nanoTime) {
+        if (!ring.nodes().contains(self)) {
+            throw new IllegalArgumentException("This replica (" + self + ") is not in the peer list " + ring.nodes());
+        }
+        this.delegate = delegate;
+        this.ring = ring;
+        this.self = self;
+        this.httpClient = httpClient;
+        this.gson = new Gson();
+        this.timeout = timeout;
+        this.peerBackoffNanos = peerBackoff.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Runs {@code action} (which starts lookups) on behalf of a peer: lookups it starts on this thread
+     * are served locally instead of being forwarded to their owner.
+     */
+    public static <T> T servingPeer(Supplier<T> action) {
+        boolean previous = servingPeer.get();
+        servingPeer.set(true);
+        try {
+            return action.get();
+        } finally {
+            servingPeer.set(previous);
+        }
+    }
+
+    @Override
+    public List<Gist> getUserGists(String username) throws Exception {
+        String owner = peerFor(username);
+        if (owner == null) {
+            local.increment();
+            return delegate.getUserGists(username);
+        }
+        try {
+            return forward(owner, username).get();
+        } catch (ExecutionException e) {
+            Throwable cause = GistSource.unwrap(e);
+            if (cause instanceof Exception exception) {
+                throw exception; // Same exceptions as the delegate would throw
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+        String owner = peerFor(username);
+        if (owner == null) {
+            local.increment();
+            return delegate.getUserGistsAsync(username);
+        }
+        return forward(owner, username);
+    }
+
+    /**
+     * @return The peer to ask for {@code username}, or null to serve it locally.
+     */
+    private String peerFor(String username) {
+        if (servingPeer.get()) {
+            return null;
+        }
+        String owner = ring.owner(username);
+        if (owner.equals(self)) {
+            return null;
+        }
+        Long until = skipUntil.get(owner);
+        if (until != null) {
+            if (nanoTime.getAsLong() - until < 0) {
+                return null; // Recently failed, don't wait for it again
+            }
+            skipUntil.remove(owner, until);
+        }
+        return owner;
+    }
+
+    private CompletableFuture<List<Gist>> forward(String owner, String username) {
+        forwarded.increment();
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder()
+                    .uri(URI.create(owner + PEER_PATH + URLEncoder.encode(username, StandardCharsets.UTF_8)))
+                    .header("Accept-Encoding", "gzip")
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return fallBack(owner, username, true);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).handle((response, error) -> {
+            if (error != null) {
+                return fallBack(owner, username, true);
+            }
+            try {
+                if (response.statusCode() == 200) {
+                    List<Gist> gists = gson.fromJson(reader(response), GIST_LIST_TYPE);
+                    return CompletableFuture.completedFuture(gists);
+                }
+                if (response.statusCode() == 404) {
+                    return CompletableFuture.<List<Gist>>failedFuture(new GitHubApiClient.UserNotFoundException(errorMessage(response, username)));
+                }
+            } catch (IOException | JsonParseException e) {
+                return fallBack(owner, username, true);
+            }
+            // Rate limited, shedding or broken: the owner is alive, but this lookup is better done here
+            return fallBack(owner, username, false);
+        }).thenCompose(result -> result);
+    }
+
+    private CompletableFuture<List<Gist>> fallBack(String owner, String username, boolean unreachable) {
+        fallbacks.increment();
+        if (unreachable) {
+            skipUntil.put(owner, nanoTime.getAsLong() + peerBackoffNanos);
+        }
+        return delegate.getUserGistsAsync(username);
+    }
+
+    private static Reader reader(HttpResponse<byte[]> response) throws IOException {
+        InputStream body = new ByteArrayInputStream(response.body());
+        if (response.headers().firstValue("Content-Encoding").orElse("").equalsIgnoreCase("gzip")) {
+            body = new GZIPInputStream(body);
+        }
+        return new InputStreamReader(body, StandardCharsets.UTF_8);
+    }
+
+    private String errorMessage(HttpResponse<byte[]> response, String username) throws IOException {
+        try (Reader reader = reader(response)) {
+            JsonObject error = gson.fromJson(reader, JsonObject.class);
+            if (error != null && error.has("error")) {
+                return error.get("error").getAsString();
+            }
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            // Fall through to the generic message
+        }
+        return "GitHub user not found: " + username;
+    }
+
+    /**
+     * @return A point-in-time snapshot of the peer counters.
+     */
+    public PeerStats stats() {
+        return new PeerStats(ring.nodes().size(), forwarded.sum(), fallbacks.sum(), local.sum());
+    }
+
+    /**
+     * Snapshot of the cluster counters, reported on /metrics.
+     *
+     * @param forwarded Lookups sent to their owner.
+     * @param fallbacks Forwarded lookups that were served locally after all.
+     * @param local Lookups served locally because this replica owns them (or serves a peer).
+     */
+    public record PeerStats(int peers, long forwarded, long fallbacks, long local) {
+    }
+}
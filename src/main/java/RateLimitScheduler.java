@@ -0,0 +1,229 @@
+// RateLimitScheduler.java
+import java.net.http.HttpHeaders;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Paces calls to the GitHub API so the server slows down before GitHub starts answering 429.
+ *
+ * Two budgets are checked before every upstream request:
+ * <ul>
+ *   <li>A local token bucket ({@code permitsPerSecond}, up to {@code burst} saved up). User requests
+ *       may borrow against future tokens for up to {@code maxWait}, which turns into a short delay
+ *       before the request is sent; background work never waits.</li>
+ *   <li>GitHub's own quota, learned from the X-RateLimit-Limit/Remaining/Reset and Retry-After headers
+ *       of every response. Background work stops once the remaining quota drops to the share reserved
+ *       for user requests; everything stops when the quota is used up or GitHub asked us to back off.</li>
+ * </ul>
+ * A request that can't be scheduled fails immediately with TooManyRequestsException (carrying a
+ * Retry-After hint), which the cache turns into a stale response when it has one.
+ *
+ * One scheduler is shared by all upstream calls; it is thread-safe.
+ */
+public final class RateLimitScheduler {
+
+    /**
+     * Who an upstream call is for. User requests win over background work when the budget is tight.
+     */
+    public enum Priority { USER, BACKGROUND }
+
+    // Share of GitHub's quota that background work leaves untouched for user requests
+    private static final double BACKGROUND_RESERVE = 0.2;
+    // GitHub's advice when it sends a 429 without any hint: wait at least a minute
+    private static final long DEFAULT_BACKOFF_MILLIS = 60_000;
+    private static final String RATE_LIMIT_MESSAGE = "GitHub API rate limit exceeded.";
+    private static final ThreadLocal<Priority> currentPriority = ThreadLocal.withInitial(() -> Priority.USER);
+
+    private final double permitsPerSecond; // Infinity disables the local bucket
+    private final double burst;
+    private final long maxWaitMillis;
+    private final Clock clock;
+
+    // All mutable state below is guarded by 'this'
+    private double tokens;
+    private long refilledAtMillis;
+    private long upstreamLimit = -1;     // X-RateLimit-Limit, -1 until seen
+    private long upstreamRemaining = -1; // X-RateLimit-Remaining minus calls sent since, -1 when unknown
+    private long upstreamResetMillis;    // When GitHub's quota window resets
+    private long blockedUntilMillis;     // Set from Retry-After or an exhausted quota
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param permitsPerSecond Sustained rate of upstream calls (Double.POSITIVE_INFINITY for no local limit).
+     * @param burst How many calls may be sent back to back after a quiet period.
+     * @param maxWait How long a user request may be delayed waiting for a token before it is rejected.
+     */
+    public RateLimitScheduler(double permitsPerSecond, int burst, Duration maxWait) {
+        this(permitsPerSecond, burst, maxWait, Clock.systemUTC());
+    }
+
+    /**
+     * Same as the public constructor but with an explicit Clock, so tests can move time forward.
+     */
+    RateLimitScheduler(double permitsPerSecond, int burst, Duration maxWait, Clock clock) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.maxWaitMillis = maxWait.toMillis();
+        this.clock = clock;
+        this.tokens = this.burst;
+        this.refilledAtMillis = clock.millis();
+    }
+
+    /**
+     * @return A scheduler without a local rate that still honours GitHub's rate limit headers.
+     */
+    public static RateLimitScheduler unlimited() {
+        return new RateLimitScheduler(Double.POSITIVE_INFINITY, 1, Duration.ZERO);
+    }
+
+    /**
+     * Runs {@code action} with the given priority. Upstream calls started by it (on this thread)
+     * are scheduled with that priority; used by background refreshes to mark their calls.
+     */
+    public static <T> T withPriority(Priority priority, Supplier<T> action) {
+        Priority previous = currentPriority.get();
+        currentPriority.set(priority);
+        try {
+            return action.get();
+        } finally {
+            currentPriority.set(previous);
+        }
+    }
+
+    /**
+     * @return The priority of upstream calls started on this thread (USER unless inside withPriority).
+     */
+    public static Priority currentPriority() {
+        return currentPriority.get();
+    }
+
+    /**
+     * Takes one upstream call out of the budget.
+     *
+     * @param priority Who the call is for.
+     * @return How many milliseconds the caller must wait before sending the request (usually 0).
+     * @throws GitHubApiClient.TooManyRequestsException If the call can't be made within the budget.
+     */
+    public synchronized long reserve(Priority priority) throws GitHubApiClient.TooManyRequestsException {
+        long now = clock.millis();
+        if (now < blockedUntilMillis) {
+            throw reject(blockedUntilMillis - now);
+        }
+
+        boolean quotaKnown = upstreamRemaining >= 0 && now < upstreamResetMillis;
+        if (quotaKnown) {
+            long reserved = priority == Priority.BACKGROUND ? (long) Math.ceil(Math.max(upstreamLimit, 0) * BACKGROUND_RESERVE) : 0;
+            if (upstreamRemaining <= reserved) {
+                throw reject(upstreamResetMillis - now);
+            }
+        }
+
+        long waitMillis = 0;
+        if (permitsPerSecond != Double.POSITIVE_INFINITY) {
+            refill(now);
+            // User requests may go into debt by up to maxWait worth of tokens; background work may not
+            double floor = priority == Priority.USER ? -maxWaitMillis * permitsPerSecond / 1000.0 : 0.0;
+            if (tokens - 1 < floor) {
+                throw reject((long) Math.ceil((floor + 1 - tokens) * 1000.0 / permitsPerSecond));
+            }
+            tokens -= 1;
+            if (tokens < 0) {
+                waitMillis = (long) Math.ceil(-tokens * 1000.0 / permitsPerSecond);
+                delayed.increment();
+            }
+        }
+
+        if (quotaKnown) {
+            upstreamRemaining--; // Until the response tells us the real number
+        }
+        scheduled.increment();
+        return waitMillis;
+    }
+
+    /**
+     * Gives back a token for a call that turned out to be free, e.g. a 304 Not Modified answer
+     * (GitHub doesn't count those against the quota).
+     */
+    public synchronized void refund() {
+        if (permitsPerSecond != Double.POSITIVE_INFINITY) {
+            tokens = Math.min(burst, tokens + 1);
+        }
+    }
+
+    /**
+     * Updates the view of GitHub's quota from the headers of an upstream response.
+     *
+     * @param statusCode The response status.
+     * @param headers The response headers (may be null).
+     */
+    public void observe(int statusCode, HttpHeaders headers) {
+        long limit = headers == null ? -1 : headerLong(headers, "X-RateLimit-Limit");
+        long remaining = headers == null ? -1 : headerLong(headers, "X-RateLimit-Remaining");
+        long resetSeconds = headers == null ? -1 : headerLong(headers, "X-RateLimit-Reset");
+        long retryAfterSeconds = headers == null ? -1 : headerLong(headers, "Retry-After");
+        boolean limited = statusCode == 429 || (statusCode == 403 && remaining == 0);
+
+        synchronized (this) {
+            long now = clock.millis();
+            if (limit >= 0) {
+                upstreamLimit = limit;
+            }
+            if (remaining >= 0 && resetSeconds >= 0) {
+                upstreamRemaining = remaining;
+                upstreamResetMillis = resetSeconds * 1000;
+            }
+            if (retryAfterSeconds >= 0) {
+                blockedUntilMillis = Math.max(blockedUntilMillis, now + retryAfterSeconds * 1000);
+            } else if (limited && remaining == 0 && resetSeconds >= 0) {
+                blockedUntilMillis = Math.max(blockedUntilMillis, resetSeconds * 1000);
+            } else if (statusCode == 429) {
+                blockedUntilMillis = Math.max(blockedUntilMillis, now + DEFAULT_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * @return A point-in-time snapshot of the scheduler counters and GitHub's last reported quota.
+     */
+    public synchronized RateLimitStats stats() {
+        return new RateLimitStats(scheduled.sum(), delayed.sum(), rejected.sum(), upstreamLimit, upstreamRemaining,
+                upstreamResetMillis / 1000);
+    }
+
+    private void refill(long now) {
+        if (now > refilledAtMillis) {
+            tokens = Math.min(burst, tokens + (now - refilledAtMillis) * permitsPerSecond / 1000.0);
+            refilledAtMillis = now;
+        }
+    }
+
+    private GitHubApiClient.TooManyRequestsException reject(long retryAfterMillis) {
+        rejected.increment();
+        long retryAfterSeconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+        return new GitHubApiClient.TooManyRequestsException(RATE_LIMIT_MESSAGE, retryAfterSeconds);
+    }
+
+    private static long headerLong(HttpHeaders headers, String name) {
+        String value = headers.firstValue(name).orElse(null);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1; // e.g. Retry-After given as an HTTP date, which GitHub doesn't send
+        }
+    }
+
+    /**
+     * Snapshot of the scheduler, served as JSON on /_ratelimit and as gauges on /metrics.
+     */
+    public record RateLimitStats(long scheduled, long delayed, long rejected,
+                                 long upstreamLimit, long upstreamRemaining, long upstreamResetEpochSeconds) {
+    }
+}
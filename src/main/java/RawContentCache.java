@@ -0,0 +1,85 @@
+// RawContentCache.java
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content-addressed cache of gist file contents, keyed by raw URL.
+ *
+ * A gist raw URL names the revision it belongs to
+ * ({@code https://gist.githubusercontent.com/{owner}/{gistId}/raw/{revision}/{filename}}), so the bytes
+ * behind it never change: entries need no TTL and are only evicted, least recently used first, to stay
+ * within {@code maxBytes}. Editing a gist gives its files new raw URLs, which simply become new entries.
+ */
+public final class RawContentCache {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 96; // Map node, entry object and array header
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, RawContentFetcher.Content> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes Maximum estimated heap bytes held (URLs plus contents).
+     */
+    public RawContentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return The cached content for a raw URL, or null (counted as a miss).
+     */
+    public synchronized RawContentFetcher.Content get(String rawUrl) {
+        RawContentFetcher.Content content = entries.get(rawUrl);
+        if (content == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return content;
+    }
+
+    /**
+     * Stores the content of a raw URL, evicting the least recently used entries if over budget.
+     */
+    public synchronized void put(String rawUrl, RawContentFetcher.Content content) {
+        long bytes = entryBytes(rawUrl, content);
+        if (bytes > maxBytes) {
+            return; // Would evict everything else for one file
+        }
+        RawContentFetcher.Content previous = entries.put(rawUrl, content);
+        if (previous != null) {
+            currentBytes -= entryBytes(rawUrl, previous);
+        }
+        currentBytes += bytes;
+        Iterator<Map.Entry<String, RawContentFetcher.Content>> lru = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && lru.hasNext()) {
+            Map.Entry<String, RawContentFetcher.Content> eldest = lru.next();
+            currentBytes -= entryBytes(eldest.getKey(), eldest.getValue());
+            lru.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * @return A point-in-time snapshot of the cache counters.
+     */
+    public synchronized RawCacheStats stats() {
+        return new RawCacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), currentBytes);
+    }
+
+    private static long entryBytes(String rawUrl, RawContentFetcher.Content content) {
+        return ENTRY_OVERHEAD_BYTES + 40 + rawUrl.length() + content.bytes().length;
+    }
+
+    /**
+     * Snapshot of the raw content cache counters, reported on /metrics.
+     */
+    public record RawCacheStats(long hits, long misses, long evictions, int entries, long bytes) {
+    }
+}
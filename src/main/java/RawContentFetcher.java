@@ -0,0 +1,187 @@
+// RawContentFetcher.java
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Downloads gist file contents from their raw URLs, through a RawContentCache.
+ *
+ * Each file is read up to {@code maxFileBytes}; the rest of a larger file is never downloaded (the
+ * response body is cancelled) and the content is marked as truncated. Concurrent fetches of the same
+ * URL share one download. Raw URLs are served by gist.githubusercontent.com and don't count against
+ * the API rate limit, so these calls bypass RateLimitScheduler.
+ */
+public class RawContentFetcher {
+
+    /**
+     * The bytes of a file, at most maxFileBytes of them.
+     *
+     * @param truncated True if the file was longer and only its first bytes were kept.
+     */
+    public record Content(byte[] bytes, boolean truncated) {
+    }
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final RawContentCache cache;
+    private final int maxFileBytes;
+    private final ConcurrentHashMap<String, CompletableFuture<Content>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder downloads = new LongAdder();
+
+    /**
+     * @param httpClient The HttpClient to download with (the one used for the GitHub API is fine).
+     * @param requestTimeout How long each download may take, body included, or null for no limit.
+     * @param cache Where downloaded contents are kept.
+     * @param maxFileBytes Most bytes kept per file.
+     */
+    public RawContentFetcher(HttpClient httpClient, Duration requestTimeout, RawContentCache cache, int maxFileBytes) {
+        if (maxFileBytes < 1) {
+            throw new IllegalArgumentException("maxFileBytes must be positive");
+        }
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+        this.cache = cache;
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    /**
+     * Returns the content behind a raw URL, from the cache or by downloading it.
+     *
+     * @return A future completed with the content, or exceptionally with an IOException for
+     *         non-200 answers and network errors.
+     */
+    public CompletableFuture<Content> fetch(String rawUrl) {
+        Content cached = cache.get(rawUrl);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<Content> ours = new CompletableFuture<>();
+        CompletableFuture<Content> existing = inFlight.putIfAbsent(rawUrl, ours);
+        if (existing != null) {
+            return existing; // Someone is already downloading it
+        }
+
+        downloads.increment();
+        HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder().uri(URI.create(rawUrl)).GET();
+        } catch (IllegalArgumentException e) {
+            inFlight.remove(rawUrl, ours);
+            ours.completeExceptionally(new IOException("Invalid raw URL: " + rawUrl, e));
+            return ours;
+        }
+        if (requestTimeout != null) {
+            request.timeout(requestTimeout);
+        }
+        CompletableFuture<HttpResponse<Content>> download = httpClient.sendAsync(request.build(), this::bodyHandler);
+        CompletableFuture<HttpResponse<Content>> bounded = download;
+        if (requestTimeout != null) {
+            // The request timeout only covers the response headers; a body that stalls after them would
+            // otherwise leave this future (and every request joined to it) waiting forever
+            bounded = download.copy().orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        bounded.whenComplete((response, error) -> {
+            inFlight.remove(rawUrl, ours);
+            if (error instanceof TimeoutException) {
+                download.cancel(true); // Abort the stalled download
+                ours.completeExceptionally(new HttpTimeoutException("Raw content took longer than " + requestTimeout + ": " + rawUrl));
+            } else if (error != null) {
+                ours.completeExceptionally(GistSource.unwrap(error));
+            } else if (response.statusCode() != 200) {
+                ours.completeExceptionally(new IOException("Raw content answered " + response.statusCode() + ": " + rawUrl));
+            } else {
+                cache.put(rawUrl, response.body());
+                ours.complete(response.body());
+            }
+        });
+        return ours;
+    }
+
+    /**
+     * @return How many downloads were started (cache misses that weren't joined to another download).
+     */
+    public long downloadCount() {
+        return downloads.sum();
+    }
+
+    public int maxFileBytes() {
+        return maxFileBytes;
+    }
+
+    private HttpResponse.BodySubscriber<Content> bodyHandler(HttpResponse.ResponseInfo info) {
+        if (info.statusCode() != 200) {
+            return HttpResponse.BodySubscribers.replacing(null); // Discard error bodies
+        }
+        return new CappedBodySubscriber(maxFileBytes);
+    }
+
+    /**
+     * Collects at most {@code limit} bytes of a response body, then cancels the rest of the download.
+     */
+    private static final class CappedBodySubscriber implements HttpResponse.BodySubscriber<Content> {
+        private final int limit;
+        private final ByteArrayOutputStream collected = new ByteArrayOutputStream();
+        private final CompletableFuture<Content> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        CappedBodySubscriber(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public CompletionStage<Content> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (result.isDone()) {
+                return;
+            }
+            for (ByteBuffer buffer : buffers) {
+                int room = limit - collected.size();
+                if (buffer.remaining() > room) {
+                    byte[] head = new byte[room];
+                    buffer.get(head);
+                    collected.write(head, 0, room);
+                    result.complete(new Content(collected.toByteArray(), true));
+                    subscription.cancel(); // Don't download the rest of a large file
+                    return;
+                }
+                byte[] chunk = new byte[buffer.remaining()];
+                buffer.get(chunk);
+                collected.write(chunk, 0, chunk.length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(new Content(collected.toByteArray(), false));
+        }
+    }
+}
@@ -0,0 +1,226 @@
+// SegmentFile.java
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only key/value file, memory-mapped for reads and writes.
+ *
+ * Layout: an 8-byte file header, then records of
+ * {@code [magic:int][keyLength:int][valueLength:int][storedAt:long][key][value][crc32:int]}.
+ * A newer record for a key simply supersedes the older one. The in-memory index (key to record
+ * offset) is rebuilt by scanning the records when the file is opened; the scan stops at the first
+ * record that is incomplete or fails its checksum, e.g. one torn by a crash, and later writes
+ * overwrite it. When the file is full, the latest record of every key is copied to a fresh file.
+ *
+ * Thread-safe: all methods are synchronized. Reads copy the value out of the mapping.
+ */
+final class SegmentFile implements Closeable {
+
+    private static final int FILE_MAGIC = 0x47534547;   // "GSEG"
+    private static final int FILE_VERSION = 1;
+    private static final int RECORD_MAGIC = 0x52454331; // "REC1"
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_OVERHEAD = 4 + 4 + 4 + 8 + 4;
+
+    /**
+     * A stored value and when it was written.
+     */
+    record Record(long storedAtMillis, byte[] value) {
+    }
+
+    private final Path path;
+    private final int capacity;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private final Map<String, Integer> index = new HashMap<>(); // Key to offset of its latest record
+    private int writePosition;
+
+    /**
+     * Opens (or creates) the segment file and rebuilds its index.
+     *
+     * @param path The file to use.
+     * @param capacity Maximum size of the file in bytes (at most 2 GB, the limit of a single mapping).
+     * @throws IOException If the file can't be opened or mapped.
+     */
+    SegmentFile(Path path, int capacity) throws IOException {
+        this.path = path;
+        this.capacity = Math.max(capacity, HEADER_BYTES + RECORD_OVERHEAD);
+        open();
+    }
+
+    /**
+     * @return The latest record for the key, or null if there is none.
+     */
+    synchronized Record get(String key) {
+        Integer offset = index.get(key);
+        if (offset == null) {
+            return null;
+        }
+        int keyLength = buffer.getInt(offset + 4);
+        int valueLength = buffer.getInt(offset + 8);
+        long storedAt = buffer.getLong(offset + 12);
+        byte[] value = new byte[valueLength];
+        buffer.get(offset + 20 + keyLength, value);
+        return new Record(storedAt, value);
+    }
+
+    /**
+     * Appends a record for the key. Values that can't fit even in an empty file are not stored.
+     *
+     * @return Whether the record was stored.
+     * @throws IOException If compacting the file fails.
+     */
+    synchronized boolean put(String key, long storedAtMillis, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int recordLength = RECORD_OVERHEAD + keyBytes.length + value.length;
+        if (recordLength > capacity - HEADER_BYTES) {
+            return false;
+        }
+        if (writePosition + recordLength > capacity) {
+            compact();
+            if (writePosition + recordLength > capacity) {
+                clear(); // Still no room: the live data alone fills the file
+            }
+        }
+        index.put(key, writePosition);
+        writePosition = writeRecord(buffer, writePosition, keyBytes, storedAtMillis, value);
+        return true;
+    }
+
+    /**
+     * @return The number of keys stored.
+     */
+    synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * @return Bytes of the file in use, including superseded records.
+     */
+    synchronized long usedBytes() {
+        return writePosition;
+    }
+
+    /**
+     * Flushes the mapping to disk and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = channel.size() < HEADER_BYTES;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        index.clear();
+        if (fresh || buffer.getInt(0) != FILE_MAGIC || buffer.getInt(4) != FILE_VERSION) {
+            buffer.putInt(0, FILE_MAGIC);
+            buffer.putInt(4, FILE_VERSION);
+            writePosition = HEADER_BYTES;
+            buffer.putInt(writePosition, 0); // Make sure no old record follows the header
+            return;
+        }
+        writePosition = rebuildIndex();
+    }
+
+    /**
+     * Scans the records from the start of the file into the index.
+     *
+     * @return The offset after the last valid record, where the next one will be written.
+     */
+    private int rebuildIndex() {
+        int position = HEADER_BYTES;
+        while (position + RECORD_OVERHEAD <= capacity && buffer.getInt(position) == RECORD_MAGIC) {
+            int keyLength = buffer.getInt(position + 4);
+            int valueLength = buffer.getInt(position + 8);
+            if (keyLength < 0 || valueLength < 0 || (long) position + RECORD_OVERHEAD + keyLength + valueLength > capacity) {
+                break;
+            }
+            int end = position + RECORD_OVERHEAD + keyLength + valueLength;
+            if (buffer.getInt(end - 4) != checksum(buffer, position, keyLength, valueLength)) {
+                break; // Torn or corrupt record: everything from here on is overwritten by new writes
+            }
+            byte[] keyBytes = new byte[keyLength];
+            buffer.get(position + 20, keyBytes);
+            index.put(new String(keyBytes, StandardCharsets.UTF_8), position);
+            position = end;
+        }
+        return position;
+    }
+
+    /**
+     * Rewrites the file with only the latest record of every key, then swaps it in.
+     */
+    private void compact() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        Map<String, Integer> newIndex = new HashMap<>();
+        int position = HEADER_BYTES;
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = target.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            out.putInt(0, FILE_MAGIC);
+            out.putInt(4, FILE_VERSION);
+            for (Map.Entry<String, Integer> entry : index.entrySet()) {
+                int offset = entry.getValue();
+                int length = RECORD_OVERHEAD + buffer.getInt(offset + 4) + buffer.getInt(offset + 8);
+                out.put(position, buffer, offset, length);
+                newIndex.put(entry.getKey(), position);
+                position += length;
+            }
+            if (position + 4 <= capacity) {
+                out.putInt(position, 0);
+            }
+            out.force();
+        }
+        channel.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        index.clear();
+        index.putAll(newIndex);
+        writePosition = position;
+    }
+
+    private void clear() {
+        index.clear();
+        writePosition = HEADER_BYTES;
+        buffer.putInt(writePosition, 0);
+    }
+
+    private static int writeRecord(ByteBuffer out, int position, byte[] key, long storedAtMillis, byte[] value) {
+        out.putInt(position, RECORD_MAGIC);
+        out.putInt(position + 4, key.length);
+        out.putInt(position + 8, value.length);
+        out.putLong(position + 12, storedAtMillis);
+        out.put(position + 20, key);
+        out.put(position + 20 + key.length, value);
+        int end = position + RECORD_OVERHEAD + key.length + value.length;
+        out.putInt(end - 4, checksum(out, position, key.length, value.length));
+        if (end + 4 <= out.capacity()) {
+            out.putInt(end, 0); // Terminates the index scan in case stale bytes follow
+        }
+        return end;
+    }
+
+    /**
+     * CRC32 over the storedAt, key and value of the record at {@code position}.
+     */
+    private static int checksum(ByteBuffer in, int position, int keyLength, int valueLength) {
+        CRC32 crc = new CRC32();
+        crc.update(in.slice(position + 12, 8 + keyLength + valueLength));
+        return (int) crc.getValue();
+    }
+}
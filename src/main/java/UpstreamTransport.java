@@ -0,0 +1,86 @@
+// UpstreamTransport.java
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLContext;
+
+/**
+ * Transport settings for the HttpClient that talks to GitHub.
+ *
+ * HTTP/2 lets the concurrent page fetches of one user (and the lookups of different users) share a
+ * single multiplexed TLS connection instead of opening, and handshaking, one connection each; the JDK
+ * client falls back to HTTP/1.1 with keep-alive when the server doesn't negotiate h2.
+ * Responses complete on a small dedicated pool of "github-http" threads, so upstream I/O never
+ * competes with request handlers for the common ForkJoinPool.
+ *
+ * @param version HTTP version to negotiate (HTTP_2 upgrades via ALPN where the server supports it).
+ * @param connectTimeout How long to wait for a TCP connection (and TLS handshake) to GitHub.
+ * @param requestTimeout How long each request may wait for its response headers.
+ * @param threads Size of the dedicated executor the client runs its callbacks on.
+ */
+public record UpstreamTransport(HttpClient.Version version, Duration connectTimeout, Duration requestTimeout, int threads) {
+
+    public UpstreamTransport {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+    }
+
+    /**
+     * @return HTTP/2, 5 s to connect, 10 s per request and 4 threads.
+     */
+    public static UpstreamTransport defaults() {
+        return new UpstreamTransport(HttpClient.Version.HTTP_2, Duration.ofSeconds(5), Duration.ofSeconds(10), 4);
+    }
+
+    /**
+     * Parses an HTTP version setting: "2" / "http2" / "HTTP_2" or "1.1" / "http1.1" / "HTTP_1_1".
+     *
+     * @throws IllegalArgumentException If the value names neither version.
+     */
+    public static HttpClient.Version parseVersion(String value) {
+        String normalized = value.trim().toUpperCase(Locale.ROOT).replace("HTTP", "").replace("/", "").replace("_", ".");
+        if (normalized.startsWith(".")) {
+            normalized = normalized.substring(1);
+        }
+        switch (normalized) {
+            case "2":
+            case "2.0":
+                return HttpClient.Version.HTTP_2;
+            case "1.1":
+                return HttpClient.Version.HTTP_1_1;
+            default:
+                throw new IllegalArgumentException("Unknown HTTP version: " + value);
+        }
+    }
+
+    /**
+     * Builds an HttpClient with these settings and the JDK's default TLS configuration.
+     */
+    public HttpClient newHttpClient() {
+        return builder().build();
+    }
+
+    /**
+     * Builds an HttpClient with these settings that trusts the given SSL context (used against local TLS stubs).
+     */
+    HttpClient newHttpClient(SSLContext sslContext) {
+        return builder().sslContext(sslContext).build();
+    }
+
+    private HttpClient.Builder builder() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "github-http-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true); // Must not keep the JVM alive once the server stops
+            return thread;
+        });
+        return HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(connectTimeout)
+                .executor(executor);
+    }
+}
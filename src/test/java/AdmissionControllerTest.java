@@ -0,0 +1,128 @@
+// AdmissionControllerTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AdmissionController: the in-flight limit, its adaptation to upstream latency (with a
+ * fake clock), and shedding of requests beyond the queue limit.
+ */
+public class AdmissionControllerTest {
+
+    @Test
+    void tryAcquire_shouldAdmitUpToTheLimit() {
+        AdmissionController admission = new AdmissionController(2, 1, 10, null);
+
+        assertTrue(admission.tryAcquire());
+        assertTrue(admission.tryAcquire());
+        assertFalse(admission.tryAcquire(), "A third request should be shed");
+
+        admission.release();
+        assertTrue(admission.tryAcquire(), "A released slot can be reused");
+
+        AdmissionController.AdmissionStats stats = admission.stats();
+        assertEquals(2, stats.inFlight());
+        assertEquals(3, stats.admitted());
+        assertEquals(1, stats.rejected());
+    }
+
+    @Test
+    void tryAcquire_shouldShrinkTheLimitWhenUpstreamSlowsDown() {
+        LatencyHistogram upstream = new LatencyHistogram();
+        AtomicLong now = new AtomicLong();
+        AdmissionController admission = new AdmissionController(100, 10, 10, upstream, now::get);
+
+        record(upstream, 20, TimeUnit.MILLISECONDS.toNanos(50));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        admission.tryAcquire();
+        admission.release();
+        assertEquals(100, admission.limit(), "Normal latency keeps the full limit");
+
+        for (int second = 0; second < 3; second++) {
+            record(upstream, 20, TimeUnit.MILLISECONDS.toNanos(500)); // GitHub is now 10x slower
+            now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            admission.tryAcquire();
+            admission.release();
+        }
+        int slowLimit = admission.limit();
+        assertTrue(slowLimit < 30, "Limit should drop with latency, was " + slowLimit);
+        assertTrue(slowLimit >= 10, "but never below the minimum");
+
+        for (int second = 0; second < 6; second++) {
+            record(upstream, 20, TimeUnit.MILLISECONDS.toNanos(50));
+            now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            admission.tryAcquire();
+            admission.release();
+        }
+        assertTrue(admission.limit() > 80, "Limit should recover with latency, was " + admission.limit());
+    }
+
+    @Test
+    void guard_shouldShedTasksBeyondTheQueueLimit() throws Exception {
+        AdmissionController admission = new AdmissionController(10, 1, 1, null);
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            CountDownLatch running = new CountDownLatch(1);
+            var guarded = admission.guard(single);
+            guarded.execute(() -> {
+                running.countDown();
+                await(blocker);
+            });
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            AtomicBoolean queuedSawShedding = new AtomicBoolean(true);
+            CountDownLatch queuedRan = new CountDownLatch(1);
+            guarded.execute(() -> {
+                queuedSawShedding.set(AdmissionController.isShedding());
+                queuedRan.countDown();
+            });
+            assertEquals(1, admission.stats().queued());
+
+            AtomicBoolean shedSawShedding = new AtomicBoolean();
+            CountDownLatch shedRan = new CountDownLatch(1);
+            guarded.execute(() -> {
+                shedSawShedding.set(AdmissionController.isShedding());
+                shedRan.countDown();
+            });
+            assertTrue(shedRan.await(5, TimeUnit.SECONDS), "The shed task should run without waiting for the queue");
+            assertTrue(shedSawShedding.get());
+            assertEquals(1, admission.stats().queueRejected());
+
+            blocker.countDown();
+            assertTrue(queuedRan.await(5, TimeUnit.SECONDS));
+            assertFalse(queuedSawShedding.get(), "Queued tasks run normally");
+            assertFalse(AdmissionController.isShedding());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void constructor_shouldRejectInconsistentLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController(0, 0, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController(5, 6, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController(5, 1, 0, null));
+    }
+
+    private static void record(LatencyHistogram histogram, int samples, long nanos) {
+        for (int i = 0; i < samples; i++) {
+            histogram.record(nanos);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+// CachingGitHubApiClientTest.java
+import com.google.gson.Gson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CachingGitHubApiClient.
+ * The upstream is a simple in-memory GistSource that counts calls, and time is
+ * controlled through a mutable Clock so TTL behaviour can be tested without sleeping.
+ */
+public class CachingGitHubApiClientTest {
+
+    private MutableClock clock;
+    private Map<String, AtomicInteger> upstreamCalls;
+    private GistSource upstream;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        upstreamCalls = new ConcurrentHashMap<>();
+        upstream = username -> {
+            upstreamCalls.computeIfAbsent(username, u -> new AtomicInteger()).incrementAndGet();
+            if (username.startsWith("missing")) {
+                throw new GitHubApiClient.UserNotFoundException("GitHub user not found: " + username);
+            }
+            return List.of(gist(username + "-1"));
+        };
+    }
+
+    @Test
+    void getUserGists_shouldServeRepeatedLookupsFromCache() throws Exception {
+        CachingGitHubApiClient cache = newCache(Duration.ofSeconds(60), 100, Long.MAX_VALUE);
+
+        List<Gist> first = cache.getUserGists("octocat");
+        List<Gist> second = cache.getUserGists("octocat");
+
+        assertEquals("octocat-1", first.get(0).getId());
+        assertSame(first, second, "Second lookup should return the cached list");
+        assertEquals(1, upstreamCalls.get("octocat").get(), "Upstream should only be called once");
+        CachingGitHubApiClient.CacheStats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.entries());
+    }
+
+    @Test
+    void getUserStatsAsync_shouldServeTheAggregatesStoredWithTheEntry() throws Exception {
+        CachingGitHubApiClient cache = newCache(Duration.ofSeconds(60), 100, Long.MAX_VALUE);
+
+        GistStats first = cache.getUserStatsAsync("octocat").get();
+        GistStats second = cache.getUserStatsAsync("octocat").get();
+        cache.getUserGists("octocat");
+
+        assertEquals(1, first.gists());
+        assertSame(first, second, "Aggregates are computed once per upstream fetch");
+        assertSame(first, cache.peekStats("octocat"));
+        assertEquals(1, upstreamCalls.get("octocat").get());
+        assertThrows(java.util.concurrent.ExecutionException.class, () -> cache.getUserStatsAsync("missing-user").get());
+    }
+
+    @Test
+    void getUserGists_shouldReloadAfterTtlExpires() throws Exception {
+        CachingGitHubApiClient cache = newCache(Duration.ofSeconds(60), 100, Long.MAX_VALUE);
+
+        cache.getUserGists("octocat");
+        clock.advance(Duration.ofSeconds(61));
+        cache.getUserGists("octocat");
+
+        assertEquals(2, upstreamCalls.get("octocat").get(), "Expired entry should be reloaded from upstream");
+        assertEquals(2, cache.stats().misses());
+    }
+
+    @Test
+    void getUserGists_shouldCacheUserNotFoundSeparately() throws Exception {
+        CachingGitHubApiClient cache = new CachingGitHubApiClient(
+                upstream, Duration.ofSeconds(60), Duration.ofSeconds(10), 100, Long.MAX_VALUE, clock);
+
+        assertThrows(GitHubApiClient.UserNotFoundException.class, () -> cache.getUserGists("missinguser"));
+        Exception cached = assertThrows(GitHubApiClient.UserNotFoundException.class, () -> cache.getUserGists("missinguser"));
+
+        assertEquals("GitHub user not found: missinguser", cached.getMessage());
+        assertEquals(1, upstreamCalls.get("missinguser").get(), "Negative result should be served from cache");
+        assertEquals(1, cache.stats().negativeHits());
+
+        clock.advance(Duration.ofSeconds(11));
+        assertThrows(GitHubApiClient.UserNotFoundException.class, () -> cache.getUserGists("missinguser"));
+        assertEquals(2, upstreamCalls.get("missinguser").get(), "Negative TTL is shorter than the positive TTL");
+    }
+
+    @Test
+    void getUserGists_shouldNotCacheOtherErrors() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        GistSource failing = username -> {
+            calls.incrementAndGet();
+            throw new GitHubApiClient.TooManyRequestsException("GitHub API rate limit exceeded.");
+        };
+        CachingGitHubApiClient cache = new CachingGitHubApiClient(
+                failing, Duration.ofSeconds(60), Duration.ofSeconds(60), 100, Long.MAX_VALUE, clock);
+
+        assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> cache.getUserGists("octocat"));
+        assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> cache.getUserGists("octocat"));
+        assertEquals(2, calls.get(), "Rate limit errors must not be cached");
+    }
+
+    @Test
+    void getUserGists_shouldServeStaleEntryWhenRateLimited() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        GistSource limitedAfterFirstCall = username -> {
+            if (calls.incrementAndGet() > 1) {
+                throw new GitHubApiClient.TooManyRequestsException("GitHub API rate limit exceeded.", 30);
+            }
+            return List.of(gist(username + "-1"));
+        };
+        CachingGitHubApiClient cache = new CachingGitHubApiClient(
+                limitedAfterFirstCall, Duration.ofSeconds(60), Duration.ofSeconds(30), 100, Long.MAX_VALUE, clock);
+
+        List<Gist> fresh = cache.getUserGists("octocat");
+        clock.advance(Duration.ofSeconds(61));
+
+        assertSame(fresh, cache.getUserGists("octocat"), "Expired entry should be served instead of a 429");
+        assertEquals(new Gson().toJson(fresh), new String(cache.getGistBodyAsync("octocat").get().json(), StandardCharsets.UTF_8),
+                "The async path falls back to the stale body as well");
+        assertEquals(2, cache.stats().staleHits());
+        assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> cache.getUserGists("unknown"),
+                "Without a stale entry the rate limit error is passed on");
+    }
+
+    @Test
+    void getGistBodyAsync_shouldServeStaleEntryWhileRefreshingInBackground() throws Exception {
+        CompletableFuture<List<Gist>> refresh = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        List<RateLimitScheduler.Priority> priorities = new CopyOnWriteArrayList<>();
+        GistSource slowUpstream = new GistSource() {
+            @Override
+            public List<Gist> getUserGists(String username) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+                priorities.add(RateLimitScheduler.currentPriority());
+                return calls.incrementAndGet() == 1 ? CompletableFuture.completedFuture(List.of(gist("v1"))) : refresh;
+            }
+        };
+        CachingGitHubApiClient cache = new CachingGitHubApiClient(slowUpstream, Duration.ofSeconds(60), Duration.ofSeconds(30),
+                Duration.ofSeconds(300), 100, Long.MAX_VALUE, clock);
+
+        GistBody v1 = cache.getGistBodyAsync("octocat").get();
+        clock.advance(Duration.ofSeconds(61));
+
+        CompletableFuture<GistBody> stale = cache.getGistBodyAsync("octocat");
+        assertTrue(stale.isDone(), "Stale entry should be served without waiting for the refresh");
+        assertSame(v1, stale.get());
+        cache.getGistBodyAsync("octocat");
+        assertEquals(2, calls.get(), "Only one refresh should be started per username");
+
+        refresh.complete(List.of(gist("v2")));
+        assertEquals("v2", cache.getUserGists("octocat").get(0).getId(), "Refreshed entry should replace the stale one");
+        assertEquals(List.of(RateLimitScheduler.Priority.USER, RateLimitScheduler.Priority.BACKGROUND), priorities);
+        assertEquals(2, cache.stats().staleHits());
+        assertEquals(1, cache.stats().refreshes());
+
+        clock.advance(Duration.ofSeconds(60 + 301));
+        cache.getGistBodyAsync("octocat");
+        assertEquals(1, cache.stats().refreshes(), "Past the stale window the entry is a plain miss");
+    }
+
+    @Test
+    void refreshHotEntries_shouldReloadMostRequestedUsersBeforeTheyExpire() throws Exception {
+        CachingGitHubApiClient cache = newCache(Duration.ofSeconds(60), 100, Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            cache.getUserGists("hot");
+        }
+        for (int i = 0; i < 3; i++) {
+            cache.getUserGists("warm");
+        }
+        cache.getUserGists("cold");
+
+        assertEquals(List.of(), cache.refreshHotEntries(2, Duration.ofSeconds(20)), "Nothing expires within 20s yet");
+        clock.advance(Duration.ofSeconds(45));
+        List<String> refreshed = cache.refreshHotEntries(2, Duration.ofSeconds(20));
+
+        assertEquals(Set.of("hot", "warm"), Set.copyOf(refreshed));
+        assertEquals(2, upstreamCalls.get("hot").get());
+        assertEquals(2, upstreamCalls.get("warm").get());
+        assertEquals(1, upstreamCalls.get("cold").get(), "Only the top-N usernames are refreshed");
+
+        clock.advance(Duration.ofSeconds(30)); // Past the original expiry, but within the refreshed TTL
+        cache.getUserGists("hot");
+        assertEquals(2, upstreamCalls.get("hot").get(), "Hot user should not see a miss");
+    }
+
+    @Test
+    void getUserGists_shouldEvictLeastRecentlyUsedWhenMaxEntriesExceeded() throws Exception {
+        CachingGitHubApiClient cache = newCache(Duration.ofSeconds(60), 2, Long.MAX_VALUE);
+
+        cache.getUserGists("a");
+        cache.getUserGists("b");
+        cache.getUserGists("a"); // 'b' is now the least recently used
+        cache.getUserGists("c");
+
+        assertEquals(2, cache.stats().entries());
+        assertEquals(1, cache.stats().evictions());
+        cache.getUserGists("a");
+        cache.getUserGists("b");
+        assertEquals(1, upstreamCalls.get("a").get(), "'a' was recently used and should still be cached");
+        assertEquals(2, upstreamCalls.get("b").get(), "'b' should have been evicted");
+    }
+
+    @Test
+    void getUserGists_shouldEvictWhenByteBudgetExceeded() throws Exception {
+        long oneEntry = CachingGitHubApiClient.estimateBytes("a", List.of(gist("a-1")));
+        CachingGitHubApiClient cache = newCache(Duration.ofSeconds(60), 100, oneEntry + oneEntry / 2);
+
+        cache.getUserGists("a");
+        cache.getUserGists("b");
+
+        CachingGitHubApiClient.CacheStats stats = cache.stats();
+        assertEquals(1, stats.entries(), "Only one entry fits in the byte budget");
+        assertEquals(1, stats.evictions());
+        assertTrue(stats.bytes() <= oneEntry + oneEntry / 2);
+    }
+
+    @Test
+    void getGistBodyAsync_shouldServeTheSameSerializedBodyOnHits() throws Exception {
+        CachingGitHubApiClient cache = newCache(Duration.ofSeconds(60), 100, Long.MAX_VALUE);
+
+        GistBody first = cache.getGistBodyAsync("octocat").get();
+        GistBody second = cache.getGistBodyAsync("octocat").get();
+
+        assertSame(first, second, "Hits should reuse the body serialized when the entry was stored");
+        assertEquals(new Gson().toJson(cache.getUserGists("octocat")), new String(first.json(), StandardCharsets.UTF_8));
+        assertEquals(1, upstreamCalls.get("octocat").get());
+    }
+
+    private CachingGitHubApiClient newCache(Duration ttl, int maxEntries, long maxBytes) {
+        return new CachingGitHubApiClient(upstream, ttl, Duration.ofSeconds(30), maxEntries, maxBytes, clock);
+    }
+
+    private static Gist gist(String id) {
+        GistFile file = new GistFile();
+        file.setFilename("hello.txt");
+        file.setLanguage("Text");
+        Gist gist = new Gist();
+        gist.setId(id);
+        gist.setDescription("Gist " + id);
+        gist.setFiles(Map.of("hello.txt", file));
+        return gist;
+    }
+
+    /**
+     * A Clock whose time only moves when the test says so.
+     */
+    static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) { now = now.plus(duration); }
+
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+}
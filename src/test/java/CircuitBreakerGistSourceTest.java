@@ -0,0 +1,202 @@
+// CircuitBreakerGistSourceTest.java
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for CircuitBreakerGistSource: state changes against a scripted source with a fake clock, and
+ * the whole chain (cache, breaker, GitHubApiClient) against a local GitHub stub that starts failing.
+ */
+public class CircuitBreakerGistSourceTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile Exception failure; // Thrown by the scripted source when set
+
+    private final GistSource scripted = username -> {
+        calls.incrementAndGet();
+        if (failure != null) {
+            throw failure;
+        }
+        return List.of();
+    };
+
+    private HttpServer stub;
+    private final AtomicInteger stubRequests = new AtomicInteger();
+    private volatile boolean stubFailing;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        stub.createContext("/", this::handle);
+        stub.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.stop(0);
+    }
+
+    @Test
+    void shouldOpenOnceTheFailureRateIsReached() throws Exception {
+        CircuitBreakerGistSource breaker = breaker();
+        breaker.getUserGists("a");
+        breaker.getUserGists("a");
+        failure = new IOException("connection reset");
+        assertThrows(IOException.class, () -> breaker.getUserGists("a"));
+        assertEquals(CircuitBreakerGistSource.State.CLOSED, breaker.state(), "1 failure in 3 calls is below the minimum");
+
+        assertThrows(IOException.class, () -> breaker.getUserGists("a"));
+        assertEquals(CircuitBreakerGistSource.State.OPEN, breaker.state(), "2 failures in 4 calls reach 50%");
+
+        int callsBefore = calls.get();
+        CircuitBreakerGistSource.CircuitOpenException open =
+                assertThrows(CircuitBreakerGistSource.CircuitOpenException.class, () -> breaker.getUserGists("a"));
+        assertEquals(30, open.retryAfterSeconds());
+        assertTrue(breaker.getUserGistsAsync("a").isCompletedExceptionally());
+        assertEquals(callsBefore, calls.get(), "An open circuit must not call the delegate");
+        assertEquals(2, breaker.stats().rejected());
+    }
+
+    @Test
+    void shouldCloseAfterSuccessfulProbes() throws Exception {
+        CircuitBreakerGistSource breaker = openBreaker();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        failure = null;
+        breaker.getUserGists("a");
+        assertEquals(CircuitBreakerGistSource.State.HALF_OPEN, breaker.state());
+        breaker.getUserGists("a");
+        assertEquals(CircuitBreakerGistSource.State.CLOSED, breaker.state(), "Both probes succeeded");
+
+        failure = new IOException("connection reset");
+        assertThrows(IOException.class, () -> breaker.getUserGists("a"));
+        assertEquals(CircuitBreakerGistSource.State.CLOSED, breaker.state(), "The window starts afresh after closing");
+    }
+
+    @Test
+    void shouldReopenWhenAProbeFails() throws Exception {
+        CircuitBreakerGistSource breaker = openBreaker();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThrows(IOException.class, () -> breaker.getUserGists("a"));
+
+        assertEquals(CircuitBreakerGistSource.State.OPEN, breaker.state());
+        assertEquals(2, breaker.stats().opened());
+        assertThrows(CircuitBreakerGistSource.CircuitOpenException.class, () -> breaker.getUserGists("a"));
+    }
+
+    @Test
+    void shouldNotCountNotFoundOrRateLimitsAsFailures() {
+        CircuitBreakerGistSource breaker = breaker();
+
+        failure = new GitHubApiClient.UserNotFoundException("GitHub user not found: ghost");
+        for (int i = 0; i < 5; i++) {
+            assertThrows(GitHubApiClient.UserNotFoundException.class, () -> breaker.getUserGists("ghost"));
+        }
+        failure = new GitHubApiClient.TooManyRequestsException("GitHub API rate limit exceeded.");
+        for (int i = 0; i < 5; i++) {
+            assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> breaker.getUserGists("a"));
+        }
+
+        assertEquals(CircuitBreakerGistSource.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.stats().windowFailures());
+    }
+
+    @Test
+    void shouldNotLetClientInputOrProgrammingErrorsOpenTheCircuit() {
+        CircuitBreakerGistSource breaker = breaker();
+
+        failure = new IllegalArgumentException("Illegal character in path");
+        for (int i = 0; i < 12; i++) {
+            assertThrows(IllegalArgumentException.class, () -> breaker.getUserGists("foo bar"));
+        }
+        failure = new GitHubApiClient.UpstreamStatusException("GitHub API error: 422 - Unprocessable", 422);
+        for (int i = 0; i < 12; i++) {
+            assertThrows(GitHubApiClient.UpstreamStatusException.class, () -> breaker.getUserGists("a"));
+        }
+
+        assertEquals(CircuitBreakerGistSource.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.stats().windowFailures());
+    }
+
+    @Test
+    void shouldCountServerErrorsAsFailures() {
+        CircuitBreakerGistSource breaker = breaker();
+
+        failure = new GitHubApiClient.UpstreamStatusException("GitHub API error: 503 - Unavailable", 503);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(GitHubApiClient.UpstreamStatusException.class, () -> breaker.getUserGists("a"));
+        }
+
+        assertEquals(CircuitBreakerGistSource.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void shouldFallBackToCachedDataWhenGitHubFails() throws Exception {
+        GitHubApiClient client = new GitHubApiClient(HttpClient.newHttpClient(), new Gson(), RateLimitScheduler.unlimited(),
+                Duration.ofSeconds(5), "http://localhost:" + stub.getAddress().getPort());
+        CircuitBreakerGistSource breaker = new CircuitBreakerGistSource(client, 4, 4, 0.5, Duration.ofMinutes(1), 1);
+        CachingGitHubApiClientTest.MutableClock clock = new CachingGitHubApiClientTest.MutableClock();
+        CachingGitHubApiClient cache = new CachingGitHubApiClient(breaker, Duration.ofSeconds(60), Duration.ZERO, 100, 1 << 20, clock);
+
+        assertEquals("octocat-1", cache.getUserGists("octocat").get(0).getId());
+        clock.advance(Duration.ofMinutes(2)); // The entry has expired
+
+        stubFailing = true;
+        for (int i = 0; i < 4; i++) {
+            assertThrows(Exception.class, () -> cache.getUserGists("uncached"));
+        }
+        assertEquals(CircuitBreakerGistSource.State.OPEN, breaker.state());
+
+        int requestsBefore = stubRequests.get();
+        assertEquals("octocat-1", cache.getUserGists("octocat").get(0).getId(), "Expired data beats an error");
+        assertEquals("octocat-1", cache.getUserGistsAsync("octocat").get().get(0).getId());
+        assertThrows(CircuitBreakerGistSource.CircuitOpenException.class, () -> cache.getUserGists("uncached"));
+        assertEquals(requestsBefore, stubRequests.get(), "Nothing should reach GitHub while the circuit is open");
+    }
+
+    private CircuitBreakerGistSource breaker() {
+        return new CircuitBreakerGistSource(scripted, 10, 4, 0.5, Duration.ofSeconds(30), 2, now::get);
+    }
+
+    private CircuitBreakerGistSource openBreaker() {
+        CircuitBreakerGistSource breaker = breaker();
+        failure = new IOException("connection reset");
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IOException.class, () -> breaker.getUserGists("a"));
+        }
+        assertEquals(CircuitBreakerGistSource.State.OPEN, breaker.state());
+        return breaker;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        stubRequests.incrementAndGet();
+        String username = exchange.getRequestURI().getPath().split("/")[2];
+        int status = stubFailing ? 502 : 200;
+        byte[] body = (stubFailing ? "{\"message\": \"Bad Gateway\"}" : "[{\"id\": \"" + username + "-1\"}]")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
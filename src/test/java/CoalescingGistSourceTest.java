@@ -0,0 +1,126 @@
+// CoalescingGistSourceTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CoalescingGistSource.
+ * The upstream blocks on a latch so that every caller is guaranteed to arrive while the
+ * first call is still in flight.
+ */
+public class CoalescingGistSourceTest {
+
+    private static final int CALLERS = 20;
+
+    @Test
+    void getUserGists_shouldShareOneUpstreamCallBetweenConcurrentCallers() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Gist gist = new Gist();
+        gist.setId("1");
+        CoalescingGistSource source = new CoalescingGistSource(username -> {
+            upstreamCalls.incrementAndGet();
+            release.await();
+            return List.of(gist);
+        });
+
+        List<Future<List<Gist>>> results = startCallers(source, "octocat");
+        waitForCoalescedCallers(source);
+        release.countDown();
+
+        for (Future<List<Gist>> result : results) {
+            assertEquals("1", result.get(5, TimeUnit.SECONDS).get(0).getId());
+        }
+        assertEquals(1, upstreamCalls.get(), "Concurrent callers should share a single upstream call");
+        assertEquals(CALLERS - 1, source.coalescedCount());
+    }
+
+    @Test
+    void getUserGists_shouldShareUpstreamExceptionWithWaitingCallers() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CoalescingGistSource source = new CoalescingGistSource(username -> {
+            upstreamCalls.incrementAndGet();
+            release.await();
+            throw new GitHubApiClient.UserNotFoundException("GitHub user not found: " + username);
+        });
+
+        List<Future<List<Gist>>> results = startCallers(source, "ghost");
+        waitForCoalescedCallers(source);
+        release.countDown();
+
+        for (Future<List<Gist>> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(GitHubApiClient.UserNotFoundException.class, e.getCause());
+            assertEquals("GitHub user not found: ghost", e.getCause().getMessage());
+        }
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void getUserGists_shouldCallUpstreamAgainOnceInFlightCallCompletes() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CoalescingGistSource source = new CoalescingGistSource(username -> {
+            upstreamCalls.incrementAndGet();
+            return List.of();
+        });
+
+        source.getUserGists("octocat");
+        source.getUserGists("octocat");
+
+        assertEquals(2, upstreamCalls.get(), "Sequential calls are not coalesced");
+        assertEquals(0, source.coalescedCount());
+    }
+
+    @Test
+    void getUserGistsAsync_shouldReleaseUsernameWhenDelegateThrowsSynchronously() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CoalescingGistSource source = new CoalescingGistSource(new GistSource() {
+            @Override
+            public List<Gist> getUserGists(String username) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+                upstreamCalls.incrementAndGet();
+                throw new IllegalArgumentException("Illegal character in path");
+            }
+        });
+
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<List<Gist>> result = source.getUserGistsAsync("foo bar");
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        }
+        assertEquals(2, upstreamCalls.get(), "A failed call must not stay in flight");
+    }
+
+    private static List<Future<List<Gist>>> startCallers(GistSource source, String username) {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<List<Gist>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> source.getUserGists(username)));
+        }
+        executor.shutdown();
+        return results;
+    }
+
+    private static void waitForCoalescedCallers(CoalescingGistSource source) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (source.coalescedCount() < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+// CompactGistsTest.java
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CompactGists: every gist must decode to exactly what was packed, including values
+ * that don't fit the compact shapes, and typical GitHub payloads must take much less memory.
+ */
+public class CompactGistsTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    void get_shouldRoundTripTypicalGists() {
+        List<Gist> gists = typicalGists(50);
+
+        CompactGists compact = CompactGists.of(gists);
+
+        assertEquals(50, compact.size());
+        assertEquals(gson.toJson(gists), gson.toJson(compact), "Decoded gists must serialize identically");
+        assertEquals("Java", compact.get(4).getFiles().get("File4.java").getLanguage());
+    }
+
+    @Test
+    void get_shouldRoundTripValuesThatDontFitTheCompactShapes() {
+        Gist odd = new Gist();
+        odd.setId("Not-Hex");
+        odd.setUrl("https://example.com/custom");
+        odd.setCreatedAt("2024-03-01T10:00:00.123+02:00");
+        GistFile renamed = new GistFile();
+        renamed.setFilename("other-name.txt");
+        renamed.setRawUrl("https://example.com/raw/file.txt");
+        Map<String, GistFile> files = new LinkedHashMap<>();
+        files.put("file.txt", renamed);
+        files.put("no-name", new GistFile());
+        odd.setFiles(files);
+
+        Gist sparse = new Gist(); // Every field null, including the files map
+        Gist noUrl = new Gist();
+        noUrl.setId("abc123");
+
+        List<Gist> gists = List.of(odd, sparse, noUrl);
+        CompactGists compact = CompactGists.of(gists);
+
+        assertEquals(gson.toJson(gists), gson.toJson(compact));
+        assertNull(compact.get(1).getFiles());
+        assertNull(compact.get(2).getUrl(), "A missing url must not be derived from the id");
+        assertNull(compact.get(0).getFiles().get("no-name").getFilename());
+    }
+
+    @Test
+    void get_shouldReturnIndependentCopies() {
+        CompactGists compact = CompactGists.of(typicalGists(2));
+
+        compact.get(0).setDescription("changed");
+
+        assertEquals("Gist number 0", compact.get(0).getDescription());
+        assertThrows(UnsupportedOperationException.class, () -> compact.add(new Gist()));
+        assertThrows(IndexOutOfBoundsException.class, () -> compact.get(2));
+    }
+
+    @Test
+    void retainedBytes_shouldBeAFractionOfTheObjectGraph() {
+        List<Gist> gists = typicalGists(300);
+
+        long compact = CompactGists.of(gists).retainedBytes();
+        long objects = objectGraphBytes(gists);
+
+        assertTrue(compact * 3 < objects, "Packed form should take less than a third of the memory, took "
+                + compact + " bytes vs ~" + objects + " as objects");
+    }
+
+    @Test
+    void columnReaders_shouldAgreeWithDecodedGists() {
+        List<Gist> gists = new ArrayList<>(typicalGists(40));
+        Gist sparse = new Gist(); // No files map, no creation time
+        sparse.setId("Not-Hex");
+        gists.add(sparse);
+        CompactGists compact = CompactGists.of(gists);
+        List<Gist> decoded = new ArrayList<>(compact); // A plain list takes the Gist/GistFile paths
+
+        assertEquals(GistStats.of(decoded), GistStats.of(compact));
+        assertEquals(GistContents.files(decoded, null), GistContents.files(compact, null));
+        assertEquals(GistContents.files(decoded, compact.get(3).getId()), GistContents.files(compact, compact.get(3).getId()));
+        for (String query : List.of("?fields=id,files&language=java", "?fields=id,created_at&since=2023-06-01", "?language=Shell")) {
+            GistQuery parsed = GistQuery.parse(URI.create("/octocat" + query));
+            assertArrayEquals(parsed.body(decoded, false).json(), parsed.body(compact, false).json(), query);
+        }
+
+        GistSearchIndex fromObjects = new GistSearchIndex(1000);
+        GistSearchIndex fromColumns = new GistSearchIndex(1000);
+        fromObjects.update("octocat", decoded);
+        fromColumns.update("octocat", compact);
+        assertTrue(fromColumns.search("number java", null, 100).total() > 0);
+        assertEquals(fromObjects.search("number java", null, 100), fromColumns.search("number java", null, 100));
+        assertEquals(fromObjects.search("gist", "Python", 100), fromColumns.search("gist", "Python", 100));
+    }
+
+    private static List<Gist> typicalGists(int count) {
+        String[] languages = {"Java", "Markdown", "Python", "Shell"};
+        String[] extensions = {"java", "md", "py", "sh"};
+        List<Gist> gists = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = String.format("%032x", 0xabcdef1234L * (i + 1));
+            Gist gist = new Gist();
+            gist.setId(id);
+            gist.setDescription("Gist number " + i);
+            gist.setUrl("https://api.github.com/gists/" + id);
+            gist.setCreatedAt(String.format("2023-%02d-%02dT12:34:56Z", i % 12 + 1, i % 28 + 1));
+            Map<String, GistFile> files = new LinkedHashMap<>();
+            for (int f = 0; f < 2; f++) {
+                int kind = (i + f) % languages.length;
+                String name = "File" + i + (f == 0 ? "" : "-" + f) + "." + extensions[kind];
+                GistFile file = new GistFile();
+                file.setFilename(name);
+                file.setType(kind == 0 ? "text/x-java" : "text/plain");
+                file.setLanguage(languages[kind]);
+                file.setRawUrl("https://gist.githubusercontent.com/octocat/" + id + "/raw/"
+                        + String.format("%040x", (long) i * 31 + f) + "/" + name);
+                file.setSize(100 + i);
+                files.put(name, file);
+            }
+            gist.setFiles(files);
+            gists.add(gist);
+        }
+        return gists;
+    }
+
+    /**
+     * Rough heap size of parsed Gist objects: object headers, HashMap nodes and one String per value.
+     */
+    private static long objectGraphBytes(List<Gist> gists) {
+        long bytes = 16 + 4L * gists.size();
+        for (Gist gist : gists) {
+            bytes += 40 + string(gist.getId()) + string(gist.getDescription()) + string(gist.getUrl())
+                    + string(gist.getCreatedAt()) + 64; // + the map itself
+            for (Map.Entry<String, GistFile> file : gist.getFiles().entrySet()) {
+                GistFile f = file.getValue();
+                bytes += 32 + 40 // map node, GistFile
+                        + string(file.getKey()) + string(f.getFilename()) + string(f.getType())
+                        + string(f.getLanguage()) + string(f.getRawUrl());
+            }
+        }
+        return bytes;
+    }
+
+    private static long string(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+}
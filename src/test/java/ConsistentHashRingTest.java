@@ -0,0 +1,68 @@
+// ConsistentHashRingTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConsistentHashRing.
+ */
+public class ConsistentHashRingTest {
+
+    private static final List<String> NODES = List.of("http://gists-0:8080", "http://gists-1:8080", "http://gists-2:8080");
+
+    @Test
+    void owner_shouldBeStableAndAgreeAcrossInstances() {
+        ConsistentHashRing first = new ConsistentHashRing(NODES, 128);
+        ConsistentHashRing second = new ConsistentHashRing(List.of(NODES.get(2), NODES.get(0), NODES.get(1), NODES.get(0)), 128);
+
+        assertEquals(3, second.nodes().size(), "Duplicates are ignored");
+        for (int i = 0; i < 1000; i++) {
+            String user = "user-" + i;
+            assertEquals(first.owner(user), first.owner(user));
+            assertEquals(first.owner(user), second.owner(user), "Node order must not change the owners");
+        }
+    }
+
+    @Test
+    void owner_shouldSpreadKeysEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+        Map<String, Integer> counts = new HashMap<>();
+        int keys = 30_000;
+        for (int i = 0; i < keys; i++) {
+            counts.merge(ring.owner("user-" + i), 1, Integer::sum);
+        }
+
+        for (String node : NODES) {
+            double share = counts.getOrDefault(node, 0) / (double) keys;
+            assertTrue(share > 0.25 && share < 0.42, node + " got " + share + " of the keys");
+        }
+    }
+
+    @Test
+    void addingANode_shouldOnlyMoveKeysToThatNode() {
+        ConsistentHashRing before = new ConsistentHashRing(NODES, 128);
+        String added = "http://gists-3:8080";
+        ConsistentHashRing after = new ConsistentHashRing(List.of(NODES.get(0), NODES.get(1), NODES.get(2), added), 128);
+
+        int moved = 0;
+        int keys = 20_000;
+        for (int i = 0; i < keys; i++) {
+            String user = "user-" + i;
+            if (!before.owner(user).equals(after.owner(user))) {
+                assertEquals(added, after.owner(user), "A key may only move to the new node");
+                moved++;
+            }
+        }
+        double share = moved / (double) keys;
+        assertTrue(share > 0.17 && share < 0.33, "About a quarter of the keys should move, moved " + share);
+    }
+
+    @Test
+    void constructor_shouldRejectAnEmptyRing() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 128));
+    }
+}
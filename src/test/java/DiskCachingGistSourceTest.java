@@ -0,0 +1,98 @@
+// DiskCachingGistSourceTest.java
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DiskCachingGistSource. The upstream is an in-memory GistSource that counts calls,
+ * and each test "restarts" by opening a new instance on the same file.
+ */
+public class DiskCachingGistSourceTest {
+
+    @TempDir
+    Path dir;
+
+    private CachingGitHubApiClientTest.MutableClock clock;
+    private AtomicInteger upstreamCalls;
+    private boolean rateLimited;
+    private GistSource upstream;
+
+    @BeforeEach
+    void setUp() {
+        clock = new CachingGitHubApiClientTest.MutableClock();
+        upstreamCalls = new AtomicInteger();
+        upstream = username -> {
+            upstreamCalls.incrementAndGet();
+            if (rateLimited) {
+                throw new GitHubApiClient.TooManyRequestsException("GitHub API rate limit exceeded.");
+            }
+            Gist gist = new Gist();
+            gist.setId(username + "-" + upstreamCalls.get());
+            gist.setDescription("Café ☕");
+            return List.of(gist);
+        };
+    }
+
+    @Test
+    void getUserGists_shouldAnswerFromDiskAfterARestart() throws Exception {
+        try (DiskCachingGistSource disk = open()) {
+            disk.getUserGists("octocat");
+        }
+
+        try (DiskCachingGistSource restarted = open()) {
+            List<Gist> gists = restarted.getUserGistsAsync("octocat").get();
+            assertEquals("octocat-1", gists.get(0).getId());
+            assertEquals("Café ☕", gists.get(0).getDescription());
+            assertEquals(1, upstreamCalls.get(), "The restarted instance should not call upstream");
+            assertEquals(1, restarted.stats().hits());
+        }
+    }
+
+    @Test
+    void getUserGists_shouldReloadRecordsOlderThanTtl() throws Exception {
+        try (DiskCachingGistSource disk = open()) {
+            disk.getUserGists("octocat");
+            clock.advance(Duration.ofSeconds(601));
+
+            assertEquals("octocat-2", disk.getUserGists("octocat").get(0).getId());
+            assertEquals(2, upstreamCalls.get());
+            assertEquals(2, disk.stats().writes());
+        }
+    }
+
+    @Test
+    void getUserGists_shouldBypassDiskForBackgroundRefreshes() throws Exception {
+        try (DiskCachingGistSource disk = open()) {
+            disk.getUserGists("octocat");
+            List<Gist> refreshed = RateLimitScheduler.withPriority(RateLimitScheduler.Priority.BACKGROUND,
+                    () -> disk.getUserGistsAsync("octocat").join());
+
+            assertEquals("octocat-2", refreshed.get(0).getId(), "A refresh must fetch newer data");
+            assertEquals("octocat-2", disk.getUserGists("octocat").get(0).getId(), "and write it through");
+        }
+    }
+
+    @Test
+    void getUserGists_shouldFallBackToOldRecordsWhenRateLimited() throws Exception {
+        try (DiskCachingGistSource disk = open()) {
+            disk.getUserGists("octocat");
+            clock.advance(Duration.ofHours(2));
+            rateLimited = true;
+
+            assertEquals("octocat-1", disk.getUserGists("octocat").get(0).getId());
+            assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> disk.getUserGists("unknown"));
+        }
+    }
+
+    private DiskCachingGistSource open() throws Exception {
+        return new DiskCachingGistSource(upstream, new SegmentFile(dir.resolve("gists.seg"), 1024 * 1024),
+                Duration.ofSeconds(600), clock);
+    }
+}
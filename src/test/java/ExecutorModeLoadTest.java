@@ -0,0 +1,101 @@
+// ExecutorModeLoadTest.java
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test comparing GistServer throughput across executor modes.
+ * The upstream is an in-memory GistSource that sleeps to simulate GitHub latency, so the test
+ * measures how many slow upstream calls each mode can keep in flight. Results are printed as a
+ * table of requests/second per mode and upstream latency. Tagged "load", so it only runs with -Pload.
+ */
+@Tag("load")
+public class ExecutorModeLoadTest {
+
+    private static final int REQUESTS = 200;
+    private static final int CLIENT_CONCURRENCY = 50;
+    private static final int POOL_THREADS = 10;
+    private static final int[] UPSTREAM_LATENCIES_MS = {20, 100};
+
+    @Test
+    void virtualThreadsShouldOutperformFixedPoolWhenUpstreamIsSlow() throws Exception {
+        Map<ExecutorMode, double[]> throughput = new EnumMap<>(ExecutorMode.class);
+        for (ExecutorMode mode : ExecutorMode.values()) {
+            double[] perLatency = new double[UPSTREAM_LATENCIES_MS.length];
+            for (int i = 0; i < UPSTREAM_LATENCIES_MS.length; i++) {
+                perLatency[i] = measureThroughput(mode, UPSTREAM_LATENCIES_MS[i]);
+            }
+            throughput.put(mode, perLatency);
+        }
+
+        System.out.println("ExecutorModeLoadTest: requests/second (" + REQUESTS + " requests, "
+                + CLIENT_CONCURRENCY + " concurrent clients, " + POOL_THREADS + " pool threads)");
+        StringBuilder header = new StringBuilder(String.format("%-15s", "mode"));
+        for (int latency : UPSTREAM_LATENCIES_MS) {
+            header.append(String.format("%12s", latency + "ms"));
+        }
+        System.out.println(header);
+        for (Map.Entry<ExecutorMode, double[]> row : throughput.entrySet()) {
+            StringBuilder line = new StringBuilder(String.format("%-15s", row.getKey()));
+            for (double rps : row.getValue()) {
+                line.append(String.format("%12.1f", rps));
+            }
+            System.out.println(line);
+        }
+
+        // With 100ms upstream latency a 10-thread pool tops out around 100 req/s,
+        // while virtual threads are only limited by the client's concurrency.
+        int slowest = UPSTREAM_LATENCIES_MS.length - 1;
+        assertTrue(throughput.get(ExecutorMode.VIRTUAL)[slowest] > 1.5 * throughput.get(ExecutorMode.FIXED)[slowest],
+                "Virtual threads should sustain far more concurrent slow upstream calls than a fixed pool");
+    }
+
+    private static double measureThroughput(ExecutorMode mode, int upstreamLatencyMs) throws Exception {
+        GistSource slowUpstream = username -> {
+            Thread.sleep(upstreamLatencyMs);
+            return List.of();
+        };
+        GistServer server = new GistServer(0, slowUpstream, mode.create(POOL_THREADS));
+        server.start();
+        HttpClient client = HttpClient.newHttpClient();
+        try {
+            runRequests(client, server.port(), CLIENT_CONCURRENCY); // Warm up connections and JIT
+            long start = System.nanoTime();
+            runRequests(client, server.port(), REQUESTS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return REQUESTS / seconds;
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static void runRequests(HttpClient client, int port, int count) throws Exception {
+        Semaphore permits = new Semaphore(CLIENT_CONCURRENCY);
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.acquire();
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:" + port + "/user" + i))
+                    .GET()
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> permits.release()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get().statusCode());
+        }
+    }
+}
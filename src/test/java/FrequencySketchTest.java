@@ -0,0 +1,78 @@
+// FrequencySketchTest.java
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FrequencySketch.
+ */
+public class FrequencySketchTest {
+
+    @Test
+    void frequency_shouldTrackHowOftenKeysWereSeen() {
+        FrequencySketch sketch = new FrequencySketch(1000);
+
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("octocat");
+        }
+        sketch.increment("torvalds");
+
+        assertEquals(5, sketch.frequency("octocat"));
+        assertEquals(1, sketch.frequency("torvalds"));
+        assertEquals(0, sketch.frequency("nobody"));
+    }
+
+    @Test
+    void frequency_shouldSaturateAtFifteen() {
+        FrequencySketch sketch = new FrequencySketch(1000);
+
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("octocat");
+        }
+
+        assertEquals(15, sketch.frequency("octocat"));
+    }
+
+    @Test
+    void frequency_shouldRankHotKeysAboveColdOnesUnderLoad() {
+        FrequencySketch sketch = new FrequencySketch(1000);
+
+        // 1000 cold keys seen once, 10 hot keys seen 10 times each
+        for (int i = 0; i < 1000; i++) {
+            sketch.increment("cold-" + i);
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 10; i++) {
+                sketch.increment("hot-" + i);
+            }
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(sketch.frequency("hot-" + i) >= 10, "Count-min never under-estimates");
+        }
+        int overEstimated = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (sketch.frequency("cold-" + i) > 2) {
+                overEstimated++;
+            }
+        }
+        assertTrue(overEstimated < 20, "Few cold keys should collide into looking popular, got " + overEstimated);
+    }
+
+    @Test
+    void increment_shouldAgeOldCountsAfterManyAdditions() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+
+        for (int i = 0; i < 15; i++) {
+            sketch.increment("octocat");
+        }
+        // About 10 x capacity additions trigger a reset that halves every counter
+        for (int i = 0; i < 10 * 1024 + 500; i++) {
+            sketch.increment("filler-" + i);
+        }
+
+        int aged = sketch.frequency("octocat");
+        assertTrue(aged < 15, "Counts should have been halved, got " + aged);
+        assertTrue(aged >= 7, "Halving keeps the relative popularity, got " + aged);
+    }
+}
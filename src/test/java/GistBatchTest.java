@@ -0,0 +1,96 @@
+// GistBatchTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GistBatch. The source hands out futures the test completes by hand, so the number
+ * of lookups in flight can be observed directly.
+ */
+public class GistBatchTest {
+
+    @Test
+    void usernames_shouldTrimDropBlanksAndDedupeInOrder() {
+        List<String> requested = List.of(" octocat", "torvalds", "", "octocat ", "  ", "mojombo", "torvalds");
+
+        assertEquals(List.of("octocat", "torvalds", "mojombo"), GistBatch.usernames(requested));
+    }
+
+    @Test
+    void fetch_shouldKeepAtMostParallelismLookupsInFlight() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<CompletableFuture<GistBody>> pending = new ArrayList<>();
+        GistSource source = new GistSource() {
+            @Override
+            public List<Gist> getUserGists(String username) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public synchronized CompletableFuture<GistBody> getGistBodyAsync(String username) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                CompletableFuture<GistBody> future = new CompletableFuture<>();
+                pending.add(future);
+                return future;
+            }
+        };
+
+        List<String> usernames = List.of("a", "b", "c", "d", "e", "f", "g");
+        BlockingQueue<GistBatch.Result> results = new GistBatch(source, 3).fetch(usernames, GistQuery.ALL);
+        assertEquals(3, pending.size(), "Only the first three lookups should start");
+
+        // Finish lookups one at a time; each completion starts the next pending username
+        for (int i = 0; i < usernames.size(); i++) {
+            CompletableFuture<GistBody> next;
+            synchronized (source) {
+                next = pending.get(i);
+            }
+            inFlight.decrementAndGet();
+            next.complete(GistBody.of(List.of()));
+        }
+
+        for (int i = 0; i < usernames.size(); i++) {
+            assertNotNull(results.poll(5, TimeUnit.SECONDS));
+        }
+        assertEquals(7, pending.size());
+        assertEquals(3, maxInFlight.get());
+    }
+
+    @Test
+    void fetch_shouldReportFailuresPerUser() throws Exception {
+        GistSource source = username -> {
+            if (username.equals("ghost")) {
+                throw new GitHubApiClient.UserNotFoundException("GitHub user not found: ghost");
+            }
+            Gist gist = new Gist();
+            gist.setId(username + "-1");
+            return List.of(gist);
+        };
+
+        BlockingQueue<GistBatch.Result> queue = new GistBatch(source, 2).fetch(List.of("octocat", "ghost", "torvalds"), GistQuery.ALL);
+        Map<String, GistBatch.Result> results = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            GistBatch.Result result = queue.poll(5, TimeUnit.SECONDS);
+            results.put(result.username(), result);
+        }
+
+        assertInstanceOf(GitHubApiClient.UserNotFoundException.class, results.get("ghost").error());
+        assertNull(results.get("octocat").error());
+        assertTrue(new String(results.get("torvalds").body().json()).contains("torvalds-1"));
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> new GistBatch(username -> List.of(), 0));
+    }
+}
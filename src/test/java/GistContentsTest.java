@@ -0,0 +1,248 @@
+// GistContentsTest.java
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GistContents, RawContentFetcher and RawContentCache, against a local HTTP server
+ * standing in for gist.githubusercontent.com. Paths under /raw/ answer with their last segment
+ * repeated {@code ?size=} times; /raw/missing answers 404.
+ */
+public class GistContentsTest {
+
+    private HttpServer server;
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile long delayMillis;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/raw/", exchange -> {
+            downloads.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try (exchange) {
+                Thread.sleep(delayMillis);
+                String path = exchange.getRequestURI().getPath();
+                String name = path.substring(path.lastIndexOf('/') + 1);
+                if (name.equals("missing")) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                String size = GistServer.queryParameter(exchange.getRequestURI(), "size");
+                byte[] body = name.repeat(size == null ? 1 : Integer.parseInt(size)).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private String raw(String name) {
+        return "http://localhost:" + server.getAddress().getPort() + "/raw/" + name;
+    }
+
+    private RawContentFetcher fetcher(RawContentCache cache, int maxFileBytes) {
+        return new RawContentFetcher(HttpClient.newHttpClient(), Duration.ofSeconds(5), cache, maxFileBytes);
+    }
+
+    private static List<GistContents.Result> drain(BlockingQueue<GistContents.Result> results, int count) throws InterruptedException {
+        List<GistContents.Result> drained = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            GistContents.Result result = results.poll(10, TimeUnit.SECONDS);
+            assertNotNull(result, "Timed out waiting for result " + i);
+            drained.add(result);
+        }
+        return drained;
+    }
+
+    @Test
+    void files_shouldListFilesWithRawUrlsOptionallyForOneGist() {
+        GistFile withUrl = new GistFile();
+        withUrl.setRawUrl("https://gist.githubusercontent.com/octocat/1/raw/abc/a.txt");
+        withUrl.setLanguage("Text");
+        GistFile withoutUrl = new GistFile();
+        Gist first = new Gist();
+        first.setId("1");
+        first.setFiles(Map.of("a.txt", withUrl, "b.txt", withoutUrl));
+        Gist second = new Gist();
+        second.setId("2");
+        second.setFiles(Map.of("c.txt", withUrl));
+        Gist empty = new Gist();
+        empty.setId("3");
+
+        List<GistContents.FileRef> all = GistContents.files(List.of(first, second, empty), null);
+        assertEquals(2, all.size());
+        assertEquals(new GistContents.FileRef("1", "a.txt", "Text", withUrl.getRawUrl()), all.get(0));
+
+        List<GistContents.FileRef> one = GistContents.files(List.of(first, second, empty), "2");
+        assertEquals(1, one.size());
+        assertEquals("c.txt", one.get(0).filename());
+    }
+
+    @Test
+    void fetch_shouldKeepAtMostParallelismDownloadsInFlight() throws Exception {
+        delayMillis = 50;
+        List<GistContents.FileRef> files = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            files.add(new GistContents.FileRef("g", "f" + i, null, raw("f" + i)));
+        }
+        GistContents contents = new GistContents(fetcher(new RawContentCache(1 << 20), 1024), 3);
+
+        List<GistContents.Result> results = drain(contents.fetch(files), files.size());
+
+        Set<String> names = new HashSet<>();
+        for (GistContents.Result result : results) {
+            assertNull(result.error());
+            assertEquals(result.file().filename(), new String(result.content().bytes(), StandardCharsets.UTF_8));
+            names.add(result.file().filename());
+        }
+        assertEquals(10, names.size(), "Every file should be answered exactly once");
+        assertTrue(maxInFlight.get() <= 3, "At most 3 downloads at once, saw " + maxInFlight.get());
+    }
+
+    @Test
+    void fetch_shouldReportFailedDownloadsPerFile() throws Exception {
+        GistContents contents = new GistContents(fetcher(new RawContentCache(1 << 20), 1024), 2);
+        List<GistContents.FileRef> files = List.of(
+                new GistContents.FileRef("g", "ok", null, raw("ok")),
+                new GistContents.FileRef("g", "missing", null, raw("missing")));
+
+        List<GistContents.Result> results = drain(contents.fetch(files), 2);
+
+        for (GistContents.Result result : results) {
+            if (result.file().filename().equals("missing")) {
+                assertInstanceOf(IOException.class, result.error());
+                assertTrue(result.error().getMessage().contains("404"));
+            } else {
+                assertNull(result.error());
+            }
+        }
+    }
+
+    @Test
+    void fetcher_shouldTruncateAtTheCapAndMarkTheContent() throws Exception {
+        RawContentFetcher fetcher = fetcher(new RawContentCache(1 << 20), 100);
+
+        RawContentFetcher.Content big = fetcher.fetch(raw("abcd?size=10000")).get(10, TimeUnit.SECONDS);
+        assertEquals(100, big.bytes().length);
+        assertTrue(big.truncated());
+
+        RawContentFetcher.Content small = fetcher.fetch(raw("abcd?size=25")).get(10, TimeUnit.SECONDS);
+        assertEquals(100, small.bytes().length);
+        assertFalse(small.truncated(), "Exactly the cap is not truncated");
+    }
+
+    @Test
+    void fetcher_shouldServeRepeatsFromTheCacheAndShareConcurrentDownloads() throws Exception {
+        delayMillis = 100;
+        RawContentCache cache = new RawContentCache(1 << 20);
+        RawContentFetcher fetcher = fetcher(cache, 1024);
+
+        CompletableFuture<RawContentFetcher.Content> first = fetcher.fetch(raw("shared"));
+        CompletableFuture<RawContentFetcher.Content> second = fetcher.fetch(raw("shared"));
+        assertSame(first, second, "A concurrent fetch should join the running download");
+        first.get(10, TimeUnit.SECONDS);
+
+        RawContentFetcher.Content cached = fetcher.fetch(raw("shared")).get(10, TimeUnit.SECONDS);
+        assertEquals("shared", new String(cached.bytes(), StandardCharsets.UTF_8));
+        assertEquals(1, downloads.get());
+        assertEquals(1, fetcher.downloadCount());
+        assertEquals(1, cache.stats().hits());
+    }
+
+    @Test
+    void fetcher_shouldGiveUpOnABodyThatStallsAfterTheHeaders() throws Exception {
+        server.createContext("/stall/", exchange -> {
+            try (exchange) {
+                exchange.sendResponseHeaders(200, 1000);
+                OutputStream out = exchange.getResponseBody();
+                out.write(new byte[10]);
+                out.flush();
+                Thread.sleep(10_000); // The other 990 bytes never come
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        String url = "http://localhost:" + server.getAddress().getPort() + "/stall/file";
+        RawContentFetcher fetcher = new RawContentFetcher(HttpClient.newHttpClient(), Duration.ofMillis(300),
+                new RawContentCache(1 << 20), 1024);
+
+        CompletableFuture<RawContentFetcher.Content> stalled = fetcher.fetch(url);
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> stalled.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, failure.getCause());
+
+        assertNotSame(stalled, fetcher.fetch(url), "A later fetch should start over rather than join the stalled one");
+    }
+
+    @Test
+    void cache_shouldEvictLeastRecentlyUsedEntriesBeyondItsBudget() {
+        RawContentFetcher.Content kilobyte = new RawContentFetcher.Content(new byte[1000], false);
+        RawContentCache cache = new RawContentCache(2500);
+
+        cache.put("a", kilobyte);
+        cache.put("b", kilobyte);
+        assertNotNull(cache.get("a")); // Makes "b" the least recently used
+        cache.put("c", kilobyte);
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        RawContentCache.RawCacheStats stats = cache.stats();
+        assertEquals(1, stats.evictions());
+        assertEquals(2, stats.entries());
+        assertTrue(stats.bytes() <= 2500);
+
+        cache.put("huge", new RawContentFetcher.Content(new byte[5000], false));
+        assertNull(cache.get("huge"), "An entry larger than the whole budget is not kept");
+        assertEquals(2, cache.stats().entries());
+    }
+
+    @Test
+    void text_shouldDropACharacterCutByTruncationAndRejectBinary() {
+        byte[] euro = "a€".getBytes(StandardCharsets.UTF_8); // 'a' then a 3-byte sequence
+        byte[] cut = java.util.Arrays.copyOf(euro, 3);
+        assertEquals(1, GistContents.utf8Boundary(cut));
+        assertEquals(4, GistContents.utf8Boundary(euro));
+        assertEquals("a", GistContents.text(new RawContentFetcher.Content(cut, true)));
+        assertEquals("a€", GistContents.text(new RawContentFetcher.Content(euro, false)));
+
+        assertNull(GistContents.text(new RawContentFetcher.Content(new byte[]{(byte) 0x89, 'P', 'N', 'G'}, false)));
+        assertNull(GistContents.text(new RawContentFetcher.Content(cut, false)), "A cut character without truncation is binary");
+    }
+}
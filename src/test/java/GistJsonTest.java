@@ -0,0 +1,57 @@
+// GistJsonTest.java
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming helpers in GistJson.
+ */
+public class GistJsonTest {
+
+    // Shaped like a real GitHub response, including fields Gist/GistFile don't model.
+    private static final String UPSTREAM_JSON = "["
+            + "{\"url\":\"https://api.github.com/gists/aa1\",\"forks_url\":\"https://api.github.com/gists/aa1/forks\","
+            + "\"id\":\"aa1\",\"node_id\":\"G_1\",\"files\":{\"hello.py\":{\"filename\":\"hello.py\",\"type\":\"application/x-python\","
+            + "\"language\":\"Python\",\"raw_url\":\"https://gist.githubusercontent.com/octocat/aa1/raw/abc/hello.py\",\"size\":42}},"
+            + "\"public\":true,\"created_at\":\"2024-01-01T00:00:00Z\",\"description\":\"Café <script>\",\"comments\":3,"
+            + "\"owner\":{\"login\":\"octocat\",\"id\":1,\"site_admin\":false},\"truncated\":false},"
+            + "{\"id\":\"bb2\",\"description\":null,\"files\":{},\"history\":[{\"version\":\"x\"}]}"
+            + "]";
+
+    @Test
+    void copyGists_shouldProduceSameJsonAsSerializingTheParsedList() throws Exception {
+        Gson gson = new Gson();
+        List<Gist> parsed = gson.fromJson(UPSTREAM_JSON, new TypeToken<List<Gist>>(){}.getType());
+
+        StringWriter streamed = new StringWriter();
+        int count = GistJson.copyGists(gson, new JsonReader(new StringReader(UPSTREAM_JSON)), new JsonWriter(streamed));
+
+        assertEquals(2, count);
+        assertEquals(gson.toJson(parsed), streamed.toString(), "Streaming copy should match the materialized path");
+        assertFalse(streamed.toString().contains("owner"), "Fields not in Gist should be dropped");
+        assertFalse(streamed.toString().contains("forks_url"), "Fields not in Gist should be dropped");
+    }
+
+    @Test
+    void copyGists_shouldCopyEmptyArray() throws Exception {
+        StringWriter streamed = new StringWriter();
+        int count = GistJson.copyGists(new Gson(), new JsonReader(new StringReader("[]")), new JsonWriter(streamed));
+
+        assertEquals(0, count);
+        assertEquals("[]", streamed.toString());
+    }
+
+    @Test
+    void copyGists_shouldRejectNonArrayInput() {
+        assertThrows(IllegalStateException.class, () ->
+                GistJson.copyGists(new Gson(), new JsonReader(new StringReader("{\"message\":\"Not Found\"}")), new JsonWriter(new StringWriter())));
+    }
+}
@@ -0,0 +1,99 @@
+// GistPayloads.java
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Builds GitHub-shaped /users/{username}/gists payloads for benchmarks and for GitHubStub.
+ * Each gist carries the full set of fields GitHub returns (URLs, owner object, flags),
+ * most of which Gist/GistFile don't model, so parsing pays the same skipping cost as in production.
+ */
+final class GistPayloads {
+
+    private static final String[] LANGUAGES = {"Java", "Python", "Markdown", "JavaScript", "Shell", null};
+    private static final String[] EXTENSIONS = {"java", "py", "md", "js", "sh", "txt"};
+
+    private GistPayloads() {
+    }
+
+    /**
+     * @param username Owner of the gists.
+     * @param gistCount Number of gists in the array.
+     * @return The payload as GitHub would send it (compact JSON).
+     */
+    static String userGists(String username, int gistCount) {
+        return userGists(username, 0, gistCount, 0);
+    }
+
+    /**
+     * One page of a user's gists: gists {@code first} to {@code first + count - 1} of the full list.
+     *
+     * @param revision Changes the descriptions and updated_at, as an edit on GitHub would (0 is the original).
+     */
+    static String userGists(String username, int first, int count, int revision) {
+        JsonArray gists = new JsonArray();
+        for (int i = first; i < first + count; i++) {
+            gists.add(gist(username, i, revision));
+        }
+        return gists.toString();
+    }
+
+    private static JsonObject gist(String username, int index, int revision) {
+        String id = String.format("%032x", (long) index * 0x9E3779B97F4A7C15L & Long.MAX_VALUE);
+        String gistUrl = "https://api.github.com/gists/" + id;
+
+        JsonObject gist = new JsonObject();
+        gist.addProperty("url", gistUrl);
+        gist.addProperty("forks_url", gistUrl + "/forks");
+        gist.addProperty("commits_url", gistUrl + "/commits");
+        gist.addProperty("id", id);
+        gist.addProperty("node_id", "G_kwDOA" + index);
+        gist.addProperty("git_pull_url", "https://gist.github.com/" + id + ".git");
+        gist.addProperty("git_push_url", "https://gist.github.com/" + id + ".git");
+        gist.addProperty("html_url", "https://gist.github.com/" + username + "/" + id);
+
+        JsonObject files = new JsonObject();
+        int fileCount = 1 + index % 3;
+        for (int f = 0; f < fileCount; f++) {
+            int kind = (index + f) % LANGUAGES.length;
+            String filename = "snippet-" + index + "-" + f + "." + EXTENSIONS[kind];
+            JsonObject file = new JsonObject();
+            file.addProperty("filename", filename);
+            file.addProperty("type", "text/plain");
+            file.addProperty("language", LANGUAGES[kind]);
+            file.addProperty("raw_url", "https://gist.githubusercontent.com/" + username + "/" + id + "/raw/" + id.substring(0, 16) + "/" + filename);
+            file.addProperty("size", 120 + (index * 37 + f * 11) % 4000);
+            files.add(filename, file);
+        }
+        gist.add("files", files);
+
+        gist.addProperty("public", true);
+        gist.addProperty("created_at", String.format("2023-%02d-%02dT12:%02d:00Z", 1 + index % 12, 1 + index % 28, index % 60));
+        gist.addProperty("updated_at", String.format("2024-%02d-%02dT08:%02d:%02dZ", 1 + index % 12, 1 + index % 28, index % 60, revision % 60));
+        gist.addProperty("description", (index % 5 == 0 ? "" : "Example gist #" + index + " – notes, snippets & scripts")
+                + (revision == 0 ? "" : " (rev " + revision + ")"));
+        gist.addProperty("comments", index % 7);
+        gist.add("user", null);
+        gist.addProperty("comments_url", gistUrl + "/comments");
+        gist.add("owner", owner(username));
+        gist.addProperty("truncated", false);
+        return gist;
+    }
+
+    private static JsonObject owner(String username) {
+        String userUrl = "https://api.github.com/users/" + username;
+        JsonObject owner = new JsonObject();
+        owner.addProperty("login", username);
+        owner.addProperty("id", 583231);
+        owner.addProperty("node_id", "MDQ6VXNlcjU4MzIzMQ==");
+        owner.addProperty("avatar_url", "https://avatars.githubusercontent.com/u/583231?v=4");
+        owner.addProperty("gravatar_id", "");
+        owner.addProperty("url", userUrl);
+        owner.addProperty("html_url", "https://github.com/" + username);
+        owner.addProperty("followers_url", userUrl + "/followers");
+        owner.addProperty("gists_url", userUrl + "/gists{/gist_id}");
+        owner.addProperty("repos_url", userUrl + "/repos");
+        owner.addProperty("type", "User");
+        owner.addProperty("site_admin", false);
+        return owner;
+    }
+}
@@ -0,0 +1,121 @@
+// GistQueryTest.java
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GistQuery: parsing the query parameters, filtering, and projected serialization.
+ */
+public class GistQueryTest {
+
+    private static final String UPSTREAM_PAGE = """
+            [
+              {"id": "1", "description": "Java gist", "url": "https://api.github.com/gists/1",
+               "created_at": "2024-03-01T10:00:00Z", "owner": {"login": "octocat"}, "comments": 3,
+               "files": {"Main.java": {"filename": "Main.java", "language": "Java", "size": 42, "truncated": false}}},
+              {"id": "2", "description": null, "url": "https://api.github.com/gists/2",
+               "created_at": "2023-06-01T10:00:00Z",
+               "files": {"notes.md": {"filename": "notes.md", "language": "Markdown", "size": 7}}}
+            ]
+            """;
+
+    @Test
+    void parse_shouldReturnAllWithoutParameters() {
+        assertSame(GistQuery.ALL, GistQuery.parse(URI.create("/octocat")));
+        assertSame(GistQuery.ALL, GistQuery.parse(URI.create("/?users=a,b")));
+        assertTrue(GistQuery.ALL.isAll());
+        assertFalse(GistQuery.parse(URI.create("/octocat?fields=id")).isAll());
+    }
+
+    @Test
+    void parse_shouldRejectUnknownFieldsAndBadDates() {
+        assertThrows(IllegalArgumentException.class, () -> GistQuery.parse(URI.create("/octocat?fields=id,owner")));
+        assertThrows(IllegalArgumentException.class, () -> GistQuery.parse(URI.create("/octocat?since=yesterday")));
+    }
+
+    @Test
+    void body_shouldWriteOnlySelectedFields() {
+        GistQuery query = GistQuery.parse(URI.create("/octocat?fields=id,createdAt"));
+
+        String json = new String(query.body(gists(), false).json(), StandardCharsets.UTF_8);
+
+        assertEquals("[{\"id\":\"1\",\"created_at\":\"2024-03-01T10:00:00Z\"},"
+                + "{\"id\":\"2\",\"created_at\":\"2023-06-01T10:00:00Z\"}]", json);
+    }
+
+    @Test
+    void body_shouldMatchGsonOutputForFullProjection() {
+        GistQuery query = GistQuery.parse(URI.create("/octocat?fields=id,description,url,created_at,files"));
+
+        String json = new String(query.body(gists(), false).json(), StandardCharsets.UTF_8);
+
+        assertEquals(new Gson().toJson(gists()), json);
+    }
+
+    @Test
+    void body_shouldFilterByLanguageAndSince() {
+        GistQuery java = GistQuery.parse(URI.create("/octocat?language=java&fields=id"));
+        GistQuery recent = GistQuery.parse(URI.create("/octocat?since=2024-01-01&fields=id"));
+        GistQuery future = GistQuery.parse(URI.create("/octocat?since=2030-01-01T00:00:00Z"));
+
+        assertEquals("[{\"id\":\"1\"}]", new String(java.body(gists(), false).json(), StandardCharsets.UTF_8));
+        assertEquals("[{\"id\":\"1\"}]", new String(recent.body(gists(), false).json(), StandardCharsets.UTF_8));
+        assertEquals("[]", new String(future.body(gists(), false).json(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void copyGistElements_shouldProjectAndFilterWhileStreaming() throws Exception {
+        GistQuery query = GistQuery.parse(URI.create("/octocat?fields=id,description&language=Markdown"));
+        StringWriter written = new StringWriter();
+        JsonWriter out = new JsonWriter(written);
+
+        out.beginArray();
+        int count = query.copyGistElements(new JsonReader(new StringReader(UPSTREAM_PAGE)), out);
+        out.endArray();
+        out.flush();
+
+        assertEquals(1, count);
+        JsonArray result = JsonParser.parseString(written.toString()).getAsJsonArray();
+        JsonObject gist = result.get(0).getAsJsonObject();
+        assertEquals("2", gist.get("id").getAsString());
+        assertFalse(gist.has("description"), "Null values are omitted, as Gson does");
+        assertFalse(gist.has("files"), "files was only read for the filter");
+        assertFalse(gist.has("owner"));
+    }
+
+    private static List<Gist> gists() {
+        return List.of(
+                gist("1", "Java gist", "2024-03-01T10:00:00Z", "Main.java", "Java"),
+                gist("2", null, "2023-06-01T10:00:00Z", "notes.md", "Markdown"));
+    }
+
+    private static Gist gist(String id, String description, String createdAt, String filename, String language) {
+        GistFile file = new GistFile();
+        file.setFilename(filename);
+        file.setLanguage(language);
+        file.setSize(42);
+        Map<String, GistFile> files = new LinkedHashMap<>();
+        files.put(filename, file);
+        Gist gist = new Gist();
+        gist.setId(id);
+        gist.setDescription(description);
+        gist.setUrl("https://api.github.com/gists/" + id);
+        gist.setCreatedAt(createdAt);
+        gist.setFiles(files);
+        return gist;
+    }
+}
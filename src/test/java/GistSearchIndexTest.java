@@ -0,0 +1,142 @@
+// GistSearchIndexTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GistSearchIndex and the IndexingGistSource that feeds it.
+ */
+public class GistSearchIndexTest {
+
+    private static Gist gist(String id, String description, String... filesAndLanguages) {
+        Map<String, GistFile> files = new LinkedHashMap<>();
+        for (int i = 0; i < filesAndLanguages.length; i += 2) {
+            GistFile file = new GistFile();
+            file.setLanguage(filesAndLanguages[i + 1]);
+            files.put(filesAndLanguages[i], file);
+        }
+        Gist gist = new Gist();
+        gist.setId(id);
+        gist.setDescription(description);
+        gist.setFiles(files);
+        return gist;
+    }
+
+    private static Set<String> ids(GistSearchIndex.SearchResult result) {
+        Set<String> ids = new java.util.TreeSet<>();
+        for (GistSearchIndex.Hit hit : result.hits()) {
+            ids.add(hit.id());
+        }
+        return ids;
+    }
+
+    @Test
+    void tokenize_shouldLowercaseAndSplitOnNonWordCharacters() {
+        assertEquals(List.of("quick", "sort", "in", "java8"), List.copyOf(GistSearchIndex.tokenize("Quick-sort in JAVA8, quick!")));
+        assertTrue(GistSearchIndex.tokenize(null).isEmpty());
+        assertTrue(GistSearchIndex.tokenize(" -- ").isEmpty());
+    }
+
+    @Test
+    void search_shouldMatchAllTermsAcrossDescriptionsAndFilenames() {
+        GistSearchIndex index = new GistSearchIndex(1000);
+        index.update("octocat", List.of(
+                gist("1", "Quicksort in Java", "QuickSort.java", "Java"),
+                gist("2", "Merge sort", "merge_sort.py", "Python"),
+                gist("3", null, "notes.md", "Markdown")));
+        index.update("torvalds", List.of(gist("4", "Kernel quicksort", "qsort.c", "C")));
+
+        assertEquals(Set.of("1", "4"), ids(index.search("QUICKSORT", null, 10)));
+        assertEquals(Set.of("1"), ids(index.search("quicksort java", null, 10)));
+        assertEquals(Set.of("2"), ids(index.search("sort", null, 10)), "Terms are whole words");
+        assertEquals(Set.of("2"), ids(index.search("merge_sort.py", null, 10)), "File names are split into words");
+        assertEquals(Set.of("3"), ids(index.search("notes", null, 10)));
+        assertEquals(0, index.search("quicksort haskell", null, 10).total());
+
+        GistSearchIndex.Hit hit = index.search("kernel", null, 10).hits().get(0);
+        assertEquals(new GistSearchIndex.Hit("torvalds", "4", "Kernel quicksort", List.of("qsort.c"), List.of("C")), hit);
+    }
+
+    @Test
+    void search_shouldFilterByLanguageAndCountBeyondTheLimit() {
+        GistSearchIndex index = new GistSearchIndex(1000);
+        List<Gist> gists = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            gists.add(gist(String.valueOf(i), "Snippet " + i, "f" + i + (i % 3 == 0 ? ".java" : ".py"), i % 3 == 0 ? "Java" : "Python"));
+        }
+        index.update("octocat", gists);
+
+        GistSearchIndex.SearchResult java = index.search(null, "java", 4);
+        assertEquals(10, java.total());
+        assertEquals(4, java.hits().size());
+        assertEquals(Set.of("3"), ids(index.search("snippet 3", "Java", 10)));
+        assertEquals(0, index.search("snippet 3", "Python", 10).total());
+        assertEquals(0, index.search("  ", null, 10).total(), "An empty query matches nothing");
+    }
+
+    @Test
+    void update_shouldReplaceAUsersDocumentsAndFreeUnusedTerms() {
+        GistSearchIndex index = new GistSearchIndex(1000);
+        index.update("octocat", List.of(gist("1", "Old description", "old.txt", "Text")));
+        index.update("octocat", List.of(gist("1", "New description", "new.txt", "Text")));
+
+        assertEquals(0, index.search("old", null, 10).total());
+        assertEquals(Set.of("1"), ids(index.search("new description", null, 10)));
+        GistSearchIndex.SearchStats stats = index.stats();
+        assertEquals(1, stats.documents());
+        assertEquals(4, stats.terms(), "new, description, txt and language:text; nothing is left of 'old'");
+
+        index.remove("octocat");
+        assertEquals(0, index.stats().documents());
+        assertEquals(0, index.stats().terms());
+        assertEquals(0, index.stats().postings());
+
+        // Freed slots and term ids are reused and posting lists stay sorted
+        index.update("a", List.of(gist("a1", "shared"), gist("a2", "shared")));
+        index.update("b", List.of(gist("b1", "shared")));
+        index.update("a", List.of(gist("a3", "shared")));
+        assertEquals(Set.of("a3", "b1"), ids(index.search("shared", null, 10)));
+    }
+
+    @Test
+    void update_shouldDropTheUsersIndexedLongestAgoBeyondMaxDocuments() {
+        GistSearchIndex index = new GistSearchIndex(3);
+        index.update("first", List.of(gist("1", "common"), gist("2", "common")));
+        index.update("second", List.of(gist("3", "common")));
+        index.update("third", List.of(gist("4", "common")));
+
+        assertEquals(Set.of("3", "4"), ids(index.search("common", null, 10)));
+        assertEquals(2, index.stats().users());
+
+        index.update("huge", List.of(gist("5", "x"), gist("6", "x"), gist("7", "x"), gist("8", "x")));
+        assertEquals(4, index.stats().documents(), "A single list over the limit is still kept");
+        assertEquals(1, index.stats().users());
+    }
+
+    @Test
+    void indexingSource_shouldIndexLoadedListsAndForgetMissingUsers() throws Exception {
+        GistSearchIndex index = new GistSearchIndex(1000);
+        boolean[] missing = {false};
+        GistSource upstream = username -> {
+            if (missing[0]) {
+                throw new GitHubApiClient.UserNotFoundException("GitHub user not found: " + username);
+            }
+            return List.of(gist("1", "Dotfiles for " + username, ".bashrc", "Shell"));
+        };
+        IndexingGistSource source = new IndexingGistSource(upstream, index);
+
+        source.getUserGists("octocat");
+        source.getUserGistsAsync("mona").join();
+        assertEquals(2, index.search("dotfiles", "shell", 10).total());
+
+        missing[0] = true;
+        assertThrows(GitHubApiClient.UserNotFoundException.class, () -> source.getUserGists("octocat"));
+        assertEquals(List.of("mona"), index.search("dotfiles", null, 10).hits().stream().map(GistSearchIndex.Hit::username).toList());
+    }
+}
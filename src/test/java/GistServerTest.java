@@ -1,19 +1,33 @@
 // GistServerTest.java
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -214,4 +228,499 @@ public class GistServerTest {
             System.out.println("Note: Rate limit test did not receive a 429. This is expected if API not rate-limited.");
         }
     }
+
+    /**
+     * Test case to verify that upstream failures surfaced through the asynchronous pipeline are
+     * mapped to the same 404/429/500 responses as before. Uses a dedicated server instance backed
+     * by an in-memory GistSource, so the exact exception can be controlled.
+     */
+    @Test
+    void shouldMapAsyncUpstreamFailuresToStatusCodes() throws IOException, InterruptedException {
+        GistSource failingSource = new GistSource() {
+            @Override
+            public List<Gist> getUserGists(String username) {
+                throw new UnsupportedOperationException("The server should use the async path");
+            }
+
+            @Override
+            public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+                switch (username) {
+                    case "missing":
+                        return CompletableFuture.failedFuture(new GitHubApiClient.UserNotFoundException("GitHub user not found: missing"));
+                    case "limited":
+                        return CompletableFuture.supplyAsync(() -> {
+                            throw new CompletionException(new GitHubApiClient.TooManyRequestsException("GitHub API rate limit exceeded.", 42));
+                        });
+                    case "broken":
+                        return CompletableFuture.failedFuture(new IOException("connection reset"));
+                    default:
+                        return CompletableFuture.completedFuture(List.of());
+                }
+            }
+        };
+        GistServer server = new GistServer(0, failingSource, Executors.newFixedThreadPool(2));
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+
+            HttpResponse<String> ok = get(client, server.port(), "/someone");
+            assertEquals(200, ok.statusCode());
+            assertEquals("[]", ok.body());
+
+            HttpResponse<String> missing = get(client, server.port(), "/missing");
+            assertEquals(404, missing.statusCode());
+            assertEquals("{\"error\": \"GitHub user not found: missing\"}", missing.body());
+
+            HttpResponse<String> limited = get(client, server.port(), "/limited");
+            assertEquals(429, limited.statusCode());
+            assertEquals("{\"error\": \"GitHub API rate limit exceeded.\"}", limited.body());
+            assertEquals("42", limited.headers().firstValue("Retry-After").orElse(null));
+
+            HttpResponse<String> broken = get(client, server.port(), "/broken");
+            assertEquals(500, broken.statusCode());
+            assertEquals("{\"error\": \"Internal Server Error: connection reset\"}", broken.body());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static HttpResponse<String> get(HttpClient client, int port, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + port + path))
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Test case to verify that cached bodies are served with a byte-accurate Content-Length
+     * (descriptions contain multi-byte characters) and gzip-compressed when the client accepts it.
+     */
+    @Test
+    void shouldServeExactLengthAndGzipBodies() throws Exception {
+        List<Gist> gists = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Gist gist = new Gist();
+            gist.setId("id" + i);
+            gist.setDescription("Café ☕ notes #" + i);
+            gists.add(gist);
+        }
+        GistSource source = username -> gists;
+        GistServer server = new GistServer(0, source, Executors.newFixedThreadPool(2));
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String expectedJson = new Gson().toJson(gists);
+
+            HttpResponse<byte[]> identity = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:" + server.port() + "/someone"))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, identity.statusCode());
+            assertFalse(identity.headers().firstValue("Content-Encoding").isPresent());
+            assertEquals(String.valueOf(identity.body().length), identity.headers().firstValue("Content-Length").orElse(""),
+                    "Content-Length should count bytes, not characters");
+            assertEquals(expectedJson, new String(identity.body(), StandardCharsets.UTF_8));
+
+            HttpResponse<byte[]> compressed = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:" + server.port() + "/someone"))
+                    .header("Accept-Encoding", "gzip, deflate")
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, compressed.statusCode());
+            assertEquals("gzip", compressed.headers().firstValue("Content-Encoding").orElse(""));
+            assertTrue(compressed.body().length < identity.body().length, "Compressed body should be smaller");
+            byte[] inflated = new GZIPInputStream(new ByteArrayInputStream(compressed.body())).readAllBytes();
+            assertEquals(expectedJson, new String(inflated, StandardCharsets.UTF_8));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Test case for the batch endpoint: POST /batch and GET /?users= answer with one entry per distinct
+     * username, and a failing user gets an error entry without failing the others.
+     */
+    @Test
+    void shouldAnswerBatchRequestsPerUser() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        GistSource source = username -> {
+            upstreamCalls.incrementAndGet();
+            if (username.equals("ghost")) {
+                throw new GitHubApiClient.UserNotFoundException("GitHub user not found: ghost");
+            }
+            Gist gist = new Gist();
+            gist.setId(username + "-1");
+            return List.of(gist);
+        };
+        GistServer server = new GistServer(0, source, Executors.newFixedThreadPool(2));
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest post = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:" + server.port() + "/batch"))
+                    .POST(HttpRequest.BodyPublishers.ofString("[\"octocat\", \"ghost\", \"octocat\", \"torvalds\"]"))
+                    .build();
+            long handledBefore = Metrics.HANDLER.count();
+            HttpResponse<String> response = client.send(post, HttpResponse.BodyHandlers.ofString());
+            for (int i = 0; i < 100 && Metrics.HANDLER.count() == handledBefore; i++) {
+                Thread.sleep(10); // The handler records its time just after the response is written
+            }
+            assertTrue(Metrics.HANDLER.count() > handledBefore, "POST /batch should be counted like any other request");
+
+            assertEquals(200, response.statusCode());
+            JsonObject batch = JsonParser.parseString(response.body()).getAsJsonObject();
+            assertEquals(3, batch.size(), "Repeated usernames should appear once");
+            assertEquals(3, upstreamCalls.get(), "and be fetched once");
+            assertEquals("octocat-1", batch.getAsJsonArray("octocat").get(0).getAsJsonObject().get("id").getAsString());
+            assertEquals("torvalds-1", batch.getAsJsonArray("torvalds").get(0).getAsJsonObject().get("id").getAsString());
+            assertEquals(404, batch.getAsJsonObject("ghost").get("status").getAsInt());
+
+            HttpResponse<String> viaQuery = get(client, server.port(), "/?users=octocat,torvalds");
+            assertEquals(200, viaQuery.statusCode());
+            assertEquals(2, JsonParser.parseString(viaQuery.body()).getAsJsonObject().size());
+
+            HttpRequest malformed = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:" + server.port() + "/batch"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"users\": 1}"))
+                    .build();
+            assertEquals(400, client.send(malformed, HttpResponse.BodyHandlers.ofString()).statusCode());
+            assertEquals(400, get(client, server.port(), "/?users=,,").statusCode(), "An empty batch is a bad request");
+            assertEquals("batch-1", JsonParser.parseString(get(client, server.port(), "/batch").body())
+                    .getAsJsonArray().get(0).getAsJsonObject().get("id").getAsString(), "GET /batch is still a username");
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Test case for admission control: with one request in flight and a limit of one, a cached user is
+     * answered from the cache and an uncached user gets a fast 503 with Retry-After.
+     */
+    @Test
+    void shouldShedRequestsBeyondTheAdmissionLimit() throws Exception {
+        CountDownLatch slowCall = new CountDownLatch(1);
+        GistSource upstream = username -> {
+            if (username.equals("slow")) {
+                slowCall.await(10, TimeUnit.SECONDS);
+            }
+            Gist gist = new Gist();
+            gist.setId(username + "-1");
+            return List.of(gist);
+        };
+        CachingGitHubApiClient cache = new CachingGitHubApiClient(upstream, Duration.ofMinutes(5), Duration.ZERO, 100, 1 << 20);
+        AdmissionController admission = new AdmissionController(1, 1, 10, null);
+        GistServer server = new GistServer(0, cache, Executors.newFixedThreadPool(4));
+        server.limitAdmission(admission);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            assertEquals(200, get(client, server.port(), "/cached").statusCode());
+
+            CompletableFuture<HttpResponse<String>> slow = client.sendAsync(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:" + server.port() + "/slow")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (admission.stats().inFlight() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            HttpResponse<String> fromCache = get(client, server.port(), "/cached");
+            assertEquals(200, fromCache.statusCode());
+            assertEquals("cache", fromCache.headers().firstValue("X-Load-Shed").orElse(""));
+            assertTrue(fromCache.body().contains("cached-1"));
+
+            HttpResponse<String> rejected = get(client, server.port(), "/uncached");
+            assertEquals(503, rejected.statusCode());
+            assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(""));
+
+            slowCall.countDown();
+            assertEquals(200, slow.get(10, TimeUnit.SECONDS).statusCode());
+            assertEquals(200, get(client, server.port(), "/uncached").statusCode(), "Admitted again once the slot is free");
+            assertEquals(2, admission.stats().rejected(), "Both turned-away requests are counted");
+        } finally {
+            slowCall.countDown();
+            server.shutdown();
+        }
+    }
+
+    /**
+     * A source that throws instead of returning a failed future must still get an answer and
+     * give its admission slot back; with a limit of one, a leaked slot would shed the second request.
+     */
+    @Test
+    void shouldReleaseTheAdmissionSlotWhenTheSourceThrowsSynchronously() throws Exception {
+        GistSource throwingSource = new GistSource() {
+            @Override
+            public List<Gist> getUserGists(String username) {
+                throw new UnsupportedOperationException("The server should use the async path");
+            }
+
+            @Override
+            public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        AdmissionController admission = new AdmissionController(1, 1, 10, null);
+        GistServer server = new GistServer(0, throwingSource, Executors.newFixedThreadPool(2));
+        server.limitAdmission(admission);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            for (int i = 0; i < 2; i++) {
+                HttpResponse<String> response = get(client, server.port(), "/someone");
+                assertEquals(500, response.statusCode());
+                assertEquals("{\"error\": \"Internal Server Error: boom\"}", response.body());
+            }
+            assertEquals(0, admission.stats().inFlight());
+            assertEquals(0, admission.stats().rejected());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Test case for ?fields= and ?language=: the cached list is projected and filtered, and bad
+     * parameters are answered with 400.
+     */
+    @Test
+    void shouldProjectAndFilterGists() throws Exception {
+        GistSource source = username -> {
+            GistFile file = new GistFile();
+            file.setLanguage("Java");
+            Gist javaGist = new Gist();
+            javaGist.setId("1");
+            javaGist.setDescription("Java gist");
+            javaGist.setFiles(java.util.Map.of("Main.java", file));
+            Gist other = new Gist();
+            other.setId("2");
+            other.setDescription("No files");
+            return List.of(javaGist, other);
+        };
+        GistServer server = new GistServer(0, source, Executors.newFixedThreadPool(2));
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+
+            HttpResponse<String> projected = get(client, server.port(), "/octocat?fields=id&language=Java");
+            assertEquals(200, projected.statusCode());
+            assertEquals("[{\"id\":\"1\"}]", projected.body());
+
+            HttpResponse<String> batch = get(client, server.port(), "/?users=octocat,torvalds&fields=description");
+            assertEquals("[{\"description\":\"Java gist\"},{\"description\":\"No files\"}]",
+                    JsonParser.parseString(batch.body()).getAsJsonObject().get("torvalds").toString());
+
+            assertEquals(400, get(client, server.port(), "/octocat?fields=password").statusCode());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Test case for /metrics: Prometheus text with the handler histogram, status counters and gauges.
+     */
+    @Test
+    void shouldExposePrometheusMetrics() throws Exception {
+        GistSource source = new CachingGitHubApiClient(username -> List.of(), java.time.Duration.ofSeconds(60),
+                java.time.Duration.ofSeconds(30), 100, Long.MAX_VALUE);
+        GistServer server = new GistServer(0, source, Executors.newFixedThreadPool(2));
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            long handledBefore = Metrics.HANDLER.count();
+            long okBefore = Metrics.responses(200);
+
+            get(client, server.port(), "/someone");
+            get(client, server.port(), "/someone");
+            HttpResponse<String> metrics = get(client, server.port(), "/metrics");
+
+            assertEquals(200, metrics.statusCode());
+            assertTrue(metrics.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+            String body = metrics.body();
+            assertTrue(body.contains("# TYPE gist_handler_seconds histogram"));
+            assertTrue(body.contains("gist_handler_seconds_bucket{le=\"+Inf\"}"));
+            assertTrue(body.contains("# TYPE gist_upstream_request_seconds histogram"));
+            assertTrue(body.contains("gist_responses_total{code=\"200\"}"));
+            assertTrue(body.contains("gist_requests_in_flight "));
+            assertTrue(body.contains("gist_executor_queue_depth 0"));
+            assertTrue(body.contains("gist_cache_hits_total 1"), "One of the two requests was a cache hit");
+            assertTrue(Metrics.HANDLER.count() >= handledBefore + 2);
+            assertTrue(Metrics.responses(200) >= okBefore + 2);
+
+            HttpResponse<String> user = get(client, server.port(), "/metricsfan");
+            assertEquals("[]", user.body(), "A username starting with 'metrics' is still a gists request");
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Test case for /{username}/contents: file contents inline, per-file errors, ?gist= and the file cap.
+     */
+    @Test
+    void shouldServeGistFileContents() throws Exception {
+        com.sun.net.httpserver.HttpServer raw = com.sun.net.httpserver.HttpServer.create(new java.net.InetSocketAddress(0), 0);
+        raw.createContext("/", exchange -> {
+            try (exchange) {
+                if (exchange.getRequestURI().getPath().endsWith("/gone")) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                byte[] body = "class Main {}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+        });
+        raw.start();
+        String rawBase = "http://localhost:" + raw.getAddress().getPort() + "/octocat/";
+        GistSource source = username -> {
+            List<Gist> gists = new ArrayList<>();
+            for (String id : List.of("1", "2")) {
+                GistFile main = new GistFile();
+                main.setLanguage("Java");
+                main.setRawUrl(rawBase + id + "/raw/rev/Main.java");
+                GistFile gone = new GistFile();
+                gone.setRawUrl(rawBase + id + "/raw/rev/gone");
+                Gist gist = new Gist();
+                gist.setId(id);
+                gist.setFiles(java.util.Map.of("Main.java", main, "gone", gone));
+                gists.add(gist);
+            }
+            return gists;
+        };
+        GistServer server = new GistServer(0, source, Executors.newFixedThreadPool(2));
+        RawContentCache cache = new RawContentCache(1 << 20);
+        server.enableContents(new RawContentFetcher(HttpClient.newHttpClient(), Duration.ofSeconds(5), cache, 1024), cache, 2, 3);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+
+            HttpResponse<String> one = get(client, server.port(), "/octocat/contents?gist=2");
+            assertEquals(200, one.statusCode());
+            com.google.gson.JsonArray files = JsonParser.parseString(one.body()).getAsJsonArray();
+            assertEquals(2, files.size());
+            for (com.google.gson.JsonElement element : files) {
+                JsonObject file = element.getAsJsonObject();
+                assertEquals("2", file.get("gistId").getAsString());
+                if (file.get("filename").getAsString().equals("Main.java")) {
+                    assertEquals("class Main {}", file.get("content").getAsString());
+                    assertEquals("utf-8", file.get("encoding").getAsString());
+                    assertEquals("Java", file.get("language").getAsString());
+                    assertFalse(file.get("truncated").getAsBoolean());
+                } else {
+                    assertEquals(502, file.get("status").getAsInt());
+                }
+            }
+
+            assertEquals(400, get(client, server.port(), "/octocat/contents").statusCode(), "4 files exceed the cap of 3");
+            assertTrue(get(client, server.port(), "/metrics").body().contains("gist_content_cache_misses_total"));
+        } finally {
+            server.shutdown();
+            raw.stop(0);
+        }
+    }
+
+    /**
+     * Test case for /search: gists loaded through the IndexingGistSource are found without upstream calls.
+     */
+    @Test
+    void shouldSearchLoadedGists() throws Exception {
+        GistSearchIndex index = new GistSearchIndex(1000);
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        GistSource source = new IndexingGistSource(username -> {
+            upstreamCalls.incrementAndGet();
+            GistFile file = new GistFile();
+            file.setLanguage("Java");
+            Gist gist = new Gist();
+            gist.setId(username + "-1");
+            gist.setDescription("Binary search tree");
+            gist.setFiles(java.util.Map.of("Tree.java", file));
+            return List.of(gist);
+        }, index);
+        GistServer server = new GistServer(0, source, Executors.newFixedThreadPool(2));
+        server.enableSearch(index);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            get(client, server.port(), "/octocat");
+            get(client, server.port(), "/mona");
+            int callsBefore = upstreamCalls.get();
+
+            HttpResponse<String> response = get(client, server.port(), "/search?q=search+tree&language=java&limit=1");
+            assertEquals(200, response.statusCode());
+            JsonObject result = JsonParser.parseString(response.body()).getAsJsonObject();
+            assertEquals(2, result.get("total").getAsInt());
+            assertEquals(1, result.getAsJsonArray("hits").size());
+            assertEquals("Binary search tree", result.getAsJsonArray("hits").get(0).getAsJsonObject().get("description").getAsString());
+            assertEquals(callsBefore, upstreamCalls.get(), "Search never calls the upstream");
+
+            assertEquals(0, JsonParser.parseString(get(client, server.port(), "/search?q=graph").body())
+                    .getAsJsonObject().get("total").getAsInt());
+            assertEquals(400, get(client, server.port(), "/search").statusCode());
+            assertEquals(400, get(client, server.port(), "/search?q=tree&limit=many").statusCode());
+
+            HttpResponse<String> user = get(client, server.port(), "/searchfoo");
+            assertEquals(200, user.statusCode(), "A username starting with 'search' is still a gists request");
+            assertTrue(user.body().contains("searchfoo-1"));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Test case for /{username}/stats: aggregates served from the cache entry, errors mapped as for /{username}.
+     */
+    @Test
+    void shouldServeUserStats() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        GistSource upstream = username -> {
+            upstreamCalls.incrementAndGet();
+            if (username.equals("ghost")) {
+                throw new GitHubApiClient.UserNotFoundException("GitHub user not found: ghost");
+            }
+            GistFile file = new GistFile();
+            file.setLanguage("Java");
+            file.setSize(100);
+            Gist gist = new Gist();
+            gist.setId("1");
+            gist.setCreatedAt("2024-02-01T00:00:00Z");
+            gist.setFiles(java.util.Map.of("Main.java", file));
+            return List.of(gist, gist);
+        };
+        GistSource cache = new CachingGitHubApiClient(upstream, Duration.ofSeconds(60), Duration.ofSeconds(30), 100, Long.MAX_VALUE);
+        GistServer server = new GistServer(0, cache, Executors.newFixedThreadPool(2));
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+
+            HttpResponse<String> response = get(client, server.port(), "/octocat/stats");
+            assertEquals(200, response.statusCode());
+            JsonObject stats = JsonParser.parseString(response.body()).getAsJsonObject();
+            assertEquals(2, stats.get("gists").getAsInt());
+            assertEquals(200, stats.get("totalBytes").getAsLong());
+            assertEquals(2, stats.getAsJsonObject("languages").getAsJsonObject("Java").get("files").getAsInt());
+            assertEquals(2, stats.getAsJsonObject("gistsPerMonth").get("2024-02").getAsInt());
+
+            assertEquals(200, get(client, server.port(), "/octocat/stats").statusCode());
+            assertEquals(200, get(client, server.port(), "/octocat").statusCode());
+            assertEquals(1, upstreamCalls.get(), "Stats and gists share one cache entry");
+            assertEquals(404, get(client, server.port(), "/ghost/stats").statusCode());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Test case for Accept-Encoding negotiation.
+     */
+    @Test
+    void acceptsGzipShouldHonourQualityValues() {
+        assertTrue(GistServer.acceptsGzip("gzip"));
+        assertTrue(GistServer.acceptsGzip("deflate, GZIP;q=0.8, br"));
+        assertTrue(GistServer.acceptsGzip("*"));
+        assertFalse(GistServer.acceptsGzip(null));
+        assertFalse(GistServer.acceptsGzip("identity"));
+        assertFalse(GistServer.acceptsGzip("gzip;q=0"));
+        assertFalse(GistServer.acceptsGzip("br, gzip; q=0.0"));
+    }
 }
\ No newline at end of file
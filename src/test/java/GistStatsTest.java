@@ -0,0 +1,65 @@
+// GistStatsTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GistStats.
+ */
+public class GistStatsTest {
+
+    private static GistFile file(String language, long size) {
+        GistFile file = new GistFile();
+        file.setLanguage(language);
+        file.setSize(size);
+        return file;
+    }
+
+    private static Gist gist(String createdAt, Map<String, GistFile> files) {
+        Gist gist = new Gist();
+        gist.setCreatedAt(createdAt);
+        gist.setFiles(files);
+        return gist;
+    }
+
+    @Test
+    void of_shouldAggregateFilesLanguagesAndActivity() {
+        Map<String, GistFile> mixed = new LinkedHashMap<>();
+        mixed.put("Main.java", file("Java", 1200));
+        mixed.put("notes", file(null, 30));
+        List<Gist> gists = List.of(
+                gist("2024-03-05T10:00:00Z", mixed),
+                gist("2024-01-31T23:59:59Z", Map.of("a.py", file("Python", 500))),
+                gist("2024-03-20T08:00:00Z", Map.of("b.py", file("Python", 900))),
+                gist("not a date", null));
+
+        GistStats stats = GistStats.of(gists);
+
+        assertEquals(4, stats.gists());
+        assertEquals(4, stats.files());
+        assertEquals(2630, stats.totalBytes());
+        assertEquals(List.of("Python", "Java", GistStats.OTHER_LANGUAGE), List.copyOf(stats.languages().keySet()),
+                "Largest languages first");
+        assertEquals(new GistStats.LanguageStats(2, 1400), stats.languages().get("Python"));
+        assertEquals(new GistStats.LanguageStats(1, 30), stats.languages().get(GistStats.OTHER_LANGUAGE));
+        assertEquals(Map.of("2024-01", 1, "2024-03", 2), stats.gistsPerMonth());
+        assertEquals(List.of("2024-01", "2024-03"), List.copyOf(stats.gistsPerMonth().keySet()), "Oldest month first");
+        assertEquals("2024-01-31T23:59:59Z", stats.firstCreatedAt());
+        assertEquals("2024-03-20T08:00:00Z", stats.lastCreatedAt());
+        assertTrue(stats.retainedBytes() > 0);
+    }
+
+    @Test
+    void of_shouldHandleAnEmptyList() {
+        GistStats stats = GistStats.of(List.of());
+
+        assertEquals(0, stats.gists());
+        assertEquals(0, stats.totalBytes());
+        assertTrue(stats.languages().isEmpty());
+        assertNull(stats.firstCreatedAt());
+    }
+}
@@ -0,0 +1,95 @@
+// GistTypeAdapterTest.java
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GistTypeAdapter and GistFileTypeAdapter. The reference is Gson's reflective binding
+ * of classes shaped like Gist/GistFile (without the adapters): both must read and write the same JSON.
+ */
+public class GistTypeAdapterTest {
+
+    private static final Type GIST_LIST_TYPE = new TypeToken<List<Gist>>(){}.getType();
+    private static final Type REFLECTIVE_LIST_TYPE = new TypeToken<List<ReflectiveGist>>(){}.getType();
+
+    // What Gist and GistFile looked like before they were given adapters
+    static class ReflectiveGist {
+        String id;
+        String description;
+        String url;
+        @SerializedName("created_at")
+        String createdAt;
+        Map<String, ReflectiveGistFile> files;
+    }
+
+    static class ReflectiveGistFile {
+        String filename;
+        String type;
+        String language;
+        @SerializedName("raw_url")
+        String rawUrl;
+        long size;
+    }
+
+    private static void assertSameJsonAsReflection(Gson gson, String upstream) {
+        List<Gist> adapted = gson.fromJson(upstream, GIST_LIST_TYPE);
+        List<ReflectiveGist> reflective = gson.fromJson(upstream, REFLECTIVE_LIST_TYPE);
+        assertEquals(gson.toJson(reflective, REFLECTIVE_LIST_TYPE), gson.toJson(adapted, GIST_LIST_TYPE));
+    }
+
+    @Test
+    void shouldReadAndWriteTheSameJsonAsReflectionForGitHubPayloads() {
+        String upstream = GistPayloads.userGists("octocat", 25);
+
+        assertSameJsonAsReflection(new Gson(), upstream);
+        assertSameJsonAsReflection(new GsonBuilder().serializeNulls().create(), upstream);
+
+        List<Gist> gists = new Gson().fromJson(upstream, GIST_LIST_TYPE);
+        String written = new Gson().toJson(gists);
+        assertFalse(written.contains("owner"), "Fields Gist doesn't model are dropped");
+        assertFalse(written.contains("forks_url"));
+    }
+
+    @Test
+    void shouldHandleNullsAndLenientScalarsLikeReflection() {
+        String upstream = "[{\"id\":123,\"description\":true,\"url\":null,\"files\":{"
+                + "\"a.txt\":{\"filename\":\"a.txt\",\"size\":\"42\",\"language\":null,\"truncated\":false},"
+                + "\"gone\":null,"
+                + "\"b.txt\":{\"size\":null,\"raw_url\":\"https://gist.githubusercontent.com/o/1/raw/x/b.txt\"}}},"
+                + "{\"files\":null,\"history\":[{\"version\":\"x\",\"change_status\":{\"total\":1}}]},"
+                + "null]";
+
+        assertSameJsonAsReflection(new Gson(), upstream);
+        assertSameJsonAsReflection(new GsonBuilder().serializeNulls().create(), upstream);
+
+        List<Gist> gists = new Gson().fromJson(upstream, GIST_LIST_TYPE);
+        Gist first = gists.get(0);
+        assertEquals("123", first.getId());
+        assertEquals("true", first.getDescription());
+        assertEquals(42, first.getFiles().get("a.txt").getSize());
+        assertEquals(0, first.getFiles().get("b.txt").getSize());
+        assertTrue(first.getFiles().containsKey("gone"));
+        assertNull(first.getFiles().get("gone"));
+        assertEquals(List.of("a.txt", "gone", "b.txt"), List.copyOf(first.getFiles().keySet()), "File order is kept");
+        assertNull(gists.get(1).getFiles());
+        assertNull(gists.get(2));
+    }
+
+    @Test
+    void shouldRejectMalformedInputLikeReflection() {
+        Gson gson = new Gson();
+
+        assertThrows(JsonSyntaxException.class, () -> gson.fromJson("[{\"files\":{\"a\":{},\"a\":{}}}]", GIST_LIST_TYPE));
+        assertThrows(JsonSyntaxException.class, () -> gson.fromJson("[{\"files\":{\"a\":{\"size\":1.5}}}]", GIST_LIST_TYPE));
+        assertThrows(JsonSyntaxException.class, () -> gson.fromJson("[{\"id\":{\"nested\":1}}]", GIST_LIST_TYPE));
+    }
+}
@@ -8,11 +8,19 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -249,4 +257,324 @@ public class GitHubApiClientTest {
         assertTrue(sentRequest.uri().toString().startsWith("https://api.github.com/users/" + username + "/gists"),
                    "Request URI should start with the correct GitHub API base URL");
     }
+
+    /**
+     * A username decoded from the request path can contain characters that aren't legal in a URI;
+     * it must be percent-encoded rather than passed to URI.create as-is.
+     */
+    @Test
+    void getUserGists_shouldPercentEncodeTheUsername() throws Exception {
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.statusCode()).thenReturn(200);
+        when(mockHttpResponse.body()).thenReturn("[]");
+
+        gitHubApiClient.getUserGists("foo bar/../x");
+
+        verify(mockHttpClient, times(1)).send(requestCaptor.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+        assertEquals("https://api.github.com/users/foo%20bar%2F..%2Fx/gists?per_page=100", requestCaptor.getValue().uri().toString());
+    }
+
+    /**
+     * Test case for conditional revalidation: the second request carries the stored ETag and
+     * Last-Modified values, and a 304 Not Modified reuses the previously parsed list.
+     */
+    @Test
+    void getUserGists_shouldRevalidateWithETagAndReuseListOn304() throws Exception {
+        // Arrange
+        String username = "testuser";
+        String jsonResponse = "[{\"id\":\"1\", \"description\":\"Gist One\"}]";
+        HttpHeaders headers = HttpHeaders.of(Map.of(
+                "ETag", List.of("W/\"abc123\""),
+                "Last-Modified", List.of("Mon, 01 Jan 2024 00:00:00 GMT")), (name, value) -> true);
+
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.statusCode()).thenReturn(200, 304);
+        when(mockHttpResponse.body()).thenReturn(jsonResponse);
+        when(mockHttpResponse.headers()).thenReturn(headers);
+
+        // Act
+        List<Gist> first = gitHubApiClient.getUserGists(username);
+        List<Gist> second = gitHubApiClient.getUserGists(username);
+
+        // Assert
+        assertSame(first, second, "A 304 should return the previously parsed list");
+        assertEquals(1, gitHubApiClient.notModifiedCount(), "One request should have been answered with 304");
+        verify(mockHttpClient, times(2)).send(requestCaptor.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+        HttpRequest firstRequest = requestCaptor.getAllValues().get(0);
+        HttpRequest revalidation = requestCaptor.getAllValues().get(1);
+        assertTrue(firstRequest.headers().firstValue("If-None-Match").isEmpty(), "First request should be unconditional");
+        assertEquals("W/\"abc123\"", revalidation.headers().firstValue("If-None-Match").orElse(""), "Revalidation should send the stored ETag");
+        assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", revalidation.headers().firstValue("If-Modified-Since").orElse(""), "Revalidation should send the stored Last-Modified");
+    }
+
+    /**
+     * Test case for the validator byte budget: once it is exceeded the stored response is dropped,
+     * so the next request is sent without If-None-Match instead of keeping a second copy of the list.
+     */
+    @Test
+    void getUserGists_shouldDropValidatorsBeyondTheByteBudget() throws Exception {
+        HttpHeaders headers = HttpHeaders.of(Map.of("ETag", List.of("W/\"abc123\"")), (name, value) -> true);
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.statusCode()).thenReturn(200);
+        when(mockHttpResponse.body()).thenReturn("[{\"id\":\"1\", \"description\":\"Gist One\"}]");
+        when(mockHttpResponse.headers()).thenReturn(headers);
+
+        gitHubApiClient.limitValidatorBytes(1);
+        gitHubApiClient.getUserGists("testuser");
+        gitHubApiClient.getUserGists("testuser");
+
+        verify(mockHttpClient, times(2)).send(requestCaptor.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+        assertTrue(requestCaptor.getAllValues().get(1).headers().firstValue("If-None-Match").isEmpty(),
+                "A validator over budget should not be kept");
+    }
+
+    /**
+     * Test case for sharing: a single-page list is returned in the packed form the cache keeps,
+     * so the cache and the ETag store hold the same instance rather than two copies.
+     */
+    @Test
+    void getUserGists_shouldReturnThePackedListTheCacheKeeps() throws Exception {
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.statusCode()).thenReturn(200);
+        when(mockHttpResponse.body()).thenReturn("[{\"id\":\"1\", \"description\":\"Gist One\"}]");
+
+        List<Gist> gists = gitHubApiClient.getUserGists("testuser");
+
+        assertSame(gists, CompactGists.of(gists));
+        assertEquals("Gist One", gists.get(0).getDescription());
+    }
+
+    /**
+     * Test case for a 304 without a stored response, which should be treated as an unexpected status.
+     */
+    @Test
+    void getUserGists_shouldTreatUnexpected304AsError() throws Exception {
+        // Arrange
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.statusCode()).thenReturn(304);
+        when(mockHttpResponse.body()).thenReturn("");
+
+        // Act & Assert
+        Exception exception = assertThrows(Exception.class, () -> gitHubApiClient.getUserGists("testuser"));
+        assertEquals("GitHub API error: 304 - ", exception.getMessage());
+    }
+
+    /**
+     * Test case for the non-blocking variant returning Gists on HTTP 200 OK.
+     */
+    @Test
+    void getUserGistsAsync_shouldCompleteWithGistsOn200OK() throws Exception {
+        // Arrange
+        String username = "testuser";
+        String jsonResponse = "[{\"id\":\"1\", \"description\":\"Gist One\"}]";
+
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(CompletableFuture.completedFuture(mockHttpResponse));
+        when(mockHttpResponse.statusCode()).thenReturn(200);
+        when(mockHttpResponse.body()).thenReturn(jsonResponse);
+
+        // Act
+        List<Gist> gists = gitHubApiClient.getUserGistsAsync(username).get();
+
+        // Assert
+        assertEquals(1, gists.size(), "Gists list should contain 1 item");
+        assertEquals("Gist One", gists.get(0).getDescription());
+        verify(mockHttpClient, never()).send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass()));
+        verify(mockHttpClient, times(1)).sendAsync(requestCaptor.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+        assertTrue(requestCaptor.getValue().uri().toString().contains("/users/" + username + "/gists"));
+    }
+
+    /**
+     * Test case for the non-blocking variant failing with the same exceptions as the blocking one.
+     */
+    @Test
+    void getUserGistsAsync_shouldFailWithUserNotFoundExceptionOn404() throws Exception {
+        // Arrange
+        String username = "nonexistentuser";
+
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(CompletableFuture.completedFuture(mockHttpResponse));
+        when(mockHttpResponse.statusCode()).thenReturn(404);
+
+        // Act & Assert
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> gitHubApiClient.getUserGistsAsync(username).get());
+        Throwable cause = GistSource.unwrap(exception);
+        assertInstanceOf(GitHubApiClient.UserNotFoundException.class, cause);
+        assertEquals("GitHub user not found: " + username, cause.getMessage());
+    }
+
+    /**
+     * Test case for opening the upstream body as a stream on HTTP 200 OK.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void openUserGists_shouldReturnBodyStreamOn200OK() throws Exception {
+        // Arrange
+        HttpResponse<InputStream> streamResponse = mock(HttpResponse.class);
+        InputStream body = new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8));
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofInputStream().getClass())))
+                .thenReturn(streamResponse);
+        when(streamResponse.statusCode()).thenReturn(200);
+        when(streamResponse.body()).thenReturn(body);
+
+        // Act & Assert
+        try (GitHubApiClient.PageStream pages = gitHubApiClient.openUserGists("testuser")) {
+            assertTrue(pages.hasNext());
+            assertSame(body, pages.next(), "The upstream body should be handed over unread");
+            assertFalse(pages.hasNext(), "Without a Link header there is only one page");
+        }
+        verify(mockHttpClient, times(1)).send(requestCaptor.capture(), any(HttpResponse.BodyHandlers.ofInputStream().getClass()));
+        assertTrue(requestCaptor.getValue().uri().toString().contains("/users/testuser/gists"));
+    }
+
+    /**
+     * Test case for opening the upstream body of a non-existent user.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void openUserGists_shouldThrowUserNotFoundExceptionOn404() throws Exception {
+        // Arrange
+        HttpResponse<InputStream> streamResponse = mock(HttpResponse.class);
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofInputStream().getClass())))
+                .thenReturn(streamResponse);
+        when(streamResponse.statusCode()).thenReturn(404);
+        when(streamResponse.body()).thenReturn(new ByteArrayInputStream("{\"message\":\"Not Found\"}".getBytes(StandardCharsets.UTF_8)));
+
+        // Act & Assert
+        Exception exception = assertThrows(GitHubApiClient.UserNotFoundException.class, () -> gitHubApiClient.openUserGists("nobody"));
+        assertEquals("GitHub user not found: nobody", exception.getMessage());
+    }
+
+    /**
+     * Test case for users with more than one page of gists: the remaining pages are fetched
+     * with sendAsync and appended in page order.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void getUserGists_shouldFetchAllPagesInOrder() throws Exception {
+        // Arrange
+        String link = "<https://api.github.com/user/1/gists?per_page=100&page=2>; rel=\"next\", "
+                + "<https://api.github.com/user/1/gists?per_page=100&page=3>; rel=\"last\"";
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.statusCode()).thenReturn(200);
+        when(mockHttpResponse.body()).thenReturn("[{\"id\":\"p1\"}]");
+        when(mockHttpResponse.headers()).thenReturn(HttpHeaders.of(Map.of("Link", List.of(link)), (name, value) -> true));
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenAnswer(invocation -> {
+                    HttpRequest request = invocation.getArgument(0);
+                    String page = request.uri().getQuery().replaceAll(".*page=(\\d+)$", "$1");
+                    HttpResponse<String> pageResponse = mock(HttpResponse.class);
+                    when(pageResponse.statusCode()).thenReturn(200);
+                    when(pageResponse.body()).thenReturn("[{\"id\":\"p" + page + "\"}]");
+                    // Complete the later page first to check that ordering doesn't depend on arrival
+                    return "3".equals(page)
+                            ? CompletableFuture.completedFuture(pageResponse)
+                            : CompletableFuture.supplyAsync(() -> pageResponse, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+                });
+
+        // Act
+        List<Gist> gists = gitHubApiClient.getUserGists("prolific");
+
+        // Assert
+        assertEquals(List.of("p1", "p2", "p3"), gists.stream().map(Gist::getId).toList(), "Pages should be concatenated in order");
+        verify(mockHttpClient, times(1)).send(requestCaptor.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+        assertTrue(requestCaptor.getValue().uri().toString().endsWith("/users/prolific/gists?per_page=100"), "First page should request 100 gists per page");
+        verify(mockHttpClient, times(2)).sendAsync(requestCaptor.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+    }
+
+    /**
+     * Test case for a failing later page: the whole lookup fails with the mapped exception.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void getUserGists_shouldFailWhenALaterPageFails() throws Exception {
+        // Arrange
+        String link = "<https://api.github.com/user/1/gists?per_page=100&page=2>; rel=\"last\"";
+        HttpResponse<String> failedPage = mock(HttpResponse.class);
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.statusCode()).thenReturn(200);
+        when(mockHttpResponse.body()).thenReturn("[]");
+        when(mockHttpResponse.headers()).thenReturn(HttpHeaders.of(Map.of("Link", List.of(link)), (name, value) -> true));
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(CompletableFuture.completedFuture(failedPage));
+        when(failedPage.statusCode()).thenReturn(429);
+
+        // Act & Assert
+        assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> gitHubApiClient.getUserGists("prolific"));
+    }
+
+    /**
+     * Test case for GitHub's primary rate limit, which is reported as 403 with X-RateLimit-Remaining: 0.
+     */
+    @Test
+    void getUserGists_shouldTreatExhaustedQuota403AsTooManyRequests() throws Exception {
+        // Arrange
+        long reset = System.currentTimeMillis() / 1000 + 120;
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.statusCode()).thenReturn(403);
+        when(mockHttpResponse.body()).thenReturn("{\"message\":\"API rate limit exceeded\"}");
+        when(mockHttpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(
+                "X-RateLimit-Remaining", List.of("0"),
+                "X-RateLimit-Reset", List.of(String.valueOf(reset))), (name, value) -> true));
+
+        // Act & Assert
+        GitHubApiClient.TooManyRequestsException exception = assertThrows(GitHubApiClient.TooManyRequestsException.class,
+                () -> gitHubApiClient.getUserGists("testuser"));
+        assertEquals("GitHub API rate limit exceeded.", exception.getMessage());
+        assertTrue(exception.retryAfterSeconds() > 100 && exception.retryAfterSeconds() <= 120,
+                "Retry-After should be derived from X-RateLimit-Reset");
+    }
+
+    /**
+     * Test case for the scheduler: once GitHub reports an exhausted quota, further calls are
+     * rejected locally until the reset time instead of being sent.
+     */
+    @Test
+    void getUserGists_shouldNotCallGitHubOnceQuotaIsExhausted() throws Exception {
+        // Arrange
+        GitHubApiClient scheduledClient = new GitHubApiClient(mockHttpClient, realGson, RateLimitScheduler.unlimited());
+        long reset = System.currentTimeMillis() / 1000 + 600;
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass())))
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.statusCode()).thenReturn(200);
+        when(mockHttpResponse.body()).thenReturn("[{\"id\":\"1\"}]");
+        when(mockHttpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(
+                "X-RateLimit-Limit", List.of("60"),
+                "X-RateLimit-Remaining", List.of("0"),
+                "X-RateLimit-Reset", List.of(String.valueOf(reset))), (name, value) -> true));
+
+        // Act
+        assertEquals(1, scheduledClient.getUserGists("testuser").size(), "The last request within the quota succeeds");
+        GitHubApiClient.TooManyRequestsException rejected = assertThrows(GitHubApiClient.TooManyRequestsException.class,
+                () -> scheduledClient.getUserGists("testuser"));
+        ExecutionException rejectedAsync = assertThrows(ExecutionException.class,
+                () -> scheduledClient.getUserGistsAsync("testuser").get(5, TimeUnit.SECONDS));
+
+        // Assert
+        assertTrue(rejected.retryAfterSeconds() > 590, "Retry-After should point at the quota reset");
+        assertInstanceOf(GitHubApiClient.TooManyRequestsException.class, rejectedAsync.getCause());
+        verify(mockHttpClient, times(1)).send(any(HttpRequest.class), any(HttpResponse.BodyHandlers.ofString().getClass()));
+        verify(mockHttpClient, never()).sendAsync(any(HttpRequest.class), any());
+    }
+
+    /**
+     * Test case for Link header parsing.
+     */
+    @Test
+    void lastPageFromLink_shouldReadLastPageNumber() {
+        assertEquals(1, GitHubApiClient.lastPageFromLink(null));
+        assertEquals(1, GitHubApiClient.lastPageFromLink("<https://api.github.com/user/1/gists?per_page=100&page=1>; rel=\"prev\""));
+        assertEquals(7, GitHubApiClient.lastPageFromLink(
+                "<https://api.github.com/user/1/gists?per_page=100&page=2>; rel=\"next\", <https://api.github.com/user/1/gists?per_page=100&page=7>; rel=\"last\""));
+        assertEquals(30, GitHubApiClient.lastPageFromLink("<https://api.github.com/user/1/gists?page=99&per_page=100>; rel=\"last\""),
+                "Page count should be capped at GitHub's 3000 gist listing limit");
+    }
 }
\ No newline at end of file
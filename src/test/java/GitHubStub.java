@@ -0,0 +1,286 @@
+// GitHubStub.java
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local stand-in for the parts of the GitHub REST API this server uses, for load tests that must
+ * not spend real quota. It behaves like GitHub where GitHubApiClient cares:
+ * <ul>
+ *   <li>{@code GET /users/{username}/gists?per_page=&page=} answers with GitHub-shaped gists (see
+ *       GistPayloads), paged with a Link header (next/last); usernames starting with "missing" get 404.</li>
+ *   <li>Responses carry an ETag; a matching If-None-Match is answered with 304 and costs no quota.
+ *       {@link #touch(String)} edits a user's gists so the next request sees new content.</li>
+ *   <li>A primary quota per window with X-RateLimit-Limit/Remaining/Reset headers; once it is spent,
+ *       403 with Remaining: 0. {@link #throttleNext(int)} answers the next requests with 429 and Retry-After,
+ *       like GitHub's secondary rate limit. {@code GET /rate_limit} is free.</li>
+ *   <li>Each response waits a log-normally distributed latency (a median plus a long tail), on a virtual
+ *       thread, so thousands of slow responses can be outstanding.</li>
+ * </ul>
+ * Settings may be changed while the stub is running. Run it standalone with
+ * {@code java -cp target/test-classes:target/classes:<gson.jar> GitHubStub [port] [gistsPerUser] [medianLatencyMs]}
+ * and point the server at it with GIST_UPSTREAM_BASE_URL.
+ */
+public class GitHubStub {
+
+    private static final int DEFAULT_PER_PAGE = 30; // GitHub's default page size
+    private static final int MAX_PER_PAGE = 100;
+    private static final int MAX_CACHED_PAGES = 10_000;
+    private static final String USER_PLACEHOLDER = "{{login}}";
+
+    private final HttpServer server;
+    private final Map<String, Integer> gistCounts = new ConcurrentHashMap<>();
+    private final Map<String, Integer> revisions = new ConcurrentHashMap<>();
+    // Generated pages by position and revision, with USER_PLACEHOLDER for the username; generating GitHub-sized
+    // JSON costs far more than serving it, and would otherwise dominate the stub's CPU time in load tests
+    private final Map<String, String> pages = new ConcurrentHashMap<>();
+
+    private volatile int gistsPerUser = 10;
+    private volatile long medianLatencyNanos;
+    private volatile double latencySigma; // Spread of the log-normal latency; 0 makes it constant
+    private volatile boolean conditionalRequests = true;
+    private volatile int quota = Integer.MAX_VALUE;
+    private volatile long quotaWindowMillis = 3_600_000;
+    private long windowStartMillis = System.currentTimeMillis(); // Guarded by 'this'
+    private int used; // Guarded by 'this'
+    private final AtomicInteger throttled = new AtomicInteger();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+
+    /**
+     * Creates the stub on the loopback interface.
+     *
+     * @param port Port to listen on, or 0 for any free port.
+     */
+    public GitHubStub(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public static void main(String[] args) throws IOException {
+        GitHubStub stub = new GitHubStub(args.length > 0 ? Integer.parseInt(args[0]) : 9000);
+        stub.setGistsPerUser(args.length > 1 ? Integer.parseInt(args[1]) : 30);
+        stub.setLatency(Duration.ofMillis(args.length > 2 ? Long.parseLong(args[2]) : 50), 0.5);
+        stub.start();
+        System.out.println("GitHub stub listening on " + stub.baseUrl());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return The URL to pass as the GitHubApiClient base URL (or GIST_UPSTREAM_BASE_URL).
+     */
+    public String baseUrl() {
+        return "http://localhost:" + port();
+    }
+
+    /**
+     * Sets how many gists every user has, unless set per user with {@link #setGistCount}.
+     */
+    public void setGistsPerUser(int count) {
+        this.gistsPerUser = count;
+    }
+
+    public void setGistCount(String username, int count) {
+        gistCounts.put(username, count);
+    }
+
+    /**
+     * Sets the response latency: log-normal with the given median, so that about 1 in 20 responses
+     * is slower than {@code median * e^(1.645 * sigma)} (2.3x the median for sigma 0.5).
+     */
+    public void setLatency(Duration median, double sigma) {
+        this.medianLatencyNanos = median.toNanos();
+        this.latencySigma = sigma;
+    }
+
+    /**
+     * Sets the primary rate limit: {@code limit} requests per {@code window}, restarting the current window.
+     */
+    public synchronized void setQuota(int limit, Duration window) {
+        this.quota = limit;
+        this.quotaWindowMillis = window.toMillis();
+        this.windowStartMillis = System.currentTimeMillis();
+        this.used = 0;
+    }
+
+    /**
+     * Answers the next {@code count} gist requests with 429 and Retry-After: 1 (a secondary rate limit).
+     */
+    public void throttleNext(int count) {
+        throttled.set(count);
+    }
+
+    /**
+     * Turns ETags and 304 answers on or off (benchmarks that want every call to transfer a body turn them off).
+     */
+    public void setConditionalRequests(boolean enabled) {
+        this.conditionalRequests = enabled;
+    }
+
+    /**
+     * Edits a user's gists: their content and ETag change from the next request on.
+     */
+    public void touch(String username) {
+        revisions.merge(username, 1, Integer::sum);
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long notModifiedResponses() {
+        return notModified.sum();
+    }
+
+    public long rateLimitedResponses() {
+        return rateLimited.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (exchange) {
+            sleepLatency();
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            if (path.length == 2 && path[1].equals("rate_limit")) {
+                send(exchange, 200, ("{\"resources\": {\"core\": {\"limit\": " + quota + "}}}").getBytes(StandardCharsets.UTF_8));
+            } else if (path.length == 4 && path[1].equals("users") && path[3].equals("gists")) {
+                handleGists(exchange, path[2]);
+            } else {
+                send(exchange, 404, "{\"message\": \"Not Found\"}".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private void handleGists(HttpExchange exchange, String username) throws IOException {
+        if (throttled.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            rateLimited.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 429, "{\"message\": \"You have exceeded a secondary rate limit.\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        URI uri = exchange.getRequestURI();
+        int perPage = Math.min(MAX_PER_PAGE, Math.max(1, intParameter(uri, "per_page", DEFAULT_PER_PAGE)));
+        int page = Math.max(1, intParameter(uri, "page", 1));
+        int revision = revisions.getOrDefault(username, 0);
+        String etag = "W/\"" + Integer.toHexString((username + '/' + perPage + '/' + page + '/' + revision).hashCode()) + "\"";
+        if (conditionalRequests && etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.increment(); // Free on GitHub, so no quota is charged
+            rateLimitHeaders(exchange, false);
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        if (!rateLimitHeaders(exchange, true)) {
+            rateLimited.increment();
+            send(exchange, 403, "{\"message\": \"API rate limit exceeded.\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (username.startsWith("missing")) {
+            send(exchange, 404, "{\"message\": \"Not Found\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        int total = gistCounts.getOrDefault(username, gistsPerUser);
+        int lastPage = Math.max(1, (total + perPage - 1) / perPage);
+        if (page < lastPage) {
+            String url = baseUrl() + "/users/" + username + "/gists?per_page=" + perPage + "&page=";
+            exchange.getResponseHeaders().set("Link",
+                    "<" + url + (page + 1) + ">; rel=\"next\", <" + url + lastPage + ">; rel=\"last\"");
+        }
+        if (conditionalRequests) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+        int first = (page - 1) * perPage;
+        int count = Math.max(0, Math.min(perPage, total - first));
+        String key = first + "/" + count + "/" + revision;
+        String template = pages.get(key);
+        if (template == null) {
+            if (pages.size() > MAX_CACHED_PAGES) {
+                pages.clear();
+            }
+            template = GistPayloads.userGists(USER_PLACEHOLDER, first, count, revision);
+            pages.put(key, template);
+        }
+        send(exchange, 200, template.replace(USER_PLACEHOLDER, username).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sets the X-RateLimit headers, charging one request to the quota if {@code charge} is set.
+     *
+     * @return False if the quota is spent.
+     */
+    private synchronized boolean rateLimitHeaders(HttpExchange exchange, boolean charge) {
+        long now = System.currentTimeMillis();
+        if (now - windowStartMillis >= quotaWindowMillis) {
+            windowStartMillis = now;
+            used = 0;
+        }
+        boolean allowed = used < quota;
+        if (charge && allowed) {
+            used++;
+        }
+        exchange.getResponseHeaders().set("X-RateLimit-Limit", String.valueOf(quota));
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", String.valueOf(Math.max(0, quota - used)));
+        exchange.getResponseHeaders().set("X-RateLimit-Reset", String.valueOf((windowStartMillis + quotaWindowMillis) / 1000));
+        exchange.getResponseHeaders().set("X-RateLimit-Used", String.valueOf(used));
+        return allowed;
+    }
+
+    private void sleepLatency() {
+        long median = medianLatencyNanos;
+        if (median <= 0) {
+            return;
+        }
+        double factor = Math.exp(latencySigma * ThreadLocalRandom.current().nextGaussian());
+        try {
+            Thread.sleep(Duration.ofNanos((long) (median * factor)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int intParameter(URI uri, String name, int defaultValue) {
+        String value = GistServer.queryParameter(uri, name);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
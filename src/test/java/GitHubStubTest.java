@@ -0,0 +1,87 @@
+// GitHubStubTest.java
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that GitHubStub behaves like GitHub as far as GitHubApiClient can tell: pagination,
+ * ETag/304, 404 and both kinds of rate limit.
+ */
+public class GitHubStubTest {
+
+    private GitHubStub stub;
+    private GitHubApiClient client;
+
+    @BeforeEach
+    void start() throws Exception {
+        stub = new GitHubStub(0);
+        stub.start();
+        client = newClient();
+    }
+
+    private GitHubApiClient newClient() {
+        return new GitHubApiClient(HttpClient.newHttpClient(), new Gson(), RateLimitScheduler.unlimited(),
+                Duration.ofSeconds(5), stub.baseUrl());
+    }
+
+    @AfterEach
+    void stop() {
+        stub.stop();
+    }
+
+    @Test
+    void shouldPageLargeGistListsLikeGitHub() throws Exception {
+        stub.setGistCount("prolific", 250);
+
+        List<Gist> gists = client.getUserGists("prolific");
+
+        assertEquals(250, gists.size(), "All three pages should be fetched");
+        assertEquals(3, stub.requests());
+        assertEquals(250, gists.stream().map(Gist::getId).distinct().count());
+        assertNotNull(gists.get(0).getFiles().values().iterator().next().getRawUrl());
+    }
+
+    @Test
+    void shouldAnswerConditionalRequestsWithNotModified() throws Exception {
+        String before = client.getUserGists("octocat").get(1).getDescription();
+        client.getUserGists("octocat");
+        assertEquals(1, stub.notModifiedResponses());
+        assertEquals(1, client.notModifiedCount());
+
+        stub.touch("octocat");
+        String after = client.getUserGists("octocat").get(1).getDescription();
+        assertNotEquals(before, after, "An edited user should get a new body");
+        assertEquals(1, stub.notModifiedResponses());
+    }
+
+    @Test
+    void shouldReportMissingUsersAndRateLimits() throws Exception {
+        assertThrows(GitHubApiClient.UserNotFoundException.class, () -> client.getUserGists("missing-user"));
+
+        stub.throttleNext(1);
+        GitHubApiClient.TooManyRequestsException secondary =
+                assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> client.getUserGists("a"));
+        assertEquals(1, secondary.retryAfterSeconds());
+
+        stub.setQuota(1, Duration.ofHours(1));
+        GitHubApiClient fresh = newClient(); // The first client now waits out the Retry-After by itself
+        fresh.getUserGists("b");
+        assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> fresh.getUserGists("c"),
+                "The client saw X-RateLimit-Remaining: 0 and stops before GitHub has to refuse it");
+        HttpResponse<String> refused = HttpClient.newHttpClient().send(HttpRequest.newBuilder()
+                .uri(URI.create(stub.baseUrl() + "/users/c/gists")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(403, refused.statusCode(), "An exhausted quota is answered with 403, as on GitHub");
+        assertEquals("0", refused.headers().firstValue("X-RateLimit-Remaining").orElse(""));
+        assertEquals(2, stub.rateLimitedResponses());
+    }
+}
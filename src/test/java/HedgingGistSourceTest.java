@@ -0,0 +1,185 @@
+// HedgingGistSourceTest.java
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for HedgingGistSource against a local GitHub stub that can delay a response, and against a
+ * scripted source whose calls the test completes by hand.
+ */
+public class HedgingGistSourceTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private HttpServer stub;
+    private final AtomicBoolean slowNext = new AtomicBoolean(); // The next stub request takes 3 s
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        stub.createContext("/", HedgingGistSourceTest.this::handle);
+        stub.setExecutor(Executors.newFixedThreadPool(4));
+        stub.start();
+    }
+
+    @AfterEach
+    void stop() {
+        stub.stop(0);
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void shouldAnswerFromTheHedgeWhenTheFirstCallIsSlow() throws Exception {
+        GitHubApiClient client = new GitHubApiClient(HttpClient.newHttpClient(), new Gson(), RateLimitScheduler.unlimited(),
+                Duration.ofSeconds(10), "http://localhost:" + stub.getAddress().getPort());
+        HedgingGistSource hedging = new HedgingGistSource(client, scheduler, 95, Duration.ofMillis(50), 0.5);
+        for (int i = 0; i < 30; i++) {
+            hedging.getUserGists("octocat"); // Learn the usual latency
+        }
+        HedgingGistSource.HedgeStats before = hedging.stats(); // Not asserted: a JIT or GC pause may have caused a hedge
+
+        slowNext.set(true);
+        long started = System.nanoTime();
+        List<Gist> gists = hedging.getUserGists("octocat");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals("octocat-1", gists.get(0).getId());
+        assertTrue(elapsedMillis < 2000, "The hedge should answer long before the slow call, took " + elapsedMillis + " ms");
+        assertEquals(before.hedged() + 1, hedging.stats().hedged());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (hedging.stats().hedgeWins() == before.hedgeWins() && System.nanoTime() < deadline) {
+            Thread.sleep(5); // The win is counted just after the result is completed
+        }
+        assertEquals(before.hedgeWins() + 1, hedging.stats().hedgeWins());
+    }
+
+    @Test
+    void shouldWaitForTheHedgeWhenTheFirstCallFails() throws Exception {
+        ScriptedSource source = new ScriptedSource();
+        HedgingGistSource hedging = trained(source, 1.0);
+
+        CompletableFuture<List<Gist>> result = hedging.getUserGistsAsync("a");
+        CompletableFuture<List<Gist>> hedge = source.awaitCall(2);
+        source.calls.get(0).completeExceptionally(new IOException("connection reset"));
+        assertFalse(result.isDone(), "The hedge may still succeed");
+
+        hedge.complete(List.of());
+        assertEquals(List.of(), result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, hedging.stats().hedgeWins());
+    }
+
+    @Test
+    void shouldFailOnceEveryAttemptFailedAndAnswerNotFoundAtOnce() throws Exception {
+        ScriptedSource source = new ScriptedSource();
+        HedgingGistSource hedging = trained(source, 1.0);
+
+        CompletableFuture<List<Gist>> failing = hedging.getUserGistsAsync("a");
+        source.awaitCall(2);
+        source.calls.get(0).completeExceptionally(new IOException("connection reset"));
+        source.calls.get(1).completeExceptionally(new IOException("connection refused"));
+        assertTrue(failing.isCompletedExceptionally());
+
+        source.calls.clear();
+        CompletableFuture<List<Gist>> notFound = hedging.getUserGistsAsync("ghost");
+        source.awaitCall(2);
+        source.calls.get(0).completeExceptionally(new GitHubApiClient.UserNotFoundException("GitHub user not found: ghost"));
+        assertTrue(notFound.isCompletedExceptionally(), "404 is an answer, not a reason to wait for the hedge");
+    }
+
+    @Test
+    void shouldRespectTheHedgeBudget() throws Exception {
+        ScriptedSource source = new ScriptedSource();
+        HedgingGistSource hedging = trained(source, 0.0);
+
+        CompletableFuture<List<Gist>> result = hedging.getUserGistsAsync("a");
+        Thread.sleep(200);
+
+        assertEquals(1, source.calls.size(), "No hedges are allowed at all");
+        source.calls.get(0).complete(List.of());
+        assertEquals(List.of(), result.get(5, TimeUnit.SECONDS));
+        assertEquals(0, hedging.stats().hedged());
+    }
+
+    /**
+     * @return A HedgingGistSource over {@code source} that has seen enough fast calls to hedge after 20 ms.
+     */
+    private HedgingGistSource trained(ScriptedSource source, double maxHedgeRatio) throws Exception {
+        HedgingGistSource hedging = new HedgingGistSource(source, scheduler, 95, Duration.ofMillis(20), maxHedgeRatio);
+        source.completeImmediately = true;
+        for (int i = 0; i < 20; i++) {
+            hedging.getUserGists("a");
+        }
+        source.completeImmediately = false;
+        source.calls.clear();
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), hedging.stats().delayNanos());
+        return hedging;
+    }
+
+    /**
+     * A source whose async calls stay pending until the test completes them.
+     */
+    private static class ScriptedSource implements GistSource {
+        final List<CompletableFuture<List<Gist>>> calls = new CopyOnWriteArrayList<>();
+        volatile boolean completeImmediately;
+
+        @Override
+        public List<Gist> getUserGists(String username) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<List<Gist>> getUserGistsAsync(String username) {
+            if (completeImmediately) {
+                return CompletableFuture.completedFuture(List.of());
+            }
+            CompletableFuture<List<Gist>> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }
+
+        CompletableFuture<List<Gist>> awaitCall(int number) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (calls.size() < number && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(calls.size() >= number, "Expected call " + number);
+            return calls.get(number - 1);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (slowNext.compareAndSet(true, false)) {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String username = exchange.getRequestURI().getPath().split("/")[2];
+        byte[] body = ("[{\"id\": \"" + username + "-1\"}]").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+// LatencyHistogramTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    void indexOf_shouldPlaceEveryValueBelowItsBucketsUpperBound() {
+        long[] values = {0, 1, 15, 31, 32, 33, 1000, 1_000_000, 123_456_789, 60_000_000_000L};
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(value < LatencyHistogram.upperBound(index), "Upper bound of " + value);
+            assertTrue(index == 0 || value >= LatencyHistogram.upperBound(index - 1), "Lower bound of " + value);
+            if (value >= 32) {
+                long width = LatencyHistogram.upperBound(index) - LatencyHistogram.upperBound(index - 1);
+                assertTrue(width * 16 <= value * 1.0001 + 16, "Buckets should be within ~6% of " + value);
+            }
+        }
+    }
+
+    @Test
+    void percentileNanos_shouldBeAccurateToTheBucketWidth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertEquals(100, histogram.count());
+        assertEquals(50e6, histogram.percentileNanos(50), 50e6 * 0.07);
+        assertEquals(99e6, histogram.percentileNanos(99), 99e6 * 0.07);
+        assertEquals(0, new LatencyHistogram().percentileNanos(99));
+    }
+
+    @Test
+    void writePrometheus_shouldProduceCumulativeBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(50));    // below 0.0001s
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));     // between 0.0025s and 0.005s
+        histogram.record(TimeUnit.SECONDS.toNanos(30));         // above 10s
+
+        StringBuilder out = new StringBuilder();
+        histogram.writePrometheus(out, "test_seconds", "A test histogram.");
+        String text = out.toString();
+
+        assertTrue(text.startsWith("# HELP test_seconds A test histogram.\n# TYPE test_seconds histogram\n"));
+        assertTrue(text.contains("test_seconds_bucket{le=\"1.0E-4\"} 1\n"));
+        assertTrue(text.contains("test_seconds_bucket{le=\"0.0025\"} 1\n"));
+        assertTrue(text.contains("test_seconds_bucket{le=\"0.005\"} 2\n"));
+        assertTrue(text.contains("test_seconds_bucket{le=\"10.0\"} 2\n"));
+        assertTrue(text.contains("test_seconds_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("test_seconds_count 3\n"));
+        assertTrue(text.contains("test_seconds_sum 30.00305"));
+    }
+
+    @Test
+    void record_shouldNotLoseCountsUnderContention() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(800_000, histogram.count());
+    }
+}
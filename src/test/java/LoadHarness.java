@@ -0,0 +1,138 @@
+// LoadHarness.java
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator for a running GistServer: {@code concurrency} clients each send
+ * GET /{username} back to back for {@code duration}, and the harness reports throughput, latency
+ * percentiles and the status codes seen.
+ *
+ * Usernames are drawn from {@code users} distinct names with a Zipf-like popularity (a few users get
+ * most requests, as in production), so the cache sees a realistic mix of hits and misses.
+ * Run it against a server started with GIST_UPSTREAM_BASE_URL pointing at a GitHubStub:
+ * {@code java -cp target/test-classes:target/classes LoadHarness http://localhost:8080 64 30 1000}
+ */
+public final class LoadHarness {
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI server = URI.create(args.length > 0 ? args[0] : "http://localhost:8080");
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+        int users = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        System.out.println(run(server, concurrency, duration, users, true));
+    }
+
+    /**
+     * Runs the load and waits for it to finish.
+     *
+     * @param server Root URL of the GistServer, e.g. http://localhost:8080.
+     * @param concurrency Number of clients, each with one request outstanding at a time.
+     * @param duration How long to keep sending requests.
+     * @param users Number of distinct usernames (user-0 to user-{users-1}).
+     * @param gzip Whether clients send Accept-Encoding: gzip.
+     */
+    public static Report run(URI server, int concurrency, Duration duration, int users, boolean gzip) throws Exception {
+        double[] popularity = zipf(users);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        LatencyHistogram latency = new LatencyHistogram();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder errors = new LongAdder();
+        LongAdder bytes = new LongAdder();
+
+        long started = System.nanoTime();
+        long deadline = started + duration.toNanos();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                running.add(clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest.Builder request = HttpRequest.newBuilder()
+                                .uri(server.resolve("/user-" + pick(popularity)))
+                                .timeout(Duration.ofSeconds(30));
+                        if (gzip) {
+                            request.header("Accept-Encoding", "gzip");
+                        }
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+                            latency.recordSince(sent);
+                            bytes.add(response.body().length);
+                            statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+                        } catch (IOException e) {
+                            errors.increment();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        Map<Integer, Long> byStatus = new TreeMap<>();
+        statuses.forEach((status, count) -> byStatus.put(status, count.sum()));
+        return new Report(concurrency, seconds, latency.count(), errors.sum(), bytes.sum(), byStatus,
+                latency.percentileNanos(50), latency.percentileNanos(90), latency.percentileNanos(99), latency.percentileNanos(99.9));
+    }
+
+    /**
+     * @return Cumulative probabilities of a Zipf distribution (exponent 1) over {@code users} ranks.
+     */
+    private static double[] zipf(int users) {
+        double[] cumulative = new double[users];
+        double sum = 0;
+        for (int rank = 0; rank < users; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < users; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative) {
+        double draw = ThreadLocalRandom.current().nextDouble();
+        int index = Arrays.binarySearch(cumulative, draw);
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    /**
+     * Outcome of a run; latencies are upper bounds from LatencyHistogram buckets.
+     */
+    public record Report(int concurrency, double seconds, long responses, long errors, long bytes, Map<Integer, Long> statuses,
+                         long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos) {
+
+        public double throughput() {
+            return responses / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d clients for %.1f s: %d responses (%.0f req/s, %.1f MB), %d errors, statuses %s%n"
+                            + "latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms",
+                    concurrency, seconds, responses, throughput(), bytes / 1e6, errors, statuses,
+                    p50Nanos / 1e6, p90Nanos / 1e6, p99Nanos / 1e6, p999Nanos / 1e6);
+        }
+    }
+}
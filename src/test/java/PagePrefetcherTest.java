@@ -0,0 +1,55 @@
+// PagePrefetcherTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PagePrefetcher.
+ */
+public class PagePrefetcherTest {
+
+    @Test
+    void shouldKeepAtMostWindowPagesInFlightAndReturnThemInOrder() {
+        List<Integer> started = new ArrayList<>();
+        PagePrefetcher<Integer> pages = new PagePrefetcher<>(2, 6, 2, page -> {
+            started.add(page);
+            return CompletableFuture.completedFuture(page);
+        });
+
+        assertEquals(List.of(2, 3), started, "Only the first window should be requested up front");
+        List<Integer> consumed = new ArrayList<>();
+        while (pages.hasNext()) {
+            consumed.add(pages.next().join());
+            assertTrue(started.size() - consumed.size() <= 2, "No more than the window may be outstanding");
+        }
+        assertEquals(List.of(2, 3, 4, 5, 6), consumed);
+        assertEquals(List.of(2, 3, 4, 5, 6), started);
+    }
+
+    @Test
+    void shouldRequestNothingWhenRangeIsEmpty() {
+        PagePrefetcher<Integer> pages = new PagePrefetcher<>(2, 1, 4, page -> {
+            throw new AssertionError("No page should be requested");
+        });
+
+        assertFalse(pages.hasNext());
+    }
+
+    @Test
+    void cancelShouldDiscardArrivedPagesAndCancelPendingOnes() {
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        PagePrefetcher<Integer> pages = new PagePrefetcher<>(2, 10, 2, page ->
+                page == 2 ? CompletableFuture.completedFuture(page) : pending);
+        List<Integer> discarded = new ArrayList<>();
+
+        pages.cancel(discarded::add);
+
+        assertEquals(List.of(2), discarded, "Already-arrived pages should be handed to the discard callback");
+        assertTrue(pending.isCancelled());
+        assertFalse(pages.hasNext());
+    }
+}
@@ -0,0 +1,144 @@
+// PeerGistSourceTest.java
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for cluster mode: three GistServer replicas on localhost, each with its own cache and a
+ * PeerGistSource over the same ring, sharing one counting upstream that stands in for GitHub.
+ */
+public class PeerGistSourceTest {
+
+    private static final int REPLICAS = 3;
+
+    private final Map<String, AtomicInteger> upstreamCalls = new ConcurrentHashMap<>();
+    private final List<GistServer> servers = new ArrayList<>();
+    private final List<PeerGistSource> peers = new ArrayList<>();
+    private final List<String> urls = new ArrayList<>();
+    private ConsistentHashRing ring;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void startCluster() throws IOException {
+        GistSource upstream = username -> {
+            upstreamCalls.computeIfAbsent(username, u -> new AtomicInteger()).incrementAndGet();
+            if (username.startsWith("missing")) {
+                throw new GitHubApiClient.UserNotFoundException("GitHub user not found: " + username);
+            }
+            Gist gist = new Gist();
+            gist.setId(username + "-1");
+            gist.setDescription("Gist of " + username);
+            return List.of(gist);
+        };
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < REPLICAS; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports.add(socket.getLocalPort()); // Every replica needs the full peer list before it starts
+            }
+            urls.add("http://localhost:" + ports.get(i));
+        }
+        ring = new ConsistentHashRing(urls, 128);
+        for (int i = 0; i < REPLICAS; i++) {
+            PeerGistSource peer = new PeerGistSource(upstream, ring, urls.get(i), HttpClient.newHttpClient(),
+                    Duration.ofSeconds(5), Duration.ofSeconds(60));
+            CachingGitHubApiClient cache = new CachingGitHubApiClient(new CoalescingGistSource(peer),
+                    Duration.ofSeconds(60), Duration.ofSeconds(30), 1000, Long.MAX_VALUE);
+            GistServer server = new GistServer(ports.get(i), cache, Executors.newFixedThreadPool(4));
+            server.enablePeers(peer);
+            server.start();
+            servers.add(server);
+            peers.add(peer);
+        }
+    }
+
+    @AfterEach
+    void stopCluster() {
+        servers.forEach(GistServer::shutdown);
+    }
+
+    private HttpResponse<String> get(int replica, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(urls.get(replica) + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void eachUsernameShouldBeFetchedUpstreamOnceAcrossReplicas() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            for (int replica = 0; replica < REPLICAS; replica++) {
+                HttpResponse<String> response = get(replica, "/user-" + i);
+                assertEquals(200, response.statusCode());
+                assertEquals("user-" + i + "-1",
+                        JsonParser.parseString(response.body()).getAsJsonArray().get(0).getAsJsonObject().get("id").getAsString());
+            }
+        }
+        for (int replica = 0; replica < REPLICAS; replica++) {
+            assertEquals(404, get(replica, "/missing-user").statusCode());
+        }
+
+        upstreamCalls.forEach((user, calls) -> assertEquals(1, calls.get(), user + " should be fetched once"));
+        assertEquals(31, upstreamCalls.size());
+        long forwarded = peers.stream().mapToLong(peer -> peer.stats().forwarded()).sum();
+        assertEquals(31 * (REPLICAS - 1), forwarded, "Every non-owner asks the owner once");
+        assertEquals(0, peers.stream().mapToLong(peer -> peer.stats().fallbacks()).sum());
+        assertTrue(get(0, "/metrics").body().contains("gist_peer_forwarded_total"));
+    }
+
+    @Test
+    void shouldFallBackToTheUpstreamWhenTheOwnerIsDown() throws Exception {
+        servers.get(2).shutdown();
+        List<String> ownedByDeadReplica = new ArrayList<>();
+        for (int i = 0; ownedByDeadReplica.size() < 2; i++) {
+            if (ring.owner("user-" + i).equals(urls.get(2))) {
+                ownedByDeadReplica.add("user-" + i);
+            }
+        }
+
+        assertEquals(200, get(0, "/" + ownedByDeadReplica.get(0)).statusCode());
+        assertEquals(200, get(0, "/" + ownedByDeadReplica.get(1)).statusCode());
+
+        PeerGistSource.PeerStats stats = peers.get(0).stats();
+        assertEquals(1, stats.forwarded(), "The dead owner is skipped after its first failure");
+        assertEquals(1, stats.fallbacks());
+        assertEquals(1, upstreamCalls.get(ownedByDeadReplica.get(0)).get());
+    }
+
+    @Test
+    void lookupsOnBehalfOfAPeerShouldNeverBeForwarded() throws Exception {
+        String ownedByOther = null;
+        for (int i = 0; ownedByOther == null; i++) {
+            if (!ring.owner("user-" + i).equals(urls.get(0))) {
+                ownedByOther = "user-" + i;
+            }
+        }
+        String username = ownedByOther;
+
+        List<Gist> gists = PeerGistSource.servingPeer(() -> {
+            try {
+                return peers.get(0).getUserGists(username);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertEquals(username + "-1", gists.get(0).getId());
+        assertEquals(0, peers.get(0).stats().forwarded());
+        assertEquals(1, peers.get(0).stats().local());
+    }
+}
@@ -0,0 +1,120 @@
+// RateLimitSchedulerTest.java
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RateLimitScheduler. Time is controlled through a mutable Clock,
+ * so pacing and quota resets can be tested without sleeping.
+ */
+public class RateLimitSchedulerTest {
+
+    private CachingGitHubApiClientTest.MutableClock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new CachingGitHubApiClientTest.MutableClock();
+    }
+
+    @Test
+    void reserve_shouldDelayUserRequestsBeyondBurstAndRejectPastMaxWait() throws Exception {
+        // 10 calls/second, burst of 2, user requests may wait up to 200ms (2 tokens of debt)
+        RateLimitScheduler scheduler = new RateLimitScheduler(10, 2, Duration.ofMillis(200), clock);
+
+        assertEquals(0, scheduler.reserve(RateLimitScheduler.Priority.USER));
+        assertEquals(0, scheduler.reserve(RateLimitScheduler.Priority.USER));
+        assertEquals(100, scheduler.reserve(RateLimitScheduler.Priority.USER), "Third call waits for the next token");
+        assertEquals(200, scheduler.reserve(RateLimitScheduler.Priority.USER));
+        assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> scheduler.reserve(RateLimitScheduler.Priority.USER));
+
+        clock.advance(Duration.ofMillis(500));
+        assertEquals(0, scheduler.reserve(RateLimitScheduler.Priority.USER), "Tokens refill over time");
+        assertEquals(1, scheduler.stats().rejected());
+        assertEquals(2, scheduler.stats().delayed());
+    }
+
+    @Test
+    void reserve_shouldNeverDelayBackgroundWork() throws Exception {
+        RateLimitScheduler scheduler = new RateLimitScheduler(10, 1, Duration.ofSeconds(1), clock);
+
+        assertEquals(0, scheduler.reserve(RateLimitScheduler.Priority.BACKGROUND));
+        assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> scheduler.reserve(RateLimitScheduler.Priority.BACKGROUND));
+        assertEquals(100, scheduler.reserve(RateLimitScheduler.Priority.USER), "User requests may still borrow");
+    }
+
+    @Test
+    void reserve_shouldKeepPartOfTheUpstreamQuotaForUserRequests() throws Exception {
+        RateLimitScheduler scheduler = unlimited(clock);
+        long reset = clock.millis() / 1000 + 3600;
+        scheduler.observe(200, headers("X-RateLimit-Limit", "60", "X-RateLimit-Remaining", "13", "X-RateLimit-Reset", String.valueOf(reset)));
+
+        scheduler.reserve(RateLimitScheduler.Priority.BACKGROUND); // 13 -> 12, the reserved share of 60
+        GitHubApiClient.TooManyRequestsException rejected = assertThrows(GitHubApiClient.TooManyRequestsException.class,
+                () -> scheduler.reserve(RateLimitScheduler.Priority.BACKGROUND));
+        assertEquals(3600, rejected.retryAfterSeconds());
+
+        for (int i = 0; i < 12; i++) {
+            scheduler.reserve(RateLimitScheduler.Priority.USER);
+        }
+        assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> scheduler.reserve(RateLimitScheduler.Priority.USER),
+                "Nothing is sent once the quota is used up");
+
+        clock.advance(Duration.ofSeconds(3601));
+        assertEquals(0, scheduler.reserve(RateLimitScheduler.Priority.BACKGROUND), "A new quota window starts at the reset time");
+    }
+
+    @Test
+    void observe_shouldBackOffForRetryAfter() throws Exception {
+        RateLimitScheduler scheduler = unlimited(clock);
+
+        scheduler.observe(429, headers("Retry-After", "30"));
+        GitHubApiClient.TooManyRequestsException rejected = assertThrows(GitHubApiClient.TooManyRequestsException.class,
+                () -> scheduler.reserve(RateLimitScheduler.Priority.USER));
+        assertEquals(30, rejected.retryAfterSeconds());
+
+        clock.advance(Duration.ofSeconds(30));
+        assertEquals(0, scheduler.reserve(RateLimitScheduler.Priority.USER));
+
+        scheduler.observe(429, null);
+        assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> scheduler.reserve(RateLimitScheduler.Priority.USER),
+                "A bare 429 still backs off");
+    }
+
+    @Test
+    void refund_shouldReturnTheTokenOfAFreeResponse() throws Exception {
+        RateLimitScheduler scheduler = new RateLimitScheduler(1, 1, Duration.ZERO, clock);
+
+        scheduler.reserve(RateLimitScheduler.Priority.USER);
+        scheduler.refund(); // e.g. a 304 Not Modified
+        assertEquals(0, scheduler.reserve(RateLimitScheduler.Priority.USER));
+        assertThrows(GitHubApiClient.TooManyRequestsException.class, () -> scheduler.reserve(RateLimitScheduler.Priority.USER));
+    }
+
+    @Test
+    void withPriority_shouldOnlyApplyInsideTheAction() {
+        assertEquals(RateLimitScheduler.Priority.USER, RateLimitScheduler.currentPriority());
+        RateLimitScheduler.Priority inside = RateLimitScheduler.withPriority(RateLimitScheduler.Priority.BACKGROUND,
+                RateLimitScheduler::currentPriority);
+        assertEquals(RateLimitScheduler.Priority.BACKGROUND, inside);
+        assertEquals(RateLimitScheduler.Priority.USER, RateLimitScheduler.currentPriority());
+    }
+
+    private static RateLimitScheduler unlimited(CachingGitHubApiClientTest.MutableClock clock) {
+        return new RateLimitScheduler(Double.POSITIVE_INFINITY, 1, Duration.ZERO, clock);
+    }
+
+    private static HttpHeaders headers(String... namesAndValues) {
+        Map<String, List<String>> map = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            map.put(namesAndValues[i], List.of(namesAndValues[i + 1]));
+        }
+        return HttpHeaders.of(map, (name, value) -> true);
+    }
+}
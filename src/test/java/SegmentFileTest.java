@@ -0,0 +1,92 @@
+// SegmentFileTest.java
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SegmentFile, using real files in a temporary directory.
+ */
+public class SegmentFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void get_shouldReturnLatestRecordAfterReopening() throws Exception {
+        Path path = dir.resolve("gists.seg");
+        try (SegmentFile segment = new SegmentFile(path, 64 * 1024)) {
+            segment.put("octocat", 1000, bytes("[1]"));
+            segment.put("torvalds", 2000, bytes("[2]"));
+            segment.put("octocat", 3000, bytes("[3]"));
+        }
+
+        try (SegmentFile reopened = new SegmentFile(path, 64 * 1024)) {
+            assertEquals(2, reopened.size(), "Index should be rebuilt from the file");
+            SegmentFile.Record octocat = reopened.get("octocat");
+            assertEquals(3000, octocat.storedAtMillis());
+            assertEquals("[3]", string(octocat.value()), "The newest record supersedes older ones");
+            assertEquals("[2]", string(reopened.get("torvalds").value()));
+            assertNull(reopened.get("nobody"));
+        }
+    }
+
+    @Test
+    void open_shouldStopAtATornRecordAndOverwriteIt() throws Exception {
+        Path path = dir.resolve("gists.seg");
+        long tornAt;
+        try (SegmentFile segment = new SegmentFile(path, 64 * 1024)) {
+            segment.put("octocat", 1000, bytes("[1]"));
+            tornAt = segment.usedBytes();
+            segment.put("torvalds", 2000, bytes("[\"a long enough value\"]"));
+        }
+        // Simulate a crash half way through the second record: flip a byte of its value
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(tornAt + 30);
+            file.write(0x7f);
+        }
+
+        try (SegmentFile reopened = new SegmentFile(path, 64 * 1024)) {
+            assertEquals(1, reopened.size());
+            assertNull(reopened.get("torvalds"), "The corrupt record must not be served");
+            assertEquals(tornAt, reopened.usedBytes(), "Writing resumes where the valid data ends");
+            reopened.put("mojombo", 3000, bytes("[3]"));
+        }
+        try (SegmentFile again = new SegmentFile(path, 64 * 1024)) {
+            assertEquals("[3]", string(again.get("mojombo").value()));
+            assertEquals("[1]", string(again.get("octocat").value()));
+        }
+    }
+
+    @Test
+    void put_shouldCompactWhenTheFileIsFull() throws Exception {
+        Path path = dir.resolve("gists.seg");
+        byte[] value = new byte[100];
+        try (SegmentFile segment = new SegmentFile(path, 1024)) {
+            // ~130 bytes per record: rewriting two keys over and over fills 1 KB many times
+            for (int i = 0; i < 50; i++) {
+                assertTrue(segment.put(i % 2 == 0 ? "a" : "b", i, value));
+            }
+            assertEquals(2, segment.size());
+            assertTrue(segment.usedBytes() <= 1024);
+            assertEquals(49, segment.get("b").storedAtMillis());
+            assertFalse(segment.put("huge", 0, new byte[2048]), "Values larger than the file are skipped");
+        }
+        try (SegmentFile reopened = new SegmentFile(path, 1024)) {
+            assertEquals(48, reopened.get("a").storedAtMillis(), "Compacted file should survive a restart");
+            assertEquals(49, reopened.get("b").storedAtMillis());
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
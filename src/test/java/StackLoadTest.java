@@ -0,0 +1,53 @@
+// StackLoadTest.java
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test of the whole stack as main wires it (GistServer, admission control, cache, coalescing,
+ * circuit breaker and GitHubApiClient over HTTP) against a GitHubStub with realistic latency,
+ * using LoadHarness. Prints throughput and latency percentiles; asserts only that nothing failed.
+ * Tagged "load", so it only runs with -Pload.
+ */
+@Tag("load")
+public class StackLoadTest {
+
+    @Test
+    void wholeStackShouldServeLoadAgainstTheStub() throws Exception {
+        GitHubStub stub = new GitHubStub(0);
+        stub.setGistsPerUser(30); // About 75 KB per user, like an active GitHub account
+        stub.setLatency(Duration.ofMillis(40), 0.5);
+        stub.start();
+        UpstreamTransport transport = new UpstreamTransport(HttpClient.Version.HTTP_1_1,
+                Duration.ofSeconds(5), Duration.ofSeconds(10), 4);
+        GitHubApiClient client = new GitHubApiClient(transport.newHttpClient(), new Gson(), RateLimitScheduler.unlimited(),
+                transport.requestTimeout(), stub.baseUrl());
+        CircuitBreakerGistSource breaker = new CircuitBreakerGistSource(client, 20, 10, 0.5, Duration.ofSeconds(30), 3);
+        CachingGitHubApiClient cache = new CachingGitHubApiClient(new CoalescingGistSource(breaker),
+                Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofSeconds(30), 10_000, 64L * 1024 * 1024);
+        GistServer server = new GistServer(0, cache, ExecutorMode.VIRTUAL.create(10));
+        server.limitAdmission(new AdmissionController(256, 16, 100, Metrics.UPSTREAM_REQUEST));
+        server.start();
+        try {
+            LoadHarness.Report report = LoadHarness.run(URI.create("http://localhost:" + server.port()),
+                    16, Duration.ofSeconds(3), 200, true);
+
+            System.out.println("StackLoadTest: " + report);
+            System.out.println("StackLoadTest: stub saw " + stub.requests() + " requests, "
+                    + stub.notModifiedResponses() + " answered 304");
+            assertEquals(0, report.errors());
+            assertEquals(report.responses(), report.statuses().getOrDefault(200, 0L), "Every request should succeed");
+            assertTrue(report.responses() > 0);
+        } finally {
+            server.shutdown();
+            stub.stop();
+        }
+    }
+}
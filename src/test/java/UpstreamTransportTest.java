@@ -0,0 +1,165 @@
+// UpstreamTransportTest.java
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for UpstreamTransport and GitHubApiClient's warm-up against a local TLS stub of the GitHub API.
+ * The stub uses a self-signed certificate generated with keytool, and records which client connections
+ * (remote ports) it has seen, so connection reuse can be checked without relying on timing.
+ * The JDK has no HTTP/2 server, so the stub speaks HTTP/1.1 and the client falls back to it; what this
+ * shows is the cost of the TCP + TLS handshake that warm-up and connection reuse avoid.
+ */
+public class UpstreamTransportTest {
+
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    @TempDir
+    static Path dir;
+
+    private static HttpsServer stub;
+    private static SSLContext clientContext;
+    private static final Set<Integer> connections = ConcurrentHashMap.newKeySet();
+
+    @BeforeAll
+    static void startStub() throws Exception {
+        Path keystore = dir.resolve("stub.p12");
+        Path keytool = Path.of(System.getProperty("java.home"), "bin", "keytool");
+        assumeTrue(Files.isExecutable(keytool), "keytool is needed to create the stub's certificate");
+        Process process = new ProcessBuilder(keytool.toString(), "-genkeypair", "-alias", "stub", "-keyalg", "EC",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1", "-validity", "1",
+                "-storetype", "PKCS12", "-keystore", keystore.toString(),
+                "-storepass", new String(PASSWORD), "-keypass", new String(PASSWORD))
+                .redirectErrorStream(true).start();
+        process.getInputStream().transferTo(OutputStream.nullOutputStream());
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS) && process.exitValue() == 0, "keytool failed");
+
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore)) {
+            store.load(in, PASSWORD);
+        }
+        KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keys.init(store, PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keys.getKeyManagers(), null, null);
+        TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(store);
+        clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, trust.getTrustManagers(), null);
+
+        stub = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        stub.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        stub.createContext("/", UpstreamTransportTest::handle);
+        stub.setExecutor(Executors.newFixedThreadPool(4));
+        stub.start();
+    }
+
+    @AfterAll
+    static void stopStub() {
+        if (stub != null) {
+            stub.stop(0);
+        }
+    }
+
+    @Test
+    void warmUp_shouldOpenTheConnectionTheFirstRequestReuses() throws Exception {
+        GitHubApiClient client = client(transport(Duration.ofSeconds(5)));
+        int connectionsBefore = connections.size();
+
+        assertEquals(200, client.warmUp().get(10, TimeUnit.SECONDS));
+        assertTrue(client.getUserGists("octocat").isEmpty());
+        client.getUserGists("octocat");
+
+        assertEquals(connectionsBefore + 1, connections.size(), "All requests should share the warmed-up connection");
+    }
+
+    @Test
+    void warmUp_shouldTakeTheHandshakeOffTheFirstRequest() throws Exception {
+        GitHubApiClient coldClient = client(transport(Duration.ofSeconds(5)));
+        int beforeCold = connections.size();
+        coldClient.getUserGists("octocat");
+        assertEquals(beforeCold + 1, connections.size(), "Without warm-up the first request opens a connection");
+
+        GitHubApiClient warmClient = client(transport(Duration.ofSeconds(5)));
+        warmClient.warmUp().get(10, TimeUnit.SECONDS);
+        int afterWarmUp = connections.size();
+        warmClient.getUserGists("octocat");
+        assertEquals(afterWarmUp, connections.size(), "After warm-up the first request should not open a connection");
+    }
+
+    @Test
+    void requestTimeout_shouldFailSlowUpstreamRequests() {
+        GitHubApiClient client = client(transport(Duration.ofMillis(200)));
+
+        assertThrows(HttpTimeoutException.class, () -> client.getUserGists("slow"));
+    }
+
+    @Test
+    void parseVersion_shouldAcceptCommonSpellings() {
+        assertEquals(HttpClient.Version.HTTP_2, UpstreamTransport.parseVersion("2"));
+        assertEquals(HttpClient.Version.HTTP_2, UpstreamTransport.parseVersion("HTTP/2"));
+        assertEquals(HttpClient.Version.HTTP_2, UpstreamTransport.parseVersion("http_2"));
+        assertEquals(HttpClient.Version.HTTP_1_1, UpstreamTransport.parseVersion("1.1"));
+        assertEquals(HttpClient.Version.HTTP_1_1, UpstreamTransport.parseVersion("HTTP_1_1"));
+        assertThrows(IllegalArgumentException.class, () -> UpstreamTransport.parseVersion("3"));
+        assertThrows(IllegalArgumentException.class, () -> new UpstreamTransport(HttpClient.Version.HTTP_2,
+                Duration.ofSeconds(1), Duration.ofSeconds(1), 0));
+    }
+
+    private static UpstreamTransport transport(Duration requestTimeout) {
+        return new UpstreamTransport(HttpClient.Version.HTTP_2, Duration.ofSeconds(5), requestTimeout, 2);
+    }
+
+    private static GitHubApiClient client(UpstreamTransport transport) {
+        return new GitHubApiClient(transport.newHttpClient(clientContext), new Gson(), RateLimitScheduler.unlimited(),
+                transport.requestTimeout(), "https://localhost:" + stub.getAddress().getPort());
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        connections.add(exchange.getRemoteAddress().getPort());
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/users/slow/gists")) {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        byte[] body = (path.equals("/rate_limit") ? "{}" : "[]").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("X-RateLimit-Limit", "60");
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", "59");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}